@@ -0,0 +1,215 @@
+/**
+ * Class represents an index of personal accounts keyed by their account number, across every bank account.
+ * The numbers are kept as primitive longs in an open addressing hash table, so finding an account
+ * is a single probe sequence without boxing a Long.
+ * Safe for concurrent lookups while accounts are added, adds are made one at a time.
+ * A slot's account is set before its number, so a lookup that finds the number always finds the account.
+ * An account's number can not be changed once it is added, see PersonalAccount.SetAccNumber(long)
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class AccountIndex {
+	/**
+	 * Number of slots in a new index, always a power of two
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/**
+	 * Account number marking an empty slot, the account with this number is kept outside the table
+	 */
+	private static final long EMPTY = 0L;
+	
+	/**
+	 * The current table, replaced by a table twice the size once it is half full
+	 */
+	private volatile Table table = new Table(INITIAL_CAPACITY);
+	
+	/**
+	 * The account numbered EMPTY, or null
+	 */
+	private volatile PersonalAccount emptyNumberAccount;
+	
+	/**
+	 * Number of accounts in the index, guarded by the index's lock
+	 */
+	private int size;
+	
+	/**
+	 * Slots of account numbers and the accounts stored under them, probed linearly
+	 */
+	private static final class Table {
+		private final AtomicLongArray accNumbers;
+		private final AtomicReferenceArray<PersonalAccount> accounts;
+		private final int mask;
+		
+		Table(int capacity) {
+			accNumbers = new AtomicLongArray(capacity);
+			accounts = new AtomicReferenceArray<>(capacity);
+			mask = capacity - 1;
+		}
+	}
+	
+	/**
+	 * Adds a personal account under its account number, which is fixed from then on.
+	 * An account that is not added keeps a number that can still be changed.
+	 * The account's monitor is held throughout, so its number can not change between being read and being fixed
+	 * @param personalAccount personal account to add
+	 * @return a boolean that represents whether the account was added or the number already belongs to another account
+	 * @see PersonalAccount#FixAccNumber()
+	 */
+	public synchronized boolean Add(PersonalAccount personalAccount) {
+		synchronized (personalAccount) {
+			long accNumber = personalAccount.GetAccNumber();
+			if (accNumber == EMPTY) {
+				if (emptyNumberAccount != null) {
+					return false;
+				}
+				emptyNumberAccount = personalAccount;
+			}
+			else {
+				Table current = table;
+				if ((size + 1) * 2 > current.mask + 1) {
+					current = Grow(current);
+				}
+				if (Insert(current, accNumber, personalAccount) == false) {
+					return false;
+				}
+				++size;
+			}
+			personalAccount.FixAccNumber();
+			return true;
+		}
+	}
+	
+	/**
+	 * Adds a group of personal accounts, like every account of a bank account being registered, all together or not at all.
+	 * Every number is checked against the index and the rest of the group before any account is added.
+	 * The numbers must not be changed while the group is being added
+	 * @param personalAccounts personal accounts to add
+	 * @return the first account whose number already belongs to another account, or null if every account was added
+	 * @see AccountIndex#Add(PersonalAccount)
+	 */
+	public synchronized PersonalAccount AddAll(List<PersonalAccount> personalAccounts) {
+		long[] accNumbers = new long[personalAccounts.size()];
+		for (int i = 0; i < accNumbers.length; ++i) {
+			PersonalAccount personalAccount = personalAccounts.get(i);
+			accNumbers[i] = personalAccount.GetAccNumber();
+			if (Find(accNumbers[i]) != null) {
+				return personalAccount;
+			}
+		}
+		Arrays.sort(accNumbers);
+		for (int i = 1; i < accNumbers.length; ++i) {
+			if (accNumbers[i] == accNumbers[i - 1]) {
+				return Find(accNumbers[i], personalAccounts);
+			}
+		}
+		
+		for (PersonalAccount personalAccount : personalAccounts) {
+			Add(personalAccount);
+		}
+		return null;
+	}
+	
+	/**
+	 * Finds the personal account with an account number
+	 * @param accNumber identifying number of the personal account
+	 * @return the personal account, or null if there is none
+	 */
+	public PersonalAccount Find(long accNumber) {
+		if (accNumber == EMPTY) {
+			return emptyNumberAccount;
+		}
+		
+		Table current = table;
+		for (int slot = Slot(accNumber, current.mask); ; slot = (slot + 1) & current.mask) {
+			long slotNumber = current.accNumbers.get(slot);
+			if (slotNumber == accNumber) {
+				return current.accounts.get(slot);
+			}
+			if (slotNumber == EMPTY) {
+				return null;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the number of personal accounts in the index
+	 * @return an int that represents the number of accounts
+	 */
+	public synchronized int Size() {
+		return size + (emptyNumberAccount == null ? 0 : 1);
+	}
+	
+	/**
+	 * Finds the first personal account in a group with an account number
+	 * @param accNumber identifying number of the personal account
+	 * @param personalAccounts the group to look in
+	 * @return the personal account, or null if there is none
+	 */
+	private static PersonalAccount Find(long accNumber, List<PersonalAccount> personalAccounts) {
+		for (PersonalAccount personalAccount : personalAccounts) {
+			if (personalAccount.GetAccNumber() == accNumber) {
+				return personalAccount;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Stores an account in the first free slot of its probe sequence, unless its number is already there.
+	 * Called holding the index's lock
+	 * @param current table to store the account in
+	 * @param accNumber identifying number of the personal account
+	 * @param personalAccount the personal account
+	 * @return a boolean that represents whether the account was stored
+	 */
+	private static boolean Insert(Table current, long accNumber, PersonalAccount personalAccount) {
+		for (int slot = Slot(accNumber, current.mask); ; slot = (slot + 1) & current.mask) {
+			long slotNumber = current.accNumbers.get(slot);
+			if (slotNumber == accNumber) {
+				return false;
+			}
+			if (slotNumber == EMPTY) {
+				current.accounts.set(slot, personalAccount);
+				current.accNumbers.set(slot, accNumber);
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Copies every account into a table twice the size and makes it the current table.
+	 * Lookups keep using the old table until the new one is full. Called holding the index's lock
+	 * @param current the full table
+	 * @return the new table
+	 */
+	private Table Grow(Table current) {
+		Table grown = new Table((current.mask + 1) * 2);
+		for (int slot = 0; slot <= current.mask; ++slot) {
+			long accNumber = current.accNumbers.get(slot);
+			if (accNumber != EMPTY) {
+				Insert(grown, accNumber, current.accounts.get(slot));
+			}
+		}
+		table = grown;
+		return grown;
+	}
+	
+	/**
+	 * Finds the first slot to probe for an account number, mixing its bits so nearby numbers spread out
+	 * @param accNumber identifying number of the personal account
+	 * @param mask number of slots in the table minus one
+	 * @return an int that represents the slot
+	 */
+	private static int Slot(long accNumber, int mask) {
+		long hash = accNumber * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+}
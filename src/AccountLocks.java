@@ -0,0 +1,95 @@
+/**
+ * Class holds the rules for locking more than one personal account at a time.
+ * Accounts are always locked in the order they were made, which unlike the account number can never change,
+ * so two threads locking the same accounts can never each hold one and wait on the other
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+
+public final class AccountLocks {
+	/**
+	 * AccountLocks only holds static methods and is never made
+	 */
+	private AccountLocks() {
+	}
+	
+	/**
+	 * Locks two personal accounts in lock order, or once if they are the same account
+	 * @param acc first personal account
+	 * @param otherAcc second personal account
+	 * @see AccountLocks#Unlock(PersonalAccount, PersonalAccount)
+	 */
+	public static void Lock(PersonalAccount acc, PersonalAccount otherAcc) {
+		if (acc == otherAcc) {
+			acc.GetLock().lock();
+			return;
+		}
+		
+		boolean accFirst = Compare(acc, otherAcc) < 0;
+		PersonalAccount first = accFirst ? acc : otherAcc;
+		PersonalAccount second = accFirst ? otherAcc : acc;
+		first.GetLock().lock();
+		second.GetLock().lock();
+	}
+	
+	/**
+	 * Unlocks two personal accounts locked by Lock(PersonalAccount, PersonalAccount)
+	 * @param acc first personal account
+	 * @param otherAcc second personal account
+	 */
+	public static void Unlock(PersonalAccount acc, PersonalAccount otherAcc) {
+		acc.GetLock().unlock();
+		if (acc != otherAcc) {
+			otherAcc.GetLock().unlock();
+		}
+	}
+	
+	/**
+	 * Locks every personal account in a group, each one once, in lock order.
+	 * The array is sorted and duplicate accounts are moved out of the counted part
+	 * @param accs personal accounts to lock, may hold the same account more than once
+	 * @param count number of accounts at the start of the array to lock
+	 * @return an int that represents the number of different accounts locked, which are now at the start of the array
+	 * @see AccountLocks#UnlockAll(PersonalAccount[], int)
+	 */
+	public static int LockAll(PersonalAccount[] accs, int count) {
+		Arrays.sort(accs, 0, count, AccountLocks::Compare);
+		
+		int distinct = 0;
+		for (int i = 0; i < count; ++i) {
+			if (distinct > 0 && accs[distinct - 1] == accs[i]) {
+				continue;
+			}
+			accs[distinct++] = accs[i];
+		}
+		
+		for (int i = 0; i < distinct; ++i) {
+			accs[i].GetLock().lock();
+		}
+		return distinct;
+	}
+	
+	/**
+	 * Unlocks the personal accounts locked by LockAll(PersonalAccount[], int)
+	 * @param accs the array passed to LockAll
+	 * @param distinct the number LockAll returned
+	 */
+	public static void UnlockAll(PersonalAccount[] accs, int distinct) {
+		for (int i = distinct - 1; i >= 0; --i) {
+			accs[i].GetLock().unlock();
+		}
+	}
+	
+	/**
+	 * Orders two personal accounts for locking, by the order they were made in
+	 * @param acc first personal account
+	 * @param otherAcc second personal account
+	 * @return an int that is negative if acc is locked first, positive if otherAcc is, or 0 if they are the same account
+	 * @see PersonalAccount#GetLockOrder()
+	 */
+	public static int Compare(PersonalAccount acc, PersonalAccount otherAcc) {
+		return Long.compare(acc.GetLockOrder(), otherAcc.GetLockOrder());
+	}
+}
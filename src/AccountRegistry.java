@@ -0,0 +1,120 @@
+/**
+ * Class represents the record of all the bank accounts made at the bank, keyed by username.
+ * Logins are found with a single hash lookup instead of checking every bank account,
+ * and usernames that were never registered are rejected by a Bloom filter first.
+ * Every personal account of a registered bank account is also indexed by its account number
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class AccountRegistry {
+	/**
+	 * Number of bank accounts the Bloom filter is sized for
+	 */
+	private static final int EXPECTED_ACCOUNTS = 1 << 20;
+	
+	/**
+	 * All the registered bank accounts keyed by their username
+	 */
+	private final ConcurrentHashMap<String, BankAccount> accountsByUsername = new ConcurrentHashMap<>();
+	
+	/**
+	 * Filter of every registered username for rejecting unknown usernames quickly
+	 */
+	private final BloomFilter usernameFilter = new BloomFilter(EXPECTED_ACCOUNTS, 4);
+	
+	/**
+	 * Every personal account of the registered bank accounts keyed by its account number
+	 */
+	private final AccountIndex personalAccounts = new AccountIndex();
+	
+	/**
+	 * Adds a bank account to the registry under its username, and its personal accounts to the account index.
+	 * Personal accounts it makes from then on are added to the index as they are made.
+	 * Safe to call from multiple threads, only one bank account can claim a username.
+	 * A bank account whose personal accounts can not be indexed is not registered, and gives its username back
+	 * @param bankAccount bank account to add
+	 * @return a boolean that represents whether the account was added or the username was already taken
+	 * @throws IllegalArgumentException if one of its personal accounts has the number of a registered personal account
+	 * @see BankAccount#SetAccountIndex(AccountIndex)
+	 */
+	public boolean Register(BankAccount bankAccount) {
+		String username = bankAccount.GetUsername();
+		usernameFilter.Add(username);
+		if (accountsByUsername.putIfAbsent(username, bankAccount) != null) {
+			return false;
+		}
+		try {
+			bankAccount.SetAccountIndex(personalAccounts);
+		}
+		catch (IllegalArgumentException excpt) {
+			accountsByUsername.remove(username, bankAccount);
+			throw excpt;
+		}
+		return true;
+	}
+	
+	/**
+	 * Finds the personal account with an account number, whichever bank account it belongs to
+	 * @param accNumber identifying number of the personal account
+	 * @return the personal account with that number, or null if there is none
+	 * @see AccountIndex#Find(long)
+	 */
+	public PersonalAccount FindPersonalAccount(long accNumber) {
+		return personalAccounts.Find(accNumber);
+	}
+	
+	/**
+	 * Finds the bank account that matches the login information
+	 * @param username user's input for the username
+	 * @param password user's input for the password
+	 * @return a bank account that matches the login information, or null if there is none
+	 * @see BankAccount#VerifyLogin(String, String)
+	 * @see BankMetrics#LOGIN
+	 */
+	public BankAccount FindMatchingBankAcc(String username, String password) {
+		long metricsStart = BankMetrics.Start();
+		BankAccount bankAccount = Find(username);
+		if (bankAccount == null) {
+			BankMetrics.LOGIN.Record(metricsStart, BankMetrics.UNKNOWN_USERNAME);
+			return null;
+		}
+		else if (bankAccount.VerifyLogin(username, password) == false) {
+			BankMetrics.LOGIN.Record(metricsStart, BankMetrics.WRONG_PASSWORD);
+			return null;
+		}
+		BankMetrics.LOGIN.Record(metricsStart, BankMetrics.SUCCEEDED);
+		return bankAccount;
+	}
+	
+	/**
+	 * Finds the bank account registered under a username
+	 * @param username username of the bank account
+	 * @return the bank account with that username, or null if there is none
+	 */
+	public BankAccount Find(String username) {
+		if (usernameFilter.MightContain(username) == false) {
+			return null;
+		}
+		return accountsByUsername.get(username);
+	}
+	
+	/**
+	 * Gets the number of registered bank accounts
+	 * @return an int that represents the number of bank accounts
+	 */
+	public int Size() {
+		return accountsByUsername.size();
+	}
+	
+	/**
+	 * Gets all the registered bank accounts
+	 * @return a live view of the bank accounts in no particular order
+	 */
+	public Collection<BankAccount> GetBankAccounts() {
+		return accountsByUsername.values();
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * Class indexes how a personal account's balance changed by posting date, for finding the balance on any past date.
+ * Each distinct posting day holds a checkpoint: the total change to the balance from every transaction posted on or before it,
+ * kept in parallel primitive arrays sorted by day, so a date is looked up with a binary search.
+ * Transactions usually post on the latest day, which only updates the last checkpoint. A back-dated one is inserted
+ * in place and moves the checkpoints after it, which costs the number of distinct days after it, not the number of transactions.
+ * Not safe for concurrent use, the owning personal account guards it
+ * @author Katie Ho
+ * @version 1.0
+ * @see PersonalAccount#BalanceAsOfCents(int)
+ */
+
+import java.util.Arrays;
+
+public class BalanceIndex {
+	/**
+	 * Capacity of the arrays of a new index
+	 */
+	private static final int INITIAL_CAPACITY = 8;
+	
+	/**
+	 * Every distinct posting day as days since 01/01/1970, in increasing order
+	 */
+	private int[] days = new int[INITIAL_CAPACITY];
+	
+	/**
+	 * Total change to the balance in cents from every transaction posted on or before the day at the same index
+	 */
+	private long[] totals = new long[INITIAL_CAPACITY];
+	
+	/**
+	 * Number of distinct posting days in the index
+	 */
+	private int size;
+	
+	/**
+	 * Adds a change to the balance on a posting day
+	 * @param postingDay the day of the posting date, never PostingDate.PENDING
+	 * @param changeCents the change to the balance in cents
+	 */
+	public void Add(int postingDay, long changeCents) {
+		if (size == 0 || postingDay > days[size - 1]) {
+			if (size == days.length) {
+				days = Arrays.copyOf(days, size * 2);
+				totals = Arrays.copyOf(totals, size * 2);
+			}
+			days[size] = postingDay;
+			totals[size] = size == 0 ? changeCents : totals[size - 1] + changeCents;
+			++size;
+			return;
+		}
+		
+		int index = Arrays.binarySearch(days, 0, size, postingDay);
+		if (index < 0) {
+			index = -index - 1;
+			if (size == days.length) {
+				days = Arrays.copyOf(days, size * 2);
+				totals = Arrays.copyOf(totals, size * 2);
+			}
+			System.arraycopy(days, index, days, index + 1, size - index);
+			System.arraycopy(totals, index, totals, index + 1, size - index);
+			days[index] = postingDay;
+			totals[index] = index == 0 ? 0L : totals[index - 1];
+			++size;
+		}
+		for (int i = index; i < size; ++i) {
+			totals[i] += changeCents;
+		}
+	}
+	
+	/**
+	 * Gets the total change to the balance from every transaction posted on or before a day
+	 * @param postingDay the day as days since 01/01/1970
+	 * @return a long that represents the total change in cents, 0 if nothing was posted by then
+	 */
+	public long GetChangeThrough(int postingDay) {
+		int index = Arrays.binarySearch(days, 0, size, postingDay);
+		if (index < 0) {
+			index = -index - 2;
+		}
+		return index < 0 ? 0L : totals[index];
+	}
+	
+	/**
+	 * Gets the number of distinct posting days in the index
+	 * @return an int that represents the number of days
+	 */
+	public int Size() {
+		return size;
+	}
+}
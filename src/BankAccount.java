@@ -5,10 +5,11 @@
  * @version 1.0
  */
 
-import java.util.Date;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 
 public class BankAccount {
 	/**
@@ -41,6 +42,59 @@ public class BankAccount {
 	 */
 	private ArrayList<PersonalAccount> personalAccounts = new ArrayList<>();
 	
+	/**
+	 * Clock giving the posting date of the transactions made through the bank account
+	 */
+	private TransactionClock transactionClock = TransactionClock.SYSTEM;
+	
+	/**
+	 * Journal the bank account's personal accounts and their transactions are written to, or null for none
+	 */
+	private Journal journal;
+	
+	/**
+	 * Index of the personal accounts of every bank account in the registry, or null if the bank account is not registered
+	 */
+	private AccountIndex accountIndex;
+	
+	/**
+	 * Last rendered list of the personal accounts, reused until an account is added or renamed or a balance changes
+	 */
+	private volatile AccountsSummary accountsSummary;
+	
+	/**
+	 * The rendered list of personal accounts and the balance and label versions of each account it shows
+	 */
+	private static final class AccountsSummary {
+		private final String text;
+		private final Object[] balanceVersions;
+		private final Object[] labelVersions;
+		
+		AccountsSummary(String text, Object[] balanceVersions, Object[] labelVersions) {
+			this.text = text;
+			this.balanceVersions = balanceVersions;
+			this.labelVersions = labelVersions;
+		}
+		
+		/**
+		 * Checks if the summary still shows every personal account with its current name, number, and balance
+		 * @param personalAccounts the personal accounts of the bank account
+		 * @return a boolean that represents whether the summary is current
+		 */
+		boolean IsCurrent(List<PersonalAccount> personalAccounts) {
+			if (personalAccounts.size() != balanceVersions.length) {
+				return false;
+			}
+			for (int i = 0; i < balanceVersions.length; ++i) {
+				PersonalAccount acc = personalAccounts.get(i);
+				if (acc.GetBalanceVersion() != balanceVersions[i] || acc.GetLabelVersion() != labelVersions[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+	
 	/**
 	 * Default constructor initializing all fields to 0 or N/A
 	 */
@@ -74,10 +128,35 @@ public class BankAccount {
 	 * @param accNumber personal account's identifying number
 	 * @param balance personal account's overall balance
 	 * @return a newly made personal account
+	 * @see BankAccount#CreatePersonalAccountCents(String, long, long)
 	 */
 	public PersonalAccount CreatePersonalAccount(String accName, long accNumber, double balance) {
-		PersonalAccount personalAccount = new PersonalAccount(accName, accNumber, balance);
+		return CreatePersonalAccountCents(accName, accNumber, Money.FromDollars(balance));
+	}
+	
+	/**
+	 * Creates a single personal checking account with a balance in cents and adds it to the list of accounts that the user owns.
+	 * If the bank account is registered, the new account is added to the registry's account index.
+	 * If the bank account has a journal, returns once the new account is durable in it
+	 * @param accName personal account's name
+	 * @param accNumber personal account's identifying number
+	 * @param balanceCents personal account's overall balance in cents
+	 * @return a newly made personal account
+	 * @throws IllegalArgumentException if a registered personal account already has the number
+	 * @see AccountIndex#Add(PersonalAccount)
+	 * @see Journal#AppendPersonalAccount(String, String, long, long)
+	 */
+	public PersonalAccount CreatePersonalAccountCents(String accName, long accNumber, long balanceCents) {
+		PersonalAccount personalAccount = new PersonalAccount(accName, accNumber, balanceCents);
+		if (accountIndex != null && accountIndex.Add(personalAccount) == false) {
+			throw new IllegalArgumentException("Account number " + accNumber + " is already in use.");
+		}
+		//added before it is journaled, so a snapshot that starts after the record was appended always holds the account
 		personalAccounts.add(personalAccount);
+		if (journal != null) {
+			personalAccount.SetJournal(journal);
+			journal.AwaitDurable(journal.AppendPersonalAccount(this.username, accName, accNumber, balanceCents));
+		}
 		
 		return personalAccount;
 	}
@@ -89,64 +168,334 @@ public class BankAccount {
 	 * @param accSentTo personal account that the money is being sent to
 	 * @param amountToTransfer amount that user wants to transfer from one account to another
 	 * @return a String that represents the above information regarding the transfer
-	 * @see BankAccount#IsAmountPositive(double)
-	 * @see BankAccount#HasSufficientFunds(PersonalAccount, double)
-	 * @see BankAccount#GetTransferConfirmationNumber()
-	 * @see BankAccount#GetTransactionDate()
-	 * @see BankAccount#PrintTransferMoneyFromStatement(PersonalAccount, String)
-	 * @See BankAccount#PrintTransferMoneyToStatement(PersonalAccount, String)
+	 * @see BankAccount#TransferMoneyCents(PersonalAccount, PersonalAccount, long)
 	 */
 	public String TransferMoney(PersonalAccount accWithdrawnFrom, PersonalAccount accSentTo, double amountToTransfer) {
-		if (IsAmountPositive(amountToTransfer) == false) {
-			return "Amount entered must be positive.";
+		return TransferMoneyCents(accWithdrawnFrom, accSentTo, Money.FromDollars(amountToTransfer));
+	}
+	
+	/**
+	 * Transfers an amount in cents from one personal account to another.
+	 * Withdrawing account decreases and transferring account increases in balance
+	 * @param accWithdrawnFrom personal account that the money is being withdrawn from
+	 * @param accSentTo personal account that the money is being sent to
+	 * @param amountToTransferCents amount in cents that user wants to transfer from one account to another
+	 * @return a String that represents the above information regarding the transfer
+	 * @see BankAccount#MakeTransferCents(PersonalAccount, PersonalAccount, long)
+	 */
+	public String TransferMoneyCents(PersonalAccount accWithdrawnFrom, PersonalAccount accSentTo, long amountToTransferCents) {
+		TransferStatus status = MakeTransferCents(accWithdrawnFrom, accSentTo, amountToTransferCents);
+		if (status != TransferStatus.COMPLETED) {
+			return status.GetMessage();
 		}
-		else if (HasSufficientFunds(accWithdrawnFrom, amountToTransfer) == false) {
-			return "Bank account has insufficient funds.";
+		return TransferMessage(accWithdrawnFrom, accSentTo, amountToTransferCents);
+	}
+	
+	/**
+	 * Describes a completed transfer
+	 * @param accWithdrawnFrom personal account that the money was withdrawn from
+	 * @param accSentTo personal account that the money was sent to
+	 * @param amountTransferredCents amount in cents that was transferred
+	 * @return a String that represents the amount transferred and the accounts it went between
+	 */
+	String TransferMessage(PersonalAccount accWithdrawnFrom, PersonalAccount accSentTo, long amountTransferredCents) {
+		return "$" + Money.ToDollars(amountTransferredCents) + " was sent from " + GetAccNameWithNum(accWithdrawnFrom) + " to " + GetAccNameWithNum(accSentTo);
+	}
+	
+	/**
+	 * Transfers an amount in cents from one personal account to another, giving back only the outcome.
+	 * Both accounts are locked while the money is taken out and put in, so no other transfer sees only one side of it.
+	 * The money is taken out with an atomic check of the funds, so a transfer can never overdraw an account
+	 * @param accWithdrawnFrom personal account that the money is being withdrawn from
+	 * @param accSentTo personal account that the money is being sent to
+	 * @param amountToTransferCents amount in cents that user wants to transfer from one account to another
+	 * @return the outcome of the transfer
+	 * @see BankAccount#IsAmountPositiveCents(long)
+	 * @see BankAccount#HasSufficientFundsCents(PersonalAccount, long)
+	 * @see BankAccount#GetTransferConfirmationNumber()
+	 * @see BankAccount#GetTransactionDay()
+	 * @see PersonalAccount#GetShortenedAccNameWithNum()
+	 * @see TransactionDescription#TRANSFER_TO
+	 * @see TransactionDescription#TRANSFER_FROM
+	 * @see AccountLocks#Lock(PersonalAccount, PersonalAccount)
+	 * @see BankMetrics#TRANSFER
+	 */
+	public TransferStatus MakeTransferCents(PersonalAccount accWithdrawnFrom, PersonalAccount accSentTo, long amountToTransferCents) {
+		long metricsStart = BankMetrics.Start();
+		TransferStatus status = TransferCents(accWithdrawnFrom, accSentTo, amountToTransferCents);
+		BankMetrics.TRANSFER.Record(metricsStart, status.ordinal());
+		return status;
+	}
+	
+	/**
+	 * Transfers an amount in cents for MakeTransferCents(PersonalAccount, PersonalAccount, long), which times it
+	 * @param accWithdrawnFrom personal account that the money is being withdrawn from
+	 * @param accSentTo personal account that the money is being sent to
+	 * @param amountToTransferCents amount in cents that user wants to transfer from one account to another
+	 * @return the outcome of the transfer
+	 */
+	private TransferStatus TransferCents(PersonalAccount accWithdrawnFrom, PersonalAccount accSentTo, long amountToTransferCents) {
+		if (IsAmountPositiveCents(amountToTransferCents) == false) {
+			return TransferStatus.NON_POSITIVE_AMOUNT;
+		}
+		else if (accWithdrawnFrom == accSentTo) {
+			return TransferStatus.SAME_ACCOUNT;
+		}
+		else if (HasSufficientFundsCents(accWithdrawnFrom, amountToTransferCents) == false) {
+			return TransferStatus.INSUFFICIENT_FUNDS;
 		}
 		else {
-			String transferConfirmationNumber = GetTransferConfirmationNumber();
+			long transferConfirmationNumber = GetTransferConfirmationNumber();
+			int transactionDay = GetTransactionDay();
 			
-			accWithdrawnFrom.CreateTransaction(GetTransactionDate(), PrintTransferMoneyFromStatement(accSentTo, transferConfirmationNumber), "Credit", -amountToTransfer);
-			accSentTo.CreateTransaction(GetTransactionDate(), PrintTransferMoneyToStatement(accWithdrawnFrom, transferConfirmationNumber), "Credit", amountToTransfer);
+			long journalPosition;
+			PersonalAccount[] accsInTransfer = {accWithdrawnFrom, accSentTo};
+			AccountLocks.Lock(accWithdrawnFrom, accSentTo);
+			try {
+				//funds are checked again as the money is taken out, a withdrawal may have happened since
+				if (accWithdrawnFrom.PostWithoutRecording(transactionDay, TransactionDescription.TRANSFER_TO, accSentTo.GetShortenedAccNameWithNum(), transferConfirmationNumber, "Credit", -amountToTransferCents, true) == false) {
+					return TransferStatus.INSUFFICIENT_FUNDS;
+				}
+				accSentTo.PostWithoutRecording(transactionDay, TransactionDescription.TRANSFER_FROM, accWithdrawnFrom.GetShortenedAccNameWithNum(), transferConfirmationNumber, "Credit", amountToTransferCents, false);
+				
+				//both sides go into the journal as one record, so a crash can never keep only one of them
+				journalPosition = RecordPostings(accsInTransfer, accsInTransfer.length);
+			}
+			finally {
+				AccountLocks.Unlock(accWithdrawnFrom, accSentTo);
+			}
 			
-			return "$" + (Math.round(amountToTransfer*100.00)/100.00) + " was sent from " + GetAccNameWithNum(accWithdrawnFrom) + " to " + GetAccNameWithNum(accSentTo);
+			//one wait outside the locks makes both sides durable
+			accSentTo.AwaitDurable(journalPosition);
+			return TransferStatus.COMPLETED;
 		}
 	}
 	
+	/**
+	 * Transfers money for a whole batch of transfers at once, like a payroll run.
+	 * The batch is checked first, then every personal account it touches is locked once, in lock order,
+	 * while the transfers are made in the order given. The posting date and a block of confirmation numbers
+	 * are made once for the whole batch.
+	 * With a journal, every transfer in the batch is appended as one record and made durable by a single wait after the accounts are unlocked
+	 * @param batch the transfers to make
+	 * @return an array with the outcome of each transfer, in the same order as the batch
+	 * @see AccountLocks#LockAll(PersonalAccount[], int)
+	 * @see PersonalAccount#PostWithoutRecording(int, byte, String, long, String, long, boolean)
+	 * @see BankAccount#RecordPostings(PersonalAccount[], int)
+	 * @see PersonalAccount#AwaitDurable(long)
+	 * @see BankMetrics#TRANSFER
+	 */
+	public TransferStatus[] TransferMoneyBatch(List<TransferRequest> batch) {
+		long metricsStart = BankMetrics.Start();
+		int batchSize = batch.size();
+		TransferStatus[] results = new TransferStatus[batchSize];
+		
+		int transactionDay = GetTransactionDay();
+		long firstConfirmationSequence = ConfirmationNumberGenerator.SHARED.Reserve(batchSize);
+		Set<PersonalAccount> accsInBatch = Collections.newSetFromMap(new IdentityHashMap<>());
+		
+		for (int i = 0; i < batchSize; ++i) {
+			TransferRequest transfer = batch.get(i);
+			PersonalAccount accWithdrawnFrom = transfer.GetAccWithdrawnFrom();
+			PersonalAccount accSentTo = transfer.GetAccSentTo();
+			
+			if (IsAmountPositiveCents(transfer.GetAmountCents()) == false) {
+				results[i] = TransferStatus.NON_POSITIVE_AMOUNT;
+			}
+			else if (accWithdrawnFrom == accSentTo) {
+				results[i] = TransferStatus.SAME_ACCOUNT;
+			}
+			else {
+				accsInBatch.add(accWithdrawnFrom);
+				accsInBatch.add(accSentTo);
+			}
+		}
+		
+		PersonalAccount[] accsToLock = accsInBatch.toArray(new PersonalAccount[0]);
+		int numLocked = AccountLocks.LockAll(accsToLock, accsToLock.length);
+		long journalPosition = 0;
+		try {
+			for (int i = 0; i < batchSize; ++i) {
+				if (results[i] != null) {
+					continue;
+				}
+				TransferRequest transfer = batch.get(i);
+				PersonalAccount accWithdrawnFrom = transfer.GetAccWithdrawnFrom();
+				PersonalAccount accSentTo = transfer.GetAccSentTo();
+				long transferConfirmationNumber = ConfirmationNumberGenerator.ConfirmationNumberOf(firstConfirmationSequence + i);
+				if (accWithdrawnFrom.PostWithoutRecording(transactionDay, TransactionDescription.TRANSFER_TO, accSentTo.GetShortenedAccNameWithNum(), transferConfirmationNumber, "Credit", -transfer.GetAmountCents(), true) == false) {
+					results[i] = TransferStatus.INSUFFICIENT_FUNDS;
+				}
+				else {
+					accSentTo.PostWithoutRecording(transactionDay, TransactionDescription.TRANSFER_FROM, accWithdrawnFrom.GetShortenedAccNameWithNum(), transferConfirmationNumber, "Credit", transfer.GetAmountCents(), false);
+					results[i] = TransferStatus.COMPLETED;
+				}
+			}
+			
+			//each account's postings are added to its history together, and the whole batch to the journal as one record
+			journalPosition = RecordPostings(accsToLock, numLocked);
+		}
+		finally {
+			AccountLocks.UnlockAll(accsToLock, numLocked);
+		}
+		
+		//one wait syncs the whole batch
+		if (numLocked > 0) {
+			accsToLock[0].AwaitDurable(journalPosition);
+		}
+		
+		//every transfer in the batch is timed from the start of the batch, when its caller started waiting on it
+		for (TransferStatus status : results) {
+			BankMetrics.TRANSFER.Record(metricsStart, status.ordinal());
+		}
+		return results;
+	}
+	
+	/**
+	 * Adds the postings of several locked personal accounts to their histories and, with a journal, appends them all
+	 * as one group record, so the change is durable for every account or for none of them.
+	 * Called holding the lock of every account
+	 * @param accs the locked personal accounts
+	 * @param count number of accounts in accs to record
+	 * @return a long that represents the journal position to wait for, or 0 if there is nothing to wait for
+	 * @see PersonalAccount#RecordPostings(Journal.Group)
+	 * @see Journal#AppendGroup(Journal.Group)
+	 */
+	private long RecordPostings(PersonalAccount[] accs, int count) {
+		Journal journal = this.journal;
+		if (journal == null) {
+			long journalPosition = 0;
+			for (int i = 0; i < count; ++i) {
+				journalPosition = Math.max(journalPosition, accs[i].RecordPostings());
+			}
+			return journalPosition;
+		}
+		
+		Journal.Group group = new Journal.Group();
+		for (int i = 0; i < count; ++i) {
+			accs[i].RecordPostings(group);
+		}
+		if (group.IsEmpty()) {
+			return 0;
+		}
+		
+		long journalPosition = journal.AppendGroup(group);
+		for (int i = 0; i < count; ++i) {
+			accs[i].SetJournalPosition(journalPosition);
+		}
+		return journalPosition;
+	}
+	
 	/**
 	 * Deposits money into a personal checking account -> increase in balance
 	 * @param acc personal account to deposit money into
 	 * @param amountToDeposit the amount of money that the user wants to put into their account
 	 * @return a String that represents the above information regarding the amount deposited to the acc and the new balance
-	 * @see BankAccount#GetTransactionDate()
-	 * @see BankAccount#PrintMoneyDespositStatement(PersonalAccount)
+	 * @see BankAccount#DepositMoneyToCents(PersonalAccount, long)
+	 */
+	public String DepositMoneyTo(PersonalAccount acc, double amountToDeposit) {
+		return DepositMoneyToCents(acc, Money.FromDollars(amountToDeposit));
+	}
+	
+	/**
+	 * Deposits an amount in cents into a personal checking account -> increase in balance.
+	 * The balance is updated with compare-and-set without locking the account
+	 * @param acc personal account to deposit money into
+	 * @param amountToDepositCents the amount of money in cents that the user wants to put into their account
+	 * @return a String that represents the above information regarding the amount deposited to the acc and the new balance
+	 * @see BankAccount#MakeDepositCents(PersonalAccount, long)
 	 * @see Transaction#GetAmount()
 	 * @see BankAccount#GetAccNameWithNum(PersonalAccount)
 	 * @see Transaction#GetBalance()
 	 */
-	public String DepositMoneyTo(PersonalAccount acc, double amountToDeposit) {
+	public String DepositMoneyToCents(PersonalAccount acc, long amountToDepositCents) {
 		Transaction newTransaction;
-		newTransaction = acc.CreateTransaction(GetTransactionDate(), PrintMoneyDepositStatement(acc), "Credit", amountToDeposit);
+		newTransaction = MakeDepositCents(acc, amountToDepositCents);
 		
 		return "You have deposited $" + newTransaction.GetAmount() + " to " + GetAccNameWithNum(acc) + ". Your new balance is $" + newTransaction.GetBalance();
 	}
 	
+	/**
+	 * Deposits an amount in cents into a personal checking account, giving back the transaction made
+	 * @param acc personal account to deposit money into
+	 * @param amountToDepositCents the amount of money in cents that the user wants to put into their account
+	 * @return the new transaction
+	 * @see BankAccount#GetTransactionDay()
+	 * @see TransactionDescription#DEPOSIT
+	 * @see BankMetrics#DEPOSIT
+	 */
+	public Transaction MakeDepositCents(PersonalAccount acc, long amountToDepositCents) {
+		long metricsStart = BankMetrics.Start();
+		Transaction newTransaction = acc.CreateTransactionCents(GetTransactionDay(), TransactionDescription.DEPOSIT, acc.GetShortenedAccNameWithNum(), GetTransferConfirmationNumber(), "Credit", amountToDepositCents);
+		BankMetrics.DEPOSIT.Record(metricsStart, TransferStatus.COMPLETED.ordinal());
+		return newTransaction;
+	}
+	
 	/**
 	 * Withdraws money from a personal checking account -> decrease in balance
 	 * @param acc personal account to withdraw money from
 	 * @param amountToWithdraw the amount of money that the user wants to take out of an account
 	 * @return a String that represents the above information regarding the amount withdrew from the acc and the new balance
-	 * @see BankAccount#GetTransactionDate()
-	 * @see BankAccount#PrintMoneyWithdrawalStatement(PersonalAccount)
+	 * @see BankAccount#WithdrawMoneyFromCents(PersonalAccount, long)
+	 */
+	public String WithdrawMoneyFrom(PersonalAccount acc, double amountToWithdraw) {
+		return WithdrawMoneyFromCents(acc, Money.FromDollars(amountToWithdraw));
+	}
+	
+	/**
+	 * Withdraws an amount in cents from a personal checking account -> decrease in balance.
+	 * The funds are checked and taken out in one atomic step without locking the account
+	 * @param acc personal account to withdraw money from
+	 * @param amountToWithdrawCents the amount of money in cents that the user wants to take out of an account
+	 * @return a String that represents the above information regarding the amount withdrew from the acc and the new balance
+	 * @see BankAccount#IsAmountPositiveCents(long)
+	 * @see BankAccount#MakeWithdrawalCents(PersonalAccount, long)
 	 * @see Transaction#GetAmount()
 	 * @see BankAccount#GetAccNameWithNum(PersonalAccount)
 	 * @see Transaction#GetBalance()
+	 * @see BankMetrics#WITHDRAW
 	 */
-	public String WithdrawMoneyFrom(PersonalAccount acc, double amountToWithdraw) {
+	public String WithdrawMoneyFromCents(PersonalAccount acc, long amountToWithdrawCents) {
+		if (IsAmountPositiveCents(amountToWithdrawCents) == false) {
+			BankMetrics.WITHDRAW.Record(BankMetrics.Start(), TransferStatus.NON_POSITIVE_AMOUNT.ordinal());
+			return "Amount entered must be positive.";
+		}
+		
 		Transaction newTransaction;
-		newTransaction = acc.CreateTransaction(GetTransactionDate(), PrintMoneyWithdrawalStatement(acc), "Credit", -amountToWithdraw);
+		newTransaction = MakeWithdrawalCents(acc, amountToWithdrawCents);
+		if (newTransaction == null) {
+			return "Bank account has insufficient funds.";
+		}
 		
-		return "You have withdrew $" + newTransaction.GetAmount() + " to " + GetAccNameWithNum(acc) + ". Your new balance is $" + newTransaction.GetBalance();
+		return WithdrawalMessage(acc, newTransaction);
+	}
+	
+	/**
+	 * Describes a completed withdrawal
+	 * @param acc personal account the money was withdrawn from
+	 * @param withdrawal the transaction the withdrawal made
+	 * @return a String that represents the amount withdrew from the acc and the new balance
+	 */
+	String WithdrawalMessage(PersonalAccount acc, Transaction withdrawal) {
+		return "You have withdrew $" + withdrawal.GetAmount() + " to " + GetAccNameWithNum(acc) + ". Your new balance is $" + withdrawal.GetBalance();
+	}
+	
+	/**
+	 * Withdraws an amount in cents from a personal checking account, giving back the transaction made.
+	 * The funds are checked and taken out in one atomic step without locking the account
+	 * @param acc personal account to withdraw money from
+	 * @param amountToWithdrawCents the amount of money in cents that the user wants to take out of an account
+	 * @return the new transaction, or null if the account has insufficient funds
+	 * @see PersonalAccount#CreateWithdrawalCents(int, byte, String, long, String, long)
+	 * @see BankAccount#GetTransactionDay()
+	 * @see TransactionDescription#WITHDRAWAL
+	 * @see BankMetrics#WITHDRAW
+	 */
+	public Transaction MakeWithdrawalCents(PersonalAccount acc, long amountToWithdrawCents) {
+		long metricsStart = BankMetrics.Start();
+		Transaction newTransaction = acc.CreateWithdrawalCents(GetTransactionDay(), TransactionDescription.WITHDRAWAL, acc.GetShortenedAccNameWithNum(), GetTransferConfirmationNumber(), "Credit", amountToWithdrawCents);
+		BankMetrics.WITHDRAW.Record(metricsStart, newTransaction == null ? TransferStatus.INSUFFICIENT_FUNDS.ordinal() : TransferStatus.COMPLETED.ordinal());
+		return newTransaction;
 	}
 	
 	/**
@@ -155,12 +504,16 @@ public class BankAccount {
 	 * @return a boolean that represents whether the amount of money is positive or not
 	 */
 	public boolean IsAmountPositive(double amount) {
-		if (amount > 0) {
-			return true;
-		}
-		else {
-			return false;
-		}
+		return IsAmountPositiveCents(Money.FromDollars(amount));
+	}
+	
+	/**
+	 * Checks if an amount of money in cents is positive for withdrawals, deposits, or transfers
+	 * @param amountCents the amount of money in cents
+	 * @return a boolean that represents whether the amount of money is positive or not
+	 */
+	public boolean IsAmountPositiveCents(long amountCents) {
+		return Money.IsPositive(amountCents);
 	}
 	
 	/**
@@ -168,15 +521,21 @@ public class BankAccount {
 	 * @param accWithdrawnFrom personal account that the money is being withdrawn from
 	 * @param amountToTransfer the amount of money that needs to be withdrawn
 	 * @return a boolean that represents if there is enough money in the account to withdraw
-	 * @see PersonalAccount#GetBalance()
+	 * @see BankAccount#HasSufficientFundsCents(PersonalAccount, long)
 	 */
 	public boolean HasSufficientFunds(PersonalAccount accWithdrawnFrom, double amountToTransfer) {
-		if (accWithdrawnFrom.GetBalance() > amountToTransfer) {
-			return true;
-		}
-		else {
-			return false;
-		}
+		return HasSufficientFundsCents(accWithdrawnFrom, Money.FromDollars(amountToTransfer));
+	}
+	
+	/**
+	 * Checks if the balance of the account is greater than the amount of money in cents to withdraw
+	 * @param accWithdrawnFrom personal account that the money is being withdrawn from
+	 * @param amountToTransferCents the amount of money in cents that needs to be withdrawn
+	 * @return a boolean that represents if there is enough money in the account to withdraw
+	 * @see PersonalAccount#GetBalanceCents()
+	 */
+	public boolean HasSufficientFundsCents(PersonalAccount accWithdrawnFrom, long amountToTransferCents) {
+		return accWithdrawnFrom.GetBalanceCents() > amountToTransferCents;
 	}
 	
 	/**
@@ -203,18 +562,23 @@ public class BankAccount {
 	 * Checks if the pin code of the bank account matches the input
 	 * @param pinCode the pin code portion of the bank account
 	 * @return a boolean that represents whether the login pin matches the input
+	 * @see BankMetrics#PIN
 	 */
 	public boolean VerifyPin(int pinCode) {
+		long metricsStart = BankMetrics.Start();
 		if (pinCode == this.pinCode) {
+			BankMetrics.PIN.Record(metricsStart, BankMetrics.SUCCEEDED);
 			return true;
 		}
 		else {
+			BankMetrics.PIN.Record(metricsStart, BankMetrics.WRONG_PIN);
 			return false;
 		}
 	}
 	
 	/**
-	 * Sets the username of the bank account
+	 * Sets the username of the bank account.
+	 * A bank account already added to an AccountRegistry stays registered under its old username
 	 * @param username username of the bank account login
 	 */
 	public void SetUsername(String username) {
@@ -237,6 +601,42 @@ public class BankAccount {
 		this.pinCode = pinCode;
 	}
 	
+	/**
+	 * Sets the clock giving the posting date of transactions made through the bank account,
+	 * like a fixed clock so a test or replay posts on a known day
+	 * @param transactionClock clock for posting dates
+	 */
+	public void SetTransactionClock(TransactionClock transactionClock) {
+		this.transactionClock = transactionClock;
+	}
+	
+	/**
+	 * Sets the journal the bank account's personal accounts, and their later transactions, are written to
+	 * @param journal journal for the bank account, or null for none
+	 */
+	public void SetJournal(Journal journal) {
+		this.journal = journal;
+		for (PersonalAccount personalAccount : personalAccounts) {
+			personalAccount.SetJournal(journal);
+		}
+	}
+	
+	/**
+	 * Sets the index the bank account's personal accounts are added to, and adds the ones it already has.
+	 * Either all of them are added or, if one can not be, none of them are and the index is not set
+	 * @param accountIndex index of the personal accounts of every registered bank account
+	 * @throws IllegalArgumentException if another personal account in the index already has the number of one of them
+	 * @see AccountRegistry#Register(BankAccount)
+	 * @see AccountIndex#AddAll(List)
+	 */
+	public void SetAccountIndex(AccountIndex accountIndex) {
+		PersonalAccount inUse = accountIndex.AddAll(personalAccounts);
+		if (inUse != null) {
+			throw new IllegalArgumentException("Account number " + inUse.GetAccNumber() + " is already in use.");
+		}
+		this.accountIndex = accountIndex;
+	}
+	
 	/**
 	 * Sets the user's first name for the bank account
 	 * @param firstName first name of the user
@@ -277,6 +677,22 @@ public class BankAccount {
 		return this.pinCode;
 	}
 	
+	/**
+	 * Gets the clock giving the posting date of transactions made through the bank account
+	 * @return the bank account's transaction clock
+	 */
+	public TransactionClock GetTransactionClock() {
+		return this.transactionClock;
+	}
+	
+	/**
+	 * Gets the journal the bank account's personal accounts are written to
+	 * @return the bank account's journal, or null if it has none
+	 */
+	public Journal GetJournal() {
+		return this.journal;
+	}
+	
 	/**
 	 * Gets the first name of the user
 	 * @return a String that represents the user's first name
@@ -310,74 +726,35 @@ public class BankAccount {
 	}
 	
 	/**
-	 * Prints out all of the personal checking accounts on the bank account
+	 * Prints out all of the personal checking accounts on the bank account.
+	 * The list is rendered once and reused until a personal account is added, renamed, or renumbered, or one of their balances changes,
+	 * so redrawing the menu does not build it again
 	 * @return a String that contains information of all the personal checking accounts
 	 * @see BankAccount#GetAccNameWithNum(PersonalAccount)
-	 * @see PersonalAccount#DisplayMoney(double)
-	 * @see PersonalAccount#GetBalance()
+	 * @see PersonalAccount#GetBalanceVersion()
+	 * @see PersonalAccount#GetLabelVersion()
+	 * @see Money#AppendTo(StringBuilder, long)
 	 */
 	public String PrintPersonalAccs() {
-		String displayAccs = "Personal Accounts: \n";
-		int numPersonalAccs = 1;
+		AccountsSummary summary = accountsSummary;
+		if (summary != null && summary.IsCurrent(personalAccounts)) {
+			return summary.text;
+		}
 		
-		for (PersonalAccount acc: personalAccounts) {
-			displayAccs += "\t" + numPersonalAccs + ") " + GetAccNameWithNum(acc) + "\n\t\t" + acc.DisplayMoney(acc.GetBalance()) + "\n";
-			numPersonalAccs ++;
+		//each version is read before what it covers, so a change during the render leaves the summary out of date, never wrong
+		Object[] balanceVersions = new Object[personalAccounts.size()];
+		Object[] labelVersions = new Object[balanceVersions.length];
+		StringBuilder displayAccs = new StringBuilder("Personal Accounts: \n");
+		for (int i = 0; i < balanceVersions.length; ++i) {
+			PersonalAccount acc = personalAccounts.get(i);
+			balanceVersions[i] = acc.GetBalanceVersion();
+			labelVersions[i] = acc.GetLabelVersion();
+			displayAccs.append('\t').append(i + 1).append(") ").append(GetAccNameWithNum(acc)).append("\n\t\t");
+			Money.AppendTo(displayAccs, acc.GetBalanceCents()).append('\n');
 		}
-		return displayAccs;
-	}
-	
-	/**
-	 * Prints a transaction description statement for the account that had money withdrawn through a transfer
-	 * @param accSentTo personal account that the money got sent to
-	 * @param transferConfirmationNumber id number confirming the transaction
-	 * @return a String that contains a transaction description statement including what account the money was sent to and the confirmation number
-	 * @see BankAccount#GetAccShortNameWithNum(PersonalAccount)
-	 */
-	private String PrintTransferMoneyFromStatement(PersonalAccount accSentTo, String transferConfirmationNumber) {
-		return "Banking transfer to " + GetAccShortNameWithNum(accSentTo) + " confirmation #" + transferConfirmationNumber;
-	}
-	
-	/**
-	 * Prints a transaction description statement for the account that received money through a transfer
-	 * @param accWithdrawnFrom personal account that the money was sent from
-	 * @param transferConfirmationNumber id number confirming the transaction
-	 * @return a String that contains a transaction description statement including what account the money was sent from and the confirmation number
-	 * @see BankAccount#GetAccShortNameWithNum(PersonalAccount)
-	 */
-	private String PrintTransferMoneyToStatement(PersonalAccount accWithdrawnFrom, String transferConfirmationNumber) {
-		return "Banking banking transfer from "+ GetAccShortNameWithNum(accWithdrawnFrom) + " confirmation #" + transferConfirmationNumber;
-	}
-	
-	/**
-	 * Prints a transaction description statement for an account that received a money deposit
-	 * @param accDeposit personal account that the money was deposited into
-	 * @return a String that contains a transaction description statement including the personal account deposit and the confirmation number
-	 * @see BankAccount#GetAccShortNameWithNum(PersonalAccount)
-	 */
-	private String PrintMoneyDepositStatement(PersonalAccount accDeposit) {
-		return "Banking deposit to " + GetAccShortNameWithNum(accDeposit) + " confirmation #" + GetTransferConfirmationNumber();
-	}
-
-	/**
-	 * Prints a transaction description statement for an account that received a money withdrawal
-	 * @param accWithdrawal personal account that the money was withdrawn from
-	 * @return a String that contains a transaction description statement including the personal account withdrawal and confirmation number
-	 * @see BankAccount#GetAccShortNameWithNum(PersonalAccount)
-	 */
-	private String PrintMoneyWithdrawalStatement(PersonalAccount accWithdrawal) {
-		return "Banking withdrawal from " + GetAccShortNameWithNum(accWithdrawal) + " confirmation #" + GetTransferConfirmationNumber();
-	}
-	
-	/**
-	 * Prints the shortened version of the account name with identifier number
-	 * @param acc personal account 
-	 * @return a String that contains a shortened version of the account name and identifier number
-	 * @see PersonalAccount#GetShortenedAccName()
-	 * @see PersonalAccount#GetShortenedAccNum()
-	 */
-	private String GetAccShortNameWithNum(PersonalAccount acc) {
-		return acc.GetShortenedAccName() + " - " + acc.GetShortenedAccNum();
+		summary = new AccountsSummary(displayAccs.toString(), balanceVersions, labelVersions);
+		accountsSummary = summary;
+		return summary.text;
 	}
 	
 	/**
@@ -392,34 +769,20 @@ public class BankAccount {
 	}
 	
 	/**
-	 * Prints a random identification number to confirm a transfer transaction
-	 * @return a String that represents a transfer confirmation number
+	 * Gets a unique identification number to confirm a transaction, only made into text when its description is displayed
+	 * @return a long that represents a transfer confirmation number
+	 * @see ConfirmationNumberGenerator#Next()
 	 */
-	private String GetTransferConfirmationNumber() {
-		Random rand = new Random();
-		long randomConfirmationNumber = rand.nextLong(9999999999L);
-		
-		String randomConfirmationNumberString = Long.toString(randomConfirmationNumber);
-		
-		if (randomConfirmationNumberString.length() < 10) {
-			int zerosNeeded = 10 - randomConfirmationNumberString.length();
-			for (int i = 0; i < zerosNeeded; ++i) {
-				randomConfirmationNumberString = 0 + randomConfirmationNumberString;
-			}
-		}
-		
-		return randomConfirmationNumberString;
+	private long GetTransferConfirmationNumber() {
+		return ConfirmationNumberGenerator.SHARED.Next();
 	}
 	
 	/**
-	 * Prints the processing date that the transaction was made
-	 * @return a String that represents the date of the transaction
+	 * Gets the processing date that the transaction was made from the bank account's transaction clock
+	 * @return an int that represents the date of the transaction as days since 01/01/1970
+	 * @see TransactionClock#Today()
 	 */
-	private String GetTransactionDate() {
-		Date date = new Date();
-		SimpleDateFormat formatter = new SimpleDateFormat("MM/dd/yyyy");
-		
-		String dateString = formatter.format(date);
-		return dateString;
+	private int GetTransactionDay() {
+		return this.transactionClock.Today();
 	}
 }
@@ -0,0 +1,134 @@
+/**
+ * Class holds the metrics of the banking operations on the hot path: transfers, deposits, withdrawals, logins, and pin checks.
+ * Each operation counts its runs, how each run turned out, and how long it took, see OperationMetrics.
+ * Metrics are off until SetEnabled(true). While off, Start() hands back OFF and recording returns at once,
+ * so an instrumented operation does no more than read one volatile boolean and allocates nothing.
+ * The metrics can be read through JMX once RegisterMBeans() is called, or as text from Dump()
+ * @author Katie Ho
+ * @version 1.0
+ * @see OperationMetrics
+ */
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public final class BankMetrics {
+	/**
+	 * Start time handed out while metrics are off, a run started with it is not recorded
+	 */
+	public static final long OFF = Long.MIN_VALUE;
+	
+	/**
+	 * Outcomes of logins and pin checks, transfers, deposits, and withdrawals use the ordinal of their TransferStatus
+	 */
+	public static final int SUCCEEDED = 0;
+	public static final int UNKNOWN_USERNAME = 1;
+	public static final int WRONG_PASSWORD = 2;
+	public static final int WRONG_PIN = 1;
+	
+	/**
+	 * Metrics of every operation
+	 */
+	public static final OperationMetrics TRANSFER = new OperationMetrics("Transfer", StatusNames());
+	public static final OperationMetrics DEPOSIT = new OperationMetrics("Deposit", StatusNames());
+	public static final OperationMetrics WITHDRAW = new OperationMetrics("Withdraw", StatusNames());
+	public static final OperationMetrics LOGIN = new OperationMetrics("Login", "SUCCEEDED", "UNKNOWN_USERNAME", "WRONG_PASSWORD");
+	public static final OperationMetrics PIN = new OperationMetrics("Pin", "SUCCEEDED", "WRONG_PIN");
+	
+	/**
+	 * Every operation, in the order they are dumped
+	 */
+	private static final OperationMetrics[] OPERATIONS = {TRANSFER, DEPOSIT, WITHDRAW, LOGIN, PIN};
+	
+	/**
+	 * Domain of the MBeans' names
+	 */
+	private static final String MBEAN_DOMAIN = "MyBank";
+	
+	/**
+	 * Whether runs are being recorded
+	 */
+	private static volatile boolean enabled;
+	
+	/**
+	 * BankMetrics only holds static methods and is never made
+	 */
+	private BankMetrics() {
+	}
+	
+	/**
+	 * Turns recording on or off. Runs already started keep being recorded or not as they were when they started
+	 * @param enabled whether to record runs
+	 */
+	public static void SetEnabled(boolean enabled) {
+		BankMetrics.enabled = enabled;
+	}
+	
+	/**
+	 * Checks if runs are being recorded
+	 * @return a boolean that represents whether metrics are on
+	 */
+	public static boolean IsEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Starts timing a run, to be passed to OperationMetrics.Record(long, int) when it ends
+	 * @return a long that represents the current time in nanoseconds, or OFF while metrics are off
+	 * @see OperationMetrics#Record(long, int)
+	 */
+	public static long Start() {
+		return enabled ? System.nanoTime() : OFF;
+	}
+	
+	/**
+	 * Registers every operation with the platform MBean server as MyBank:type=Operation,name=..., so it can be read
+	 * from JConsole or any other JMX client. Operations already registered are left as they are
+	 * @throws IllegalStateException if an operation cannot be registered
+	 */
+	public static void RegisterMBeans() {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		for (OperationMetrics operation : OPERATIONS) {
+			try {
+				ObjectName name = new ObjectName(MBEAN_DOMAIN + ":type=Operation,name=" + operation.GetName());
+				if (mBeanServer.isRegistered(name) == false) {
+					mBeanServer.registerMBean(operation, name);
+				}
+			}
+			catch (JMException excpt) {
+				throw new IllegalStateException("Metrics of " + operation.GetName() + " could not be registered. " + excpt.getMessage(), excpt);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the metrics of every operation as text, one line per operation under a line with the time
+	 * @return a String that represents the metrics
+	 * @see OperationMetrics#AppendTo(StringBuilder)
+	 */
+	public static String Dump() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("Metrics at ").append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append(System.lineSeparator());
+		for (OperationMetrics operation : OPERATIONS) {
+			operation.AppendTo(builder.append("  "));
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Names the outcomes of transfers, deposits, and withdrawals after TransferStatus, so the ordinal of a status is its outcome
+	 * @return a String array with the name of every status
+	 */
+	private static String[] StatusNames() {
+		TransferStatus[] statuses = TransferStatus.values();
+		String[] names = new String[statuses.length];
+		for (int i = 0; i < statuses.length; ++i) {
+			names[i] = statuses[i].name();
+		}
+		return names;
+	}
+}
@@ -0,0 +1,232 @@
+/**
+ * Class holds the binary protocol of the bank server and writes and reads its frames.
+ * A client picks the protocol by sending MAGIC as the very first byte of the connection, then any number of requests
+ * without waiting for the responses. Each response carries the id of the request it answers.
+ *
+ * Every frame is its length as an int, not counting the length itself, then its body.
+ * A request body is an int request id, a byte command, then the command's values:
+ * LOGIN username, password, int pin code; TRANSFER long from account number, long to account number, long amount in cents;
+ * DEPOSIT and WITHDRAW long account number, long amount in cents; HISTORY long account number, int cursor, short page size.
+ * A response body is the int request id, a byte status, then only when the status is OK the command's values:
+ * LOGIN unsigned short number of personal accounts, then each account's long number and long balance in cents,
+ * or RESPONSE_TOO_LARGE without logging in if the bank account has more personal accounts than that can count;
+ * TRANSFER nothing; DEPOSIT and WITHDRAW long balance in cents after the transaction, long confirmation number;
+ * HISTORY int cursor of the next, older page, short number of transactions, then each transaction newest first,
+ * see TransactionStore#PutTo(ByteBuffer, int).
+ * Numbers are big-endian and Strings are an unsigned short length followed by that many bytes of UTF-8
+ * @author Katie Ho
+ * @version 1.0
+ * @see BankServer
+ */
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class BankProtocol {
+	/**
+	 * First byte a client sends to use the binary protocol instead of text commands
+	 */
+	public static final byte MAGIC = (byte) 0xB1;
+	
+	/**
+	 * Commands
+	 */
+	public static final byte LOGIN = 1;
+	public static final byte TRANSFER = 2;
+	public static final byte DEPOSIT = 3;
+	public static final byte WITHDRAW = 4;
+	public static final byte HISTORY = 5;
+	
+	/**
+	 * Response statuses
+	 */
+	public static final byte OK = 0;
+	public static final byte NOT_LOGGED_IN = 1;
+	public static final byte INVALID_LOGIN = 2;
+	public static final byte UNKNOWN_ACCOUNT = 3;
+	public static final byte NON_POSITIVE_AMOUNT = 4;
+	public static final byte SAME_ACCOUNT = 5;
+	public static final byte INSUFFICIENT_FUNDS = 6;
+	public static final byte MALFORMED_REQUEST = 7;
+	public static final byte UNKNOWN_COMMAND = 8;
+	public static final byte RESPONSE_TOO_LARGE = 9;
+	
+	/**
+	 * Most values a response can count in an unsigned short
+	 */
+	public static final int MAX_COUNT = 0xFFFF;
+	
+	/**
+	 * Bytes in front of every frame body: the body's length
+	 */
+	public static final int LENGTH_SIZE = 4;
+	
+	/**
+	 * Bytes at the start of every request and response body: the request id and the command or status
+	 */
+	public static final int BODY_HEADER_SIZE = 5;
+	
+	/**
+	 * Longest String that can be written, in bytes of UTF-8
+	 */
+	public static final int MAX_STRING_SIZE = 0xFFFF;
+	
+	/**
+	 * BankProtocol only holds static methods and is never made
+	 */
+	private BankProtocol() {
+	}
+	
+	/**
+	 * Starts a frame, leaving room for its length to be filled in by EndFrame(ByteBuffer, int)
+	 * @param buffer where to write the frame
+	 * @param requestId id of the request
+	 * @param commandOrStatus the command of a request, or the status of a response
+	 * @return an int that represents the position the frame starts at
+	 */
+	public static int StartFrame(ByteBuffer buffer, int requestId, byte commandOrStatus) {
+		int start = buffer.position();
+		buffer.putInt(0).putInt(requestId).put(commandOrStatus);
+		return start;
+	}
+	
+	/**
+	 * Fills in the length of a frame once its body is written
+	 * @param buffer where the frame is written, positioned just past it
+	 * @param start position the frame starts at
+	 */
+	public static void EndFrame(ByteBuffer buffer, int start) {
+		buffer.putInt(start, buffer.position() - start - LENGTH_SIZE);
+	}
+	
+	/**
+	 * Writes a LOGIN request, which also verifies the pin code
+	 * @param buffer where to write the request
+	 * @param requestId id of the request
+	 * @param username username portion of the bank account login
+	 * @param password password portion of the bank account login
+	 * @param pinCode pin code portion of the bank account login
+	 * @return the buffer
+	 */
+	public static ByteBuffer PutLogin(ByteBuffer buffer, int requestId, String username, String password, int pinCode) {
+		int start = StartFrame(buffer, requestId, LOGIN);
+		PutString(buffer, username);
+		PutString(buffer, password);
+		buffer.putInt(pinCode);
+		EndFrame(buffer, start);
+		return buffer;
+	}
+	
+	/**
+	 * Writes a TRANSFER request
+	 * @param buffer where to write the request
+	 * @param requestId id of the request
+	 * @param fromAccNumber number of the personal account the money is withdrawn from
+	 * @param toAccNumber number of the personal account the money is sent to
+	 * @param amountCents amount in cents to transfer
+	 * @return the buffer
+	 */
+	public static ByteBuffer PutTransfer(ByteBuffer buffer, int requestId, long fromAccNumber, long toAccNumber, long amountCents) {
+		int start = StartFrame(buffer, requestId, TRANSFER);
+		buffer.putLong(fromAccNumber).putLong(toAccNumber).putLong(amountCents);
+		EndFrame(buffer, start);
+		return buffer;
+	}
+	
+	/**
+	 * Writes a DEPOSIT or WITHDRAW request
+	 * @param buffer where to write the request
+	 * @param requestId id of the request
+	 * @param command DEPOSIT or WITHDRAW
+	 * @param accNumber number of the personal account
+	 * @param amountCents amount in cents to deposit or withdraw
+	 * @return the buffer
+	 */
+	public static ByteBuffer PutMoneyRequest(ByteBuffer buffer, int requestId, byte command, long accNumber, long amountCents) {
+		int start = StartFrame(buffer, requestId, command);
+		buffer.putLong(accNumber).putLong(amountCents);
+		EndFrame(buffer, start);
+		return buffer;
+	}
+	
+	/**
+	 * Writes a HISTORY request for one page of past transactions, newest first
+	 * @param buffer where to write the request
+	 * @param requestId id of the request
+	 * @param accNumber number of the personal account
+	 * @param cursor PersonalAccount.NEWEST, or the cursor returned with the previous page
+	 * @param pageSize largest number of transactions to send, fewer are sent if they do not fit in one frame
+	 * @return the buffer
+	 */
+	public static ByteBuffer PutHistory(ByteBuffer buffer, int requestId, long accNumber, int cursor, short pageSize) {
+		int start = StartFrame(buffer, requestId, HISTORY);
+		buffer.putLong(accNumber).putInt(cursor).putShort(pageSize);
+		EndFrame(buffer, start);
+		return buffer;
+	}
+	
+	/**
+	 * Gets the number of bytes PutString(ByteBuffer, String) writes for a String
+	 * @param value the String
+	 * @return an int that represents the number of bytes
+	 * @see TransactionStore#Utf8Length(String)
+	 */
+	public static int SizeOf(String value) {
+		return 2 + TransactionStore.Utf8Length(value);
+	}
+	
+	/**
+	 * Writes a String as its length and its UTF-8 bytes, straight into the buffer without encoding it first
+	 * @param buffer where to write the String
+	 * @param value the String
+	 * @return the buffer
+	 * @throws IllegalArgumentException if the String is longer than MAX_STRING_SIZE bytes
+	 */
+	public static ByteBuffer PutString(ByteBuffer buffer, String value) {
+		int length = TransactionStore.Utf8Length(value);
+		if (length > MAX_STRING_SIZE) {
+			throw new IllegalArgumentException("String of " + length + " bytes is too long to send.");
+		}
+		buffer.putShort((short) length);
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				buffer.put((byte) c);
+			}
+			else if (c < 0x800) {
+				buffer.put((byte) (0xC0 | (c >> 6))).put((byte) (0x80 | (c & 0x3F)));
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				buffer.put((byte) (0xF0 | (codePoint >> 18))).put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+						.put((byte) (0x80 | ((codePoint >> 6) & 0x3F))).put((byte) (0x80 | (codePoint & 0x3F)));
+			}
+			else if (Character.isSurrogate(c)) {
+				//an unpaired surrogate is written as '?', like String.getBytes does
+				buffer.put((byte) '?');
+			}
+			else {
+				buffer.put((byte) (0xE0 | (c >> 12))).put((byte) (0x80 | ((c >> 6) & 0x3F))).put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+		return buffer;
+	}
+	
+	/**
+	 * Reads a String written by PutString(ByteBuffer, String)
+	 * @param buffer the bytes, positioned at the String, left positioned just past it
+	 * @return the String read
+	 * @throws BufferUnderflowException if the buffer ends before the String does
+	 */
+	public static String GetString(ByteBuffer buffer) {
+		int length = buffer.getShort() & 0xFFFF;
+		if (length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		ByteBuffer bytes = buffer.slice().limit(length);
+		String value = StandardCharsets.UTF_8.decode(bytes).toString();
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+}
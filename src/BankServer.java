@@ -0,0 +1,1009 @@
+/**
+ * Class serves the banking app over TCP, so many users can be logged in at once against the same bank accounts.
+ * Each connection is a session that logs in, verifies its pin code, then transfers, withdraws, deposits, and views history,
+ * the same steps as the console app in the driver class.
+ * One selector thread does all the reading and writing without blocking, so thousands of idle sessions cost no threads.
+ * Commands are run on a small pool of worker threads, since making a transaction durable waits on the journal;
+ * a session has at most one command running, and the lines it sends in the meantime wait in its buffer.
+ *
+ * Each command is one line of words separated by spaces:
+ * LOGIN username password, PIN pinCode, ACCOUNTS, TRANSFER fromAcc toAcc amount, WITHDRAW acc amount,
+ * DEPOSIT acc amount, HISTORY acc [cursor], and QUIT. Personal accounts are chosen by their number in the ACCOUNTS list, starting at 1.
+ * Each response starts with a line that is "OK" or "ERROR" followed by a message, then any further lines, and ends with a line holding only ".".
+ * A further line that starts with "." is sent with another "." in front of it.
+ * A session that sends BankProtocol.MAGIC as its first byte uses the binary protocol instead, see BankProtocol.
+ * Its requests are read straight out of the session's buffer, and every whole request waiting there is run by one worker,
+ * with transfers in a row made together as a batch.
+ * Buffers come from a pool, so a session only holds one while it has bytes waiting
+ * @author Katie Ho
+ * @version 1.0
+ * @see AccountRegistry
+ * @see BankProtocol
+ * @see BufferPool
+ */
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BankServer implements AutoCloseable {
+	/**
+	 * Size of the pooled buffers, the longest command line or request accepted.
+	 * A session sending a longer one is closed
+	 */
+	private static final int BUFFER_SIZE = 16 * 1024;
+	
+	/**
+	 * Largest number of free buffers kept in the pool
+	 */
+	private static final int MAX_FREE_BUFFERS = 1024;
+	
+	/**
+	 * Room left in a response buffer before another binary response is written into it, enough for any but a history page,
+	 * which stops early once the buffer is full
+	 */
+	private static final int MIN_RESPONSE_ROOM = 1024;
+	
+	/**
+	 * Protocols a session can use, known from the first byte it sends
+	 */
+	private static final int UNKNOWN_PROTOCOL = 0;
+	private static final int TEXT_PROTOCOL = 1;
+	private static final int BINARY_PROTOCOL = 2;
+	
+	/**
+	 * Number of past transactions sent in one HISTORY page
+	 */
+	private static final int HISTORY_PAGE_SIZE = 20;
+	
+	/**
+	 * Seconds close() waits for running commands to finish
+	 */
+	private static final long CLOSE_TIMEOUT_SECONDS = 30;
+	
+	/**
+	 * Record of all the bank accounts the sessions log into
+	 */
+	private final AccountRegistry bankAccounts;
+	
+	/**
+	 * Socket accepting new sessions
+	 */
+	private final ServerSocketChannel serverChannel;
+	
+	/**
+	 * Selector watching the server socket and every session
+	 */
+	private final Selector selector;
+	
+	/**
+	 * Threads running the commands
+	 */
+	private final ExecutorService workers;
+	
+	/**
+	 * Buffers the sessions read into and binary responses are written into
+	 */
+	private final BufferPool buffers = new BufferPool(BUFFER_SIZE, MAX_FREE_BUFFERS);
+	
+	/**
+	 * Sessions whose command has finished, handed from the workers to the selector thread
+	 */
+	private final ConcurrentLinkedQueue<Session> finishedCommands = new ConcurrentLinkedQueue<>();
+	
+	/**
+	 * Number of sessions connected
+	 */
+	private final AtomicInteger numSessions = new AtomicInteger();
+	
+	/**
+	 * Whether the selector thread should keep serving
+	 */
+	private volatile boolean running = true;
+	
+	/**
+	 * One connection and its place in the login steps.
+	 * The output queue and busy flag belong to the selector thread. The input buffer does too, except while a command runs,
+	 * when it and the rest belong to the worker running the command
+	 */
+	private static final class Session {
+		private final SocketChannel channel;
+		private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+		private final ArrayDeque<ByteBuffer> responses = new ArrayDeque<>();
+		private ByteBuffer input;
+		private int protocol = UNKNOWN_PROTOCOL;
+		private boolean busy;
+		private boolean closing;
+		private BankAccount bankAccount;
+		private boolean pinVerified;
+		
+		Session(SocketChannel channel) {
+			this.channel = channel;
+		}
+	}
+	
+	/**
+	 * Creates a server listening on an address, it serves nothing until Run() is called
+	 * @param bankAccounts record of all the bank accounts the sessions log into
+	 * @param serverChannel socket bound to the address
+	 * @param selector selector the socket is registered with
+	 * @param numWorkers number of threads running the commands
+	 */
+	private BankServer(AccountRegistry bankAccounts, ServerSocketChannel serverChannel, Selector selector, int numWorkers) {
+		this.bankAccounts = bankAccounts;
+		this.serverChannel = serverChannel;
+		this.selector = selector;
+		AtomicInteger numThreads = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(numWorkers, runnable -> {
+			Thread thread = new Thread(runnable, "bank-server-worker-" + numThreads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Opens a server listening on an address, like a port on the loopback address
+	 * @param address address to listen on, port 0 picks a free port
+	 * @param bankAccounts record of all the bank accounts the sessions log into
+	 * @param numWorkers number of threads running the commands
+	 * @return a BankServer ready to Run()
+	 * @throws IOException if the address cannot be listened on
+	 * @throws IllegalArgumentException if the number of workers is not positive
+	 */
+	public static BankServer Open(InetSocketAddress address, AccountRegistry bankAccounts, int numWorkers) throws IOException {
+		if (numWorkers <= 0) {
+			throw new IllegalArgumentException("Number of workers must be positive.");
+		}
+		
+		Selector selector = Selector.open();
+		ServerSocketChannel serverChannel = ServerSocketChannel.open();
+		try {
+			serverChannel.bind(address);
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		}
+		catch (IOException excpt) {
+			serverChannel.close();
+			selector.close();
+			throw excpt;
+		}
+		return new BankServer(bankAccounts, serverChannel, selector, numWorkers);
+	}
+	
+	/**
+	 * Gets the port the server is listening on
+	 * @return an int that represents the port
+	 * @throws IOException if the port cannot be read
+	 */
+	public int GetPort() throws IOException {
+		return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+	}
+	
+	/**
+	 * Gets the number of sessions connected
+	 * @return an int that represents the number of sessions
+	 */
+	public int GetNumSessions() {
+		return numSessions.get();
+	}
+	
+	/**
+	 * Serves sessions on the calling thread until the server is closed
+	 * @throws IOException if the selector fails
+	 */
+	public void Run() throws IOException {
+		try {
+			while (running) {
+				selector.select();
+				
+				Session finished;
+				while ((finished = finishedCommands.poll()) != null) {
+					FinishCommand(finished);
+				}
+				
+				for (SelectionKey key : selector.selectedKeys()) {
+					if (key.isValid() && key.isAcceptable()) {
+						Accept();
+					}
+					else if (key.isValid()) {
+						Session session = (Session) key.attachment();
+						if (key.isWritable()) {
+							Write(key, session);
+						}
+						if (key.isValid() && key.isReadable()) {
+							Read(key, session);
+						}
+					}
+				}
+				selector.selectedKeys().clear();
+			}
+		}
+		catch (ClosedSelectorException excpt) {
+			//closed while serving
+		}
+		finally {
+			running = false;
+			for (SelectionKey key : selector.keys()) {
+				key.channel().close();
+			}
+			selector.close();
+		}
+	}
+	
+	/**
+	 * Stops serving, closes every session, and waits for the commands already running to finish,
+	 * so every transaction they made is in the journal before the bank is closed
+	 */
+	@Override
+	public void close() {
+		running = false;
+		selector.wakeup();
+		workers.shutdown();
+		try {
+			workers.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException excpt) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Accepts a new session and starts reading its commands
+	 * @throws IOException if the session cannot be registered
+	 */
+	private void Accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_READ, new Session(channel));
+		numSessions.incrementAndGet();
+	}
+	
+	/**
+	 * Reads what a session has sent and starts its next command
+	 * @param key the session's key
+	 * @param session the session
+	 */
+	private void Read(SelectionKey key, Session session) {
+		if (session.busy) {
+			//the worker running the command owns the input buffer, the rest is read once it finishes
+			return;
+		}
+		if (session.input == null) {
+			session.input = buffers.Take();
+		}
+		
+		int numRead;
+		try {
+			numRead = session.channel.read(session.input);
+		}
+		catch (IOException excpt) {
+			numRead = -1;
+		}
+		if (numRead < 0) {
+			Close(key);
+			return;
+		}
+		StartNextCommand(key, session);
+	}
+	
+	/**
+	 * Hands a session's next command to a worker, unless a command is already running.
+	 * No more is read from the session while its command runs, and its buffer goes back to the pool once it is empty
+	 * @param key the session's key
+	 * @param session the session
+	 */
+	private void StartNextCommand(SelectionKey key, Session session) {
+		ByteBuffer input = session.input;
+		if (session.busy || session.closing || input == null) {
+			return;
+		}
+		
+		if (session.protocol == UNKNOWN_PROTOCOL && input.position() > 0) {
+			if (input.get(0) == BankProtocol.MAGIC) {
+				session.protocol = BINARY_PROTOCOL;
+				input.flip().position(1);
+				input.compact();
+			}
+			else {
+				session.protocol = TEXT_PROTOCOL;
+			}
+		}
+		if (session.protocol == BINARY_PROTOCOL) {
+			StartRequests(key, session);
+		}
+		else {
+			StartLine(key, session);
+		}
+		
+		if (session.busy == false && session.input == input && input.position() == 0) {
+			buffers.Give(input);
+			session.input = null;
+		}
+	}
+	
+	/**
+	 * Hands the next whole line a text session has sent to a worker
+	 * @param key the session's key
+	 * @param session the session
+	 */
+	private void StartLine(SelectionKey key, Session session) {
+		ByteBuffer input = session.input;
+		int end = -1;
+		for (int i = 0; i < input.position(); ++i) {
+			if (input.get(i) == '\n') {
+				end = i;
+				break;
+			}
+		}
+		if (end < 0) {
+			if (input.hasRemaining() == false) {
+				session.closing = true;
+				Respond(key, session, Frame("ERROR Command is too long.", ""));
+			}
+			return;
+		}
+		
+		int lineEnd = end > 0 && input.get(end - 1) == '\r' ? end - 1 : end;
+		input.flip();
+		String line = StandardCharsets.UTF_8.decode(input.slice().limit(lineEnd)).toString();
+		input.position(end + 1);
+		input.compact();
+		
+		StartWorker(key, session, () -> {
+			String response;
+			try {
+				response = RunCommand(session, line);
+			}
+			catch (RuntimeException excpt) {
+				response = Frame("ERROR " + excpt.getMessage(), "");
+			}
+			session.responses.add(StandardCharsets.UTF_8.encode(response));
+		});
+	}
+	
+	/**
+	 * Hands every whole request a binary session has sent to a worker, once there is at least one.
+	 * A session sending a request that could never fit in its buffer is closed
+	 * @param key the session's key
+	 * @param session the session
+	 */
+	private void StartRequests(SelectionKey key, Session session) {
+		ByteBuffer input = session.input;
+		if (input.position() < BankProtocol.LENGTH_SIZE) {
+			return;
+		}
+		int length = input.getInt(0);
+		if (length < BankProtocol.BODY_HEADER_SIZE || length > input.capacity() - BankProtocol.LENGTH_SIZE) {
+			Close(key);
+			return;
+		}
+		if (input.position() - BankProtocol.LENGTH_SIZE < length) {
+			return;
+		}
+		
+		StartWorker(key, session, () -> RunRequests(session));
+	}
+	
+	/**
+	 * Runs a command on a worker, then hands the session back to the selector thread
+	 * @param key the session's key
+	 * @param session the session
+	 * @param command runs the command and adds its responses to the session, the session is closed if it fails
+	 */
+	private void StartWorker(SelectionKey key, Session session, Runnable command) {
+		session.busy = true;
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+		workers.execute(() -> {
+			try {
+				command.run();
+			}
+			catch (RuntimeException excpt) {
+				session.closing = true;
+			}
+			finally {
+				finishedCommands.add(session);
+				selector.wakeup();
+			}
+		});
+	}
+	
+	/**
+	 * Sends the response of a session's finished command and starts its next one.
+	 * If the session was closed while the command ran, gives back the buffers the command held instead.
+	 * Called on the selector thread
+	 * @param session the session
+	 */
+	private void FinishCommand(Session session) {
+		SelectionKey key = session.channel.keyFor(selector);
+		if (key == null || key.isValid() == false) {
+			//Close(SelectionKey) left these to the command, which is done with them now
+			if (session.input != null) {
+				buffers.Give(session.input);
+				session.input = null;
+			}
+			for (ByteBuffer buffer : session.responses) {
+				buffers.Give(buffer);
+			}
+			session.responses.clear();
+			return;
+		}
+		session.busy = false;
+		session.output.addAll(session.responses);
+		session.responses.clear();
+		Write(key, session);
+	}
+	
+	/**
+	 * Queues a response for a session and writes as much of it as the socket takes right away
+	 * @param key the session's key
+	 * @param session the session
+	 * @param response the response
+	 */
+	private void Respond(SelectionKey key, Session session, String response) {
+		session.output.add(StandardCharsets.UTF_8.encode(response));
+		Write(key, session);
+	}
+	
+	/**
+	 * Writes a session's queued responses until the socket is full, then waits for it to drain.
+	 * The next command is only started once everything is written, so a session that does not read its responses stops being read.
+	 * A session that is closing is closed once everything is written
+	 * @param key the session's key
+	 * @param session the session
+	 */
+	private void Write(SelectionKey key, Session session) {
+		try {
+			while (session.output.isEmpty() == false) {
+				ByteBuffer next = session.output.peek();
+				session.channel.write(next);
+				if (next.hasRemaining()) {
+					key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+					return;
+				}
+				buffers.Give(session.output.poll());
+			}
+		}
+		catch (IOException excpt) {
+			Close(key);
+			return;
+		}
+		
+		if (session.busy) {
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+		}
+		else if (session.closing) {
+			Close(key);
+		}
+		else {
+			key.interestOps((key.interestOps() & ~SelectionKey.OP_WRITE) | SelectionKey.OP_READ);
+			StartNextCommand(key, session);
+		}
+	}
+	
+	/**
+	 * Closes a session. The buffers of a command still running are given back by FinishCommand(Session) once it finishes
+	 * @param key the session's key
+	 */
+	private void Close(SelectionKey key) {
+		Session session = (Session) key.attachment();
+		if (session.busy == false && session.input != null) {
+			buffers.Give(session.input);
+			session.input = null;
+		}
+		for (ByteBuffer buffer : session.output) {
+			buffers.Give(buffer);
+		}
+		session.output.clear();
+		key.cancel();
+		try {
+			key.channel().close();
+		}
+		catch (IOException excpt) {
+			//the session is gone either way
+		}
+		numSessions.decrementAndGet();
+	}
+	
+	/**
+	 * Runs every whole binary request in a session's buffer, in order, writing the responses into pooled buffers.
+	 * Each request is read straight out of the buffer. Transfers in a row are made together as a batch,
+	 * so they share one wait for the journal. Called on a worker thread
+	 * @param session the session the requests came from
+	 * @see BankServer#RunRequest(Session, int, byte, ByteBuffer, ByteBuffer, PendingTransfers)
+	 */
+	private void RunRequests(Session session) {
+		ByteBuffer input = session.input;
+		int end = input.position();
+		int offset = 0;
+		ByteBuffer output = buffers.Take();
+		PendingTransfers transfers = new PendingTransfers();
+		
+		while (end - offset >= BankProtocol.LENGTH_SIZE) {
+			int length = input.getInt(offset);
+			if (length < BankProtocol.BODY_HEADER_SIZE || length > input.capacity() - BankProtocol.LENGTH_SIZE) {
+				session.closing = true;
+				break;
+			}
+			if (end - offset - BankProtocol.LENGTH_SIZE < length) {
+				break;
+			}
+			if (output.remaining() < MIN_RESPONSE_ROOM) {
+				session.responses.add(output.flip());
+				output = buffers.Take();
+			}
+			
+			int frameEnd = offset + BankProtocol.LENGTH_SIZE + length;
+			input.limit(frameEnd).position(offset + BankProtocol.LENGTH_SIZE);
+			int requestId = input.getInt();
+			byte command = input.get();
+			try {
+				output = RunRequest(session, requestId, command, input, output, transfers);
+			}
+			catch (BufferUnderflowException | IllegalArgumentException excpt) {
+				output = PutStatus(FlushTransfers(session, transfers, output), requestId, BankProtocol.MALFORMED_REQUEST);
+			}
+			input.limit(input.capacity());
+			offset = frameEnd;
+		}
+		output = FlushTransfers(session, transfers, output);
+		
+		input.limit(end).position(offset);
+		input.compact();
+		if (output.position() > 0) {
+			session.responses.add(output.flip());
+		}
+		else {
+			buffers.Give(output);
+		}
+	}
+	
+	/**
+	 * Runs one binary request, read out of the session's buffer, and writes its response.
+	 * A transfer is only added to the pending batch, its response is written when the batch is made
+	 * @param session the session the request came from
+	 * @param requestId id of the request
+	 * @param command the request's command
+	 * @param request the session's buffer, positioned at the command's values and limited to the end of the request
+	 * @param output where to write the response
+	 * @param transfers transfers waiting to be made as a batch
+	 * @return the buffer holding the end of the responses
+	 * @throws BufferUnderflowException if the request ends before its values do
+	 * @throws IllegalArgumentException if a value is invalid
+	 * @see BankProtocol
+	 */
+	private ByteBuffer RunRequest(Session session, int requestId, byte command, ByteBuffer request, ByteBuffer output, PendingTransfers transfers) {
+		if (command == BankProtocol.TRANSFER && session.pinVerified) {
+			PersonalAccount accWithdrawnFrom = FindPersonalAccount(session, request.getLong());
+			PersonalAccount accSentTo = FindPersonalAccount(session, request.getLong());
+			long amountToTransferCents = request.getLong();
+			if (accWithdrawnFrom == null || accSentTo == null) {
+				return PutStatus(FlushTransfers(session, transfers, output), requestId, BankProtocol.UNKNOWN_ACCOUNT);
+			}
+			transfers.Add(requestId, new TransferRequest(accWithdrawnFrom, accSentTo, amountToTransferCents));
+			return output;
+		}
+		
+		output = FlushTransfers(session, transfers, output);
+		if (command == BankProtocol.LOGIN) {
+			String username = BankProtocol.GetString(request);
+			String password = BankProtocol.GetString(request);
+			int pinCode = request.getInt();
+			BankAccount userBankAccount = bankAccounts.FindMatchingBankAcc(username, password);
+			if (userBankAccount == null || userBankAccount.VerifyPin(pinCode) == false) {
+				session.bankAccount = null;
+				session.pinVerified = false;
+				return PutStatus(output, requestId, BankProtocol.INVALID_LOGIN);
+			}
+			List<PersonalAccount> accs = userBankAccount.GetPersonalAccounts();
+			int numAccs = accs.size();
+			if (numAccs > BankProtocol.MAX_COUNT) {
+				session.bankAccount = null;
+				session.pinVerified = false;
+				return PutStatus(output, requestId, BankProtocol.RESPONSE_TOO_LARGE);
+			}
+			session.bankAccount = userBankAccount;
+			session.pinVerified = true;
+			
+			//every account is sent, in a buffer of its own if the list does not fit in what is left
+			output = MakeRoom(session, output, BankProtocol.LENGTH_SIZE + BankProtocol.BODY_HEADER_SIZE + 2 + numAccs * 16);
+			int start = BankProtocol.StartFrame(output, requestId, BankProtocol.OK);
+			output.putShort((short) numAccs);
+			for (int i = 0; i < numAccs; ++i) {
+				output.putLong(accs.get(i).GetAccNumber()).putLong(accs.get(i).GetBalanceCents());
+			}
+			BankProtocol.EndFrame(output, start);
+			return output;
+		}
+		else if (session.pinVerified == false) {
+			return PutStatus(output, requestId, BankProtocol.NOT_LOGGED_IN);
+		}
+		else if (command == BankProtocol.DEPOSIT || command == BankProtocol.WITHDRAW) {
+			PersonalAccount acc = FindPersonalAccount(session, request.getLong());
+			long amountCents = request.getLong();
+			if (acc == null) {
+				return PutStatus(output, requestId, BankProtocol.UNKNOWN_ACCOUNT);
+			}
+			if (session.bankAccount.IsAmountPositiveCents(amountCents) == false) {
+				return PutStatus(output, requestId, BankProtocol.NON_POSITIVE_AMOUNT);
+			}
+			Transaction newTransaction = command == BankProtocol.DEPOSIT ? session.bankAccount.MakeDepositCents(acc, amountCents) : session.bankAccount.MakeWithdrawalCents(acc, amountCents);
+			if (newTransaction == null) {
+				return PutStatus(output, requestId, BankProtocol.INSUFFICIENT_FUNDS);
+			}
+			int start = BankProtocol.StartFrame(output, requestId, BankProtocol.OK);
+			output.putLong(newTransaction.GetBalanceCents()).putLong(newTransaction.GetConfirmationNumber());
+			BankProtocol.EndFrame(output, start);
+			return output;
+		}
+		else if (command == BankProtocol.HISTORY) {
+			PersonalAccount viewingAcc = FindPersonalAccount(session, request.getLong());
+			int cursor = request.getInt();
+			short pageSize = request.getShort();
+			if (viewingAcc == null) {
+				return PutStatus(output, requestId, BankProtocol.UNKNOWN_ACCOUNT);
+			}
+			int start = BankProtocol.StartFrame(output, requestId, BankProtocol.OK);
+			viewingAcc.PutHistory(output, cursor, pageSize);
+			BankProtocol.EndFrame(output, start);
+			return output;
+		}
+		else {
+			return PutStatus(output, requestId, BankProtocol.UNKNOWN_COMMAND);
+		}
+	}
+	
+	/**
+	 * Transfers read from a session's buffer, waiting to be made together as a batch
+	 */
+	private static final class PendingTransfers {
+		private final ArrayList<TransferRequest> batch = new ArrayList<>();
+		private int[] requestIds = new int[16];
+		
+		void Add(int requestId, TransferRequest transfer) {
+			if (batch.size() == requestIds.length) {
+				requestIds = Arrays.copyOf(requestIds, requestIds.length * 2);
+			}
+			requestIds[batch.size()] = requestId;
+			batch.add(transfer);
+		}
+	}
+	
+	/**
+	 * Makes the pending transfers as one batch and writes their responses, in the order the requests came
+	 * @param session the session the transfers came from
+	 * @param transfers transfers waiting to be made, left empty
+	 * @param output where to write the responses
+	 * @return the buffer holding the end of the responses, a new one from the pool if the first filled up
+	 * @see BankAccount#TransferMoneyBatch(List)
+	 */
+	private ByteBuffer FlushTransfers(Session session, PendingTransfers transfers, ByteBuffer output) {
+		if (transfers.batch.isEmpty()) {
+			return output;
+		}
+		
+		TransferStatus[] results = session.bankAccount.TransferMoneyBatch(transfers.batch);
+		for (int i = 0; i < results.length; ++i) {
+			if (output.remaining() < BankProtocol.LENGTH_SIZE + BankProtocol.BODY_HEADER_SIZE) {
+				session.responses.add(output.flip());
+				output = buffers.Take();
+			}
+			PutStatus(output, transfers.requestIds[i], StatusOf(results[i]));
+		}
+		transfers.batch.clear();
+		return output;
+	}
+	
+	/**
+	 * Makes sure a response fits in the output, queueing the output and starting a new buffer if it does not.
+	 * A response larger than the pool's buffers gets a buffer of its own, which the pool drops once it is written
+	 * @param session the session the response is for
+	 * @param output where the responses so far are written
+	 * @param responseSize number of bytes the response needs
+	 * @return the buffer to write the response into
+	 * @see BufferPool#Give(ByteBuffer)
+	 */
+	private ByteBuffer MakeRoom(Session session, ByteBuffer output, int responseSize) {
+		if (output.remaining() >= responseSize) {
+			return output;
+		}
+		if (output.position() > 0) {
+			session.responses.add(output.flip());
+		}
+		else {
+			buffers.Give(output);
+		}
+		return responseSize <= buffers.GetBufferSize() ? buffers.Take() : ByteBuffer.allocateDirect(responseSize);
+	}
+	
+	/**
+	 * Writes a response that is only a status
+	 * @param output where to write the response
+	 * @param requestId id of the request
+	 * @param status the status
+	 * @return the buffer
+	 */
+	private static ByteBuffer PutStatus(ByteBuffer output, int requestId, byte status) {
+		BankProtocol.EndFrame(output, BankProtocol.StartFrame(output, requestId, status));
+		return output;
+	}
+	
+	/**
+	 * Gets the binary protocol's status for the outcome of a transfer
+	 * @param transferStatus outcome of the transfer
+	 * @return a byte that represents the status
+	 */
+	private static byte StatusOf(TransferStatus transferStatus) {
+		switch (transferStatus) {
+			case COMPLETED:
+				return BankProtocol.OK;
+			case NON_POSITIVE_AMOUNT:
+				return BankProtocol.NON_POSITIVE_AMOUNT;
+			case SAME_ACCOUNT:
+				return BankProtocol.SAME_ACCOUNT;
+			default:
+				return BankProtocol.INSUFFICIENT_FUNDS;
+		}
+	}
+	
+	/**
+	 * Finds one of the personal accounts of the bank account a session logged into by its account number
+	 * @param session the session
+	 * @param accNumber identifying number of the personal account
+	 * @return the personal account, or null if the bank account has none with the number
+	 * @see AccountRegistry#FindPersonalAccount(long)
+	 */
+	private PersonalAccount FindPersonalAccount(Session session, long accNumber) {
+		PersonalAccount acc = bankAccounts.FindPersonalAccount(accNumber);
+		if (acc == null || session.bankAccount.GetPersonalAccounts().contains(acc) == false) {
+			return null;
+		}
+		return acc;
+	}
+	
+	/**
+	 * Runs one command for a session. Called on a worker thread
+	 * @param session the session the command came from
+	 * @param line the command line
+	 * @return a String that represents the whole response
+	 * @see BankServer#Login(Session, String[])
+	 * @see BankServer#VerifyPin(Session, String[])
+	 */
+	private String RunCommand(Session session, String line) {
+		String[] words = line.trim().split("\\s+");
+		String command = words[0].toUpperCase(Locale.ROOT);
+		
+		if (command.equals("QUIT")) {
+			session.closing = true;
+			return Frame("OK Thank you for using Bank Of PollyWolly!", "");
+		}
+		else if (command.equals("LOGIN")) {
+			return Login(session, words);
+		}
+		else if (command.equals("PIN")) {
+			return VerifyPin(session, words);
+		}
+		else if (session.pinVerified == false) {
+			return Frame("ERROR Log in and verify your pin code first.", "");
+		}
+		
+		BankAccount userBankAccount = session.bankAccount;
+		if (command.equals("ACCOUNTS")) {
+			return Frame("OK " + userBankAccount.PrintAccOwner(), userBankAccount.PrintPersonalAccs());
+		}
+		else if (command.equals("TRANSFER")) {
+			CheckNumWords(words, 4);
+			PersonalAccount accWithdrawnFrom = ChoosePersonalAccount(userBankAccount, words[1], "withdrawing");
+			PersonalAccount accTransferTo = ChoosePersonalAccount(userBankAccount, words[2], "transferring");
+			if (accWithdrawnFrom == accTransferTo) {
+				return Frame("ERROR Can not choose the same account", "");
+			}
+			long amountToTransferCents = ParseAmount(userBankAccount, words[3]);
+			//the funds are only known to be there once the money is taken out, a check made before could be out of date
+			TransferStatus status = userBankAccount.MakeTransferCents(accWithdrawnFrom, accTransferTo, amountToTransferCents);
+			if (status == TransferStatus.INSUFFICIENT_FUNDS) {
+				return Frame("ERROR Insufficient funds.", "");
+			}
+			else if (status != TransferStatus.COMPLETED) {
+				return Frame("ERROR " + status.GetMessage(), "");
+			}
+			return Frame("OK " + userBankAccount.TransferMessage(accWithdrawnFrom, accTransferTo, amountToTransferCents), "");
+		}
+		else if (command.equals("WITHDRAW")) {
+			CheckNumWords(words, 3);
+			PersonalAccount accWithdrawing = ChoosePersonalAccount(userBankAccount, words[1], "withdrawing");
+			long amountToWithdrawCents = ParseAmount(userBankAccount, words[2]);
+			Transaction withdrawal = userBankAccount.MakeWithdrawalCents(accWithdrawing, amountToWithdrawCents);
+			if (withdrawal == null) {
+				return Frame("ERROR Insufficient funds.", "");
+			}
+			return Frame("OK " + userBankAccount.WithdrawalMessage(accWithdrawing, withdrawal), "");
+		}
+		else if (command.equals("DEPOSIT")) {
+			CheckNumWords(words, 3);
+			PersonalAccount accDepositing = ChoosePersonalAccount(userBankAccount, words[1], "depositing");
+			long amountToDepositCents = ParseAmount(userBankAccount, words[2]);
+			return Frame("OK " + userBankAccount.DepositMoneyToCents(accDepositing, amountToDepositCents), "");
+		}
+		else if (command.equals("HISTORY")) {
+			return ViewHistory(userBankAccount, words);
+		}
+		else {
+			return Frame("ERROR Invalid option.", "");
+		}
+	}
+	
+	/**
+	 * Logs a session into the bank account matching a username and password, the pin code is verified next
+	 * @param session the session
+	 * @param words the command's words: LOGIN, username, password
+	 * @return a String that represents the response
+	 * @see AccountRegistry#FindMatchingBankAcc(String, String)
+	 */
+	private String Login(Session session, String[] words) {
+		CheckNumWords(words, 3);
+		BankAccount userBankAccount = bankAccounts.FindMatchingBankAcc(words[1], words[2]);
+		if (userBankAccount == null) {
+			return Frame("ERROR Invalid username/password. Try again.", "");
+		}
+		session.bankAccount = userBankAccount;
+		session.pinVerified = false;
+		return Frame("OK For two factor authentication, please enter your pin code.", "");
+	}
+	
+	/**
+	 * Verifies the pin code of the bank account a session logged into
+	 * @param session the session
+	 * @param words the command's words: PIN, pin code
+	 * @return a String that represents the response, with the personal accounts once the pin code matches
+	 * @see BankAccount#VerifyPin(int)
+	 */
+	private String VerifyPin(Session session, String[] words) {
+		CheckNumWords(words, 2);
+		if (session.bankAccount == null) {
+			return Frame("ERROR Log in first.", "");
+		}
+		if (session.bankAccount.VerifyPin(ParseNumber(words[1], "pin code")) == false) {
+			return Frame("ERROR Incorrect pin.", "");
+		}
+		session.pinVerified = true;
+		return Frame("OK Pin code success. " + session.bankAccount.PrintAccOwner(), session.bankAccount.PrintPersonalAccs());
+	}
+	
+	/**
+	 * Writes one page of a personal account's past transactions, newest first.
+	 * The response's first line ends with the cursor of the next, older page, 0 once there are no more
+	 * @param userBankAccount bank account the session logged into
+	 * @param words the command's words: HISTORY, account, and the cursor of the page if it is not the newest
+	 * @return a String that represents the response
+	 * @see PersonalAccount#WriteHistory(Appendable, int, int)
+	 */
+	private String ViewHistory(BankAccount userBankAccount, String[] words) {
+		if (words.length != 2) {
+			CheckNumWords(words, 3);
+		}
+		PersonalAccount viewingAcc = ChoosePersonalAccount(userBankAccount, words[1], "viewing");
+		int cursor = words.length == 3 ? ParseNumber(words[2], "cursor") : PersonalAccount.NEWEST;
+		
+		StringBuilder page = new StringBuilder();
+		int nextCursor;
+		try {
+			nextCursor = viewingAcc.WriteHistory(page, cursor, HISTORY_PAGE_SIZE);
+		}
+		catch (IOException excpt) {
+			//a StringBuilder never fails to append
+			throw new IllegalStateException(excpt);
+		}
+		return Frame("OK " + nextCursor, page);
+	}
+	
+	/**
+	 * Chooses one of a bank account's personal accounts by its number in the list, starting at 1
+	 * @param userBankAccount the bank account
+	 * @param word the number as typed
+	 * @param role what the account is used for, like "withdrawing", for the error message
+	 * @return the personal account
+	 * @throws IllegalArgumentException if there is no personal account with the number
+	 */
+	private static PersonalAccount ChoosePersonalAccount(BankAccount userBankAccount, String word, String role) {
+		int accNum = ParseNumber(word, "account");
+		if (accNum < 1 || accNum > userBankAccount.GetPersonalAccounts().size()) {
+			throw new IllegalArgumentException("Option selected for " + role + " account is invalid.");
+		}
+		return userBankAccount.GetPersonalAccounts().get(accNum - 1);
+	}
+	
+	/**
+	 * Reads an amount of money typed in dollars
+	 * @param userBankAccount the bank account the amount is for
+	 * @param word the amount as typed, like 20.50
+	 * @return a long that represents the amount in cents
+	 * @throws IllegalArgumentException if the amount is not a positive number
+	 * @see Money#FromDollars(double)
+	 */
+	private static long ParseAmount(BankAccount userBankAccount, String word) {
+		double amount;
+		try {
+			amount = Double.parseDouble(word);
+		}
+		catch (NumberFormatException excpt) {
+			throw new IllegalArgumentException("Amount " + word + " is not a number.");
+		}
+		if (Double.isFinite(amount) == false || userBankAccount.IsAmountPositive(amount) == false) {
+			throw new IllegalArgumentException("Amount must be positive.");
+		}
+		return Money.FromDollars(amount);
+	}
+	
+	/**
+	 * Reads a whole number
+	 * @param word the number as typed
+	 * @param name what the number is, for the error message
+	 * @return an int that represents the number
+	 * @throws IllegalArgumentException if it is not a whole number
+	 */
+	private static int ParseNumber(String word, String name) {
+		try {
+			return Integer.parseInt(word);
+		}
+		catch (NumberFormatException excpt) {
+			throw new IllegalArgumentException("Invalid " + name + " " + word + ".");
+		}
+	}
+	
+	/**
+	 * Checks that a command has the right number of words
+	 * @param words the command's words
+	 * @param numWords the number of words the command takes, counting the command itself
+	 * @throws IllegalArgumentException if it has a different number
+	 */
+	private static void CheckNumWords(String[] words, int numWords) {
+		if (words.length != numWords) {
+			throw new IllegalArgumentException(words[0].toUpperCase(Locale.ROOT) + " takes " + (numWords - 1) + " values.");
+		}
+	}
+	
+	/**
+	 * Puts a response together: the status line, every line of the body, and the closing "." line
+	 * @param status the first line, "OK" or "ERROR" followed by a message
+	 * @param body further lines, may be empty
+	 * @return a String that represents the whole response
+	 */
+	private static String Frame(String status, CharSequence body) {
+		StringBuilder response = new StringBuilder(status.length() + body.length() + 8);
+		response.append(status).append('\n');
+		int start = 0;
+		while (start < body.length()) {
+			int end = start;
+			while (end < body.length() && body.charAt(end) != '\n') {
+				++end;
+			}
+			int lineEnd = end > start && body.charAt(end - 1) == '\r' ? end - 1 : end;
+			if (body.charAt(start) == '.') {
+				response.append('.');
+			}
+			response.append(body, start, lineEnd).append('\n');
+			start = end + 1;
+		}
+		return response.append(".\n").toString();
+	}
+}
@@ -0,0 +1,719 @@
+/**
+ * Class is a small benchmark runner for the banking operations.
+ * Each benchmark is warmed up before it is timed and reports its throughput in operations per millisecond.
+ * Run with: java Benchmark
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Benchmark {
+	/**
+	 * Number of untimed rounds run before measuring so the JIT has compiled the hot path
+	 */
+	private static final int WARMUP_ROUNDS = 5;
+	
+	/**
+	 * Number of timed rounds that are averaged
+	 */
+	private static final int MEASURED_ROUNDS = 10;
+	
+	/**
+	 * Number of operations run in each round
+	 */
+	private static final int OPS_PER_ROUND = 200_000;
+	
+	/**
+	 * Number of transactions held when measuring the memory used by transaction history
+	 */
+	private static final int HISTORY_SIZE = 1_000_000;
+	
+	/**
+	 * Merchants used for the descriptions of generated transactions
+	 */
+	private static final String[] MERCHANTS = {"Amazon", "Starbucks", "Target", "Walmart", "Etsy",
+			"Seaside Bakery", "Kitakata Ramen", "Barnes & Noble", "IHop", "7Leaves"};
+	
+	/**
+	 * Number of threads making transfers at once in the concurrent transfer check
+	 */
+	private static final int STRESS_THREADS = 4;
+	
+	/**
+	 * Number of personal accounts the concurrent transfers move money between
+	 */
+	private static final int STRESS_ACCOUNTS = 16;
+	
+	/**
+	 * Number of transfers each thread makes in the concurrent transfer check
+	 */
+	private static final int STRESS_TRANSFERS_PER_THREAD = 50_000;
+	
+	/**
+	 * Number of transfers in each batch when comparing batched and single transfers
+	 */
+	private static final int BATCH_SIZE = 1_000;
+	
+	/**
+	 * Number of journaled deposits made in each journal benchmark, split between its threads
+	 */
+	private static final int JOURNAL_DEPOSITS = 4_000;
+	
+	/**
+	 * Number of personal accounts, and transactions on each, in the journal the startup benchmark loads
+	 */
+	private static final int STARTUP_ACCOUNTS = 10_000;
+	private static final int STARTUP_TRANSACTIONS_PER_ACCOUNT = 100;
+	
+	/**
+	 * Posting date of the transactions made by the benchmarks
+	 */
+	private static final int POSTING_DAY = PostingDate.Parse("01/18/2023");
+	
+	/**
+	 * Result of every benchmark, kept so the JIT cannot drop the work being measured
+	 */
+	private static long sink;
+	
+	/**
+	 * A benchmarked operation, run a given number of times per round
+	 */
+	private interface Operation {
+		/**
+		 * Runs the operation
+		 * @param ops number of times to run the operation
+		 * @return a long that depends on the work done so it can not be optimized away
+		 */
+		long Run(int ops);
+	}
+	
+	/**
+	 * Transaction as it was laid out before money was kept in cents, used as the baseline
+	 */
+	private static final class LegacyTransaction {
+		private final String postingDate;
+		private final String description;
+		private final String type;
+		private final double amount;
+		private final double balance;
+		
+		LegacyTransaction(String postingDate, String description, String type, double amount, double balance) {
+			this.postingDate = postingDate;
+			this.description = description;
+			this.type = type;
+			this.amount = amount;
+			this.balance = balance;
+		}
+	}
+	
+	/**
+	 * Runs every benchmark and prints the results
+	 * @param args command line-arguments
+	 */
+	public static void main(String[] args) {
+		double legacy = Measure("CreateTransaction (double, rounded per posting)", Benchmark::LegacyCreateTransaction);
+		double cents = Measure("CreateTransaction (Money.Add, TransactionStore.Append)", Benchmark::AppendTransactionCents);
+		System.out.printf("CreateTransaction speedup: %.2fx%n", cents / legacy);
+		Measure("CreateTransactionCents (long cents, returns Transaction)", Benchmark::CreateTransactionCents);
+		Measure("PostTransactionCents (long cents, returns balance)", Benchmark::PostTransactionCents);
+		double legacyMath = Measure("Balance update (double, rounded per posting)", Benchmark::LegacyBalanceUpdate);
+		double centsMath = Measure("Balance update (Money.Add on cents)", Benchmark::BalanceUpdateCents);
+		System.out.printf("Balance update speedup: %.2fx%n", centsMath / legacyMath);
+		double legacyBytes = MeasureHistoryMemory("Transaction history (ArrayList<Transaction>)", true);
+		double storeBytes = MeasureHistoryMemory("Transaction history (TransactionStore)", false);
+		System.out.printf("Transaction history memory reduction: %.2fx%n", legacyBytes / storeBytes);
+		CheckConcurrentTransfers();
+		CheckBalanceAsOf();
+		CheckTornTransfer();
+		double looped = Measure("TransferMoneyCents in a loop", BATCH_SIZE * 20, ops -> LoopTransfers(ops, false));
+		double batched = Measure("TransferMoneyBatch (" + BATCH_SIZE + " per batch)", BATCH_SIZE * 20, ops -> LoopTransfers(ops, true));
+		System.out.printf("Batch transfer speedup: %.2fx%n", batched / looped);
+		double legacyConfirmation = Measure("Confirmation number (new Random, zero padding loop)", Benchmark::LegacyConfirmationNumbers);
+		double confirmation = Measure("Confirmation number (ConfirmationNumberGenerator)", Benchmark::ConfirmationNumbers);
+		System.out.printf("Confirmation number speedup: %.2fx%n", confirmation / legacyConfirmation);
+		double journalOneThread = MeasureJournal(1);
+		double journalGrouped = MeasureJournal(16);
+		System.out.printf("Journal group commit speedup: %.2fx%n", journalGrouped / journalOneThread);
+		MeasureStartup();
+		System.out.println("(checksum " + sink + ")");
+	}
+	
+	/**
+	 * Warms up and then times an operation
+	 * @param name name of the benchmark for the report
+	 * @param operation the operation to time
+	 * @return a double that represents the mean throughput in operations per millisecond
+	 */
+	private static double Measure(String name, Operation operation) {
+		return Measure(name, OPS_PER_ROUND, operation);
+	}
+	
+	/**
+	 * Warms up and then times an operation
+	 * @param name name of the benchmark for the report
+	 * @param opsPerRound number of operations to run in each round
+	 * @param operation the operation to time
+	 * @return a double that represents the mean throughput in operations per millisecond
+	 */
+	private static double Measure(String name, int opsPerRound, Operation operation) {
+		for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+			sink += operation.Run(opsPerRound);
+		}
+		
+		long totalNanos = 0;
+		for (int i = 0; i < MEASURED_ROUNDS; ++i) {
+			long start = System.nanoTime();
+			sink += operation.Run(opsPerRound);
+			totalNanos += System.nanoTime() - start;
+		}
+		
+		double opsPerMs = (double) opsPerRound * MEASURED_ROUNDS / (totalNanos / 1_000_000.0);
+		System.out.printf("%-55s %12.1f ops/ms%n", name, opsPerMs);
+		return opsPerMs;
+	}
+	
+	/**
+	 * Fills a transaction history and measures the heap it keeps alive.
+	 * Every posting gets its own date String, the way BankAccount makes one per transaction,
+	 * and one in four postings is a deposit with a unique confirmation number. The list holds the deposit's description as text,
+	 * the way it did before, and the store holds it the way the bank writes it, as its kind, account and confirmation number
+	 * @param name name of the benchmark for the report
+	 * @param legacy true to store the history as a list of objects, false to use a TransactionStore
+	 * @return a double that represents the bytes used per transaction
+	 */
+	private static double MeasureHistoryMemory(String name, boolean legacy) {
+		long before = UsedHeap();
+		ArrayList<LegacyTransaction> list = new ArrayList<>();
+		TransactionStore store = new TransactionStore();
+		long balance = 0;
+		for (int i = 0; i < HISTORY_SIZE; ++i) {
+			String postingDate = new StringBuilder().append("01/").append(10 + (i / 50_000)).append("/2023").toString();
+			boolean deposit = (i & 3) == 0;
+			long confirmationNumber = deposit ? ConfirmationNumberGenerator.ConfirmationNumberOf(i) : 0L;
+			long amount = (i & 1) == 0 ? 1999L : -1733L;
+			balance += amount;
+			if (legacy) {
+				String description = deposit ? TransactionDescription.Format(TransactionDescription.DEPOSIT, "Adv - 2332", confirmationNumber) : MERCHANTS[i % MERCHANTS.length];
+				list.add(new LegacyTransaction(postingDate, description, "Credit", Money.ToDollars(amount), Money.ToDollars(balance)));
+			}
+			else if (deposit) {
+				store.Append(PostingDate.Parse(postingDate), TransactionDescription.DEPOSIT, "Adv - 2332", confirmationNumber, "Credit", amount, balance);
+			}
+			else {
+				store.Append(PostingDate.Parse(postingDate), MERCHANTS[i % MERCHANTS.length], "Credit", amount, balance);
+			}
+		}
+		long after = UsedHeap();
+		sink += list.size() + store.Size();
+		
+		double bytesPerTransaction = (double) (after - before) / HISTORY_SIZE;
+		System.out.printf("%-55s %12.1f bytes/transaction%n", name, bytesPerTransaction);
+		return bytesPerTransaction;
+	}
+	
+	/**
+	 * Gets the heap in use after asking for garbage collection
+	 * @return a long that represents the bytes of heap in use
+	 */
+	private static long UsedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; ++i) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	/**
+	 * Runs random transfers, deposits and withdrawals between a few accounts from several threads at once
+	 * and checks the ledger afterwards. No money may be made or lost besides what was deposited and withdrawn,
+	 * no account may be overdrawn, and every transaction in an account's history must hold the balance
+	 * of the transactions before it
+	 * @throws IllegalStateException if the ledger is not conserved
+	 */
+	private static void CheckConcurrentTransfers() {
+		final long openingCents = 1_000_00L;
+		BankAccount bankAccount = new BankAccount("stress", "test", 0, "Stress", "Test");
+		PersonalAccount[] accs = new PersonalAccount[STRESS_ACCOUNTS];
+		for (int i = 0; i < STRESS_ACCOUNTS; ++i) {
+			accs[i] = bankAccount.CreatePersonalAccount("Stress Account", 100000000000L + i, Money.ToDollars(openingCents));
+		}
+		
+		LongAdder netDeposited = new LongAdder();
+		Thread[] threads = new Thread[STRESS_THREADS];
+		for (int t = 0; t < STRESS_THREADS; ++t) {
+			threads[t] = new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < STRESS_TRANSFERS_PER_THREAD; ++i) {
+					int from = random.nextInt(STRESS_ACCOUNTS);
+					int to = (from + 1 + random.nextInt(STRESS_ACCOUNTS - 1)) % STRESS_ACCOUNTS;
+					long amount = 1 + random.nextLong(openingCents / 2);
+					int choice = random.nextInt(10);
+					if (choice == 0) {
+						bankAccount.DepositMoneyToCents(accs[to], amount);
+						netDeposited.add(amount);
+					}
+					else if (choice == 1) {
+						if (bankAccount.WithdrawMoneyFromCents(accs[from], amount).startsWith("You have withdrew")) {
+							netDeposited.add(-amount);
+						}
+					}
+					else {
+						bankAccount.TransferMoneyCents(accs[from], accs[to], amount);
+					}
+				}
+			});
+		}
+		
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			}
+			catch (InterruptedException excpt) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for transfers", excpt);
+			}
+		}
+		double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+		
+		long total = 0;
+		for (PersonalAccount acc : accs) {
+			long runningBalance = openingCents;
+			for (int i = 0; i < acc.GetTransactionCount(); ++i) {
+				Transaction transaction = acc.GetTransaction(i);
+				runningBalance += transaction.GetAmountCents();
+				if (runningBalance < 0 || runningBalance != transaction.GetBalanceCents()) {
+					throw new IllegalStateException("Ledger broken on account " + acc.GetAccNumber() + " at transaction " + i + ": history adds up to " + runningBalance + ", transaction holds " + transaction.GetBalanceCents());
+				}
+			}
+			if (runningBalance != acc.GetBalanceCents()) {
+				throw new IllegalStateException("Ledger broken on account " + acc.GetAccNumber() + ": balance " + acc.GetBalanceCents() + ", history " + runningBalance);
+			}
+			total += acc.GetBalanceCents();
+		}
+		long expectedTotal = openingCents * STRESS_ACCOUNTS + netDeposited.sum();
+		if (total != expectedTotal) {
+			throw new IllegalStateException("Money not conserved: expected " + expectedTotal + " cents, found " + total);
+		}
+		
+		System.out.printf("%-55s %12.1f ops/ms (ledger conserved)%n", "Concurrent transfers/deposits/withdrawals (" + STRESS_THREADS + " threads)",
+				STRESS_THREADS * STRESS_TRANSFERS_PER_THREAD / elapsedMs);
+	}
+	
+	/**
+	 * Checks the balance on past dates leaves out a transaction still processing between two dated ones,
+	 * both on the days around it and on the day of the dated transaction after it
+	 * @throws IllegalStateException if a balance on a date counts the processing transaction or misses a dated one
+	 */
+	private static void CheckBalanceAsOf() {
+		PersonalAccount acc = new PersonalAccount("Balance Check", 200000000000L, 100_00L);
+		acc.PostTransactionCents(POSTING_DAY, "Amazon", "Credit", -10_00L);
+		acc.PostTransactionCents(PostingDate.PENDING, "Starbucks", "Credit", -5_00L);
+		acc.PostTransactionCents(POSTING_DAY + 2, "Target", "Credit", -7_00L);
+		
+		long[] expectedCents = {100_00L, 90_00L, 90_00L, 83_00L, 83_00L};
+		for (int i = 0; i < expectedCents.length; ++i) {
+			long balanceCents = acc.BalanceAsOfCents(POSTING_DAY - 1 + i);
+			if (balanceCents != expectedCents[i]) {
+				throw new IllegalStateException("Balance on " + PostingDate.Format(POSTING_DAY - 1 + i) + " is " + balanceCents + " cents, expected " + expectedCents[i]);
+			}
+		}
+		System.out.printf("%-55s %12s%n", "BalanceAsOf with a processing transaction between dates", "(matches)");
+	}
+	
+	/**
+	 * Makes a journaled transfer, then replays the journal cut short at every byte the transfer wrote,
+	 * one thread at a time and in parallel, as a crash in the middle of writing it would leave the file
+	 * @throws IllegalStateException if the files cannot be used, or a cut journal replays to only one side of the transfer
+	 */
+	private static void CheckTornTransfer() {
+		Path path = null;
+		Path cutPath = null;
+		try {
+			path = Files.createTempFile("bank", ".journal");
+			cutPath = Files.createTempFile("bank", ".journal");
+			Journal journal = Journal.Open(path);
+			BankAccount bankAccount = new BankAccount("torn", "test", 0, "Torn", "Test");
+			bankAccount.SetJournal(journal);
+			journal.AwaitDurable(journal.AppendBankAccount("torn", "test", 0, "Torn", "Test"));
+			PersonalAccount accWithdrawnFrom = bankAccount.CreatePersonalAccountCents("Torn Checking", 600000000000L, 100_00L);
+			PersonalAccount accSentTo = bankAccount.CreatePersonalAccountCents("Torn Savings", 600000000001L, 0L);
+			long before = journal.GetAppendedPosition();
+			bankAccount.MakeTransferCents(accWithdrawnFrom, accSentTo, 25_00L);
+			journal.close();
+			byte[] bytes = Files.readAllBytes(path);
+			
+			for (int length = (int) before; length <= bytes.length; ++length) {
+				long[] expectedCents = length == bytes.length ? new long[] {75_00L, 25_00L} : new long[] {100_00L, 0L};
+				for (int parallel = 0; parallel < 2; ++parallel) {
+					//replay cuts a torn record off the file, so each replay gets a fresh copy
+					Files.write(cutPath, Arrays.copyOf(bytes, length));
+					AccountRegistry replayed = new AccountRegistry();
+					if (parallel == 0) {
+						Journal.Replay(cutPath, new JournalRecovery(replayed, new ConfirmationNumberGenerator(0L)));
+					}
+					else {
+						ReplayEngine.Replay(cutPath, 0L, replayed, new ConfirmationNumberGenerator(0L), ForkJoinPool.commonPool());
+					}
+					ArrayList<PersonalAccount> replayedAccs = replayed.Find("torn").GetPersonalAccounts();
+					for (int i = 0; i < expectedCents.length; ++i) {
+						if (replayedAccs.get(i).GetBalanceCents() != expectedCents[i]) {
+							throw new IllegalStateException("Journal cut at " + length + " of " + bytes.length + " bytes replayed account " + replayedAccs.get(i).GetAccNumber()
+									+ " to " + replayedAccs.get(i).GetBalanceCents() + " cents, expected " + expectedCents[i]);
+						}
+					}
+				}
+			}
+			System.out.printf("%-55s %12s%n", "Transfer replayed from a journal cut at every byte", "(all or nothing)");
+		}
+		catch (IOException excpt) {
+			throw new IllegalStateException("Torn transfer check could not use its files", excpt);
+		}
+		finally {
+			for (Path filePath : new Path[] {path, cutPath}) {
+				try {
+					if (filePath != null) {
+						Files.deleteIfExists(filePath);
+					}
+				}
+				catch (IOException excpt) {
+					System.out.println("Could not delete " + filePath);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Makes durable deposits from several threads into a journal in a temporary file, then replays the file
+	 * and checks every account comes back with the same balance.
+	 * Each deposit waits for its fsync, so with one thread there is one fsync per deposit,
+	 * and with more threads the deposits waiting together share a fsync
+	 * @param numThreads number of threads depositing at once
+	 * @return a double that represents the throughput in deposits per millisecond
+	 * @throws IllegalStateException if the journal cannot be written, or replays to different balances
+	 */
+	private static double MeasureJournal(int numThreads) {
+		Path path = null;
+		try {
+			path = Files.createTempFile("bank", ".journal");
+			Journal journal = Journal.Open(path);
+			BankAccount bankAccount = new BankAccount("journal", "test", 0, "Journal", "Test");
+			bankAccount.SetJournal(journal);
+			journal.AwaitDurable(journal.AppendBankAccount("journal", "test", 0, "Journal", "Test"));
+			PersonalAccount[] accs = new PersonalAccount[numThreads];
+			for (int i = 0; i < numThreads; ++i) {
+				accs[i] = bankAccount.CreatePersonalAccountCents("Journal Account", 300000000000L + i, 0L);
+			}
+			long syncsBefore = journal.GetSyncCount();
+			
+			int depositsPerThread = JOURNAL_DEPOSITS / numThreads;
+			Thread[] threads = new Thread[numThreads];
+			for (int t = 0; t < numThreads; ++t) {
+				PersonalAccount acc = accs[t];
+				threads[t] = new Thread(() -> {
+					for (int i = 0; i < depositsPerThread; ++i) {
+						bankAccount.DepositMoneyToCents(acc, 100 + i);
+					}
+				});
+			}
+			
+			long start = System.nanoTime();
+			for (Thread thread : threads) {
+				thread.start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+			long syncs = journal.GetSyncCount() - syncsBefore;
+			journal.close();
+			
+			AccountRegistry recovered = new AccountRegistry();
+			Journal.Replay(path, new JournalRecovery(recovered, new ConfirmationNumberGenerator(0L)));
+			ArrayList<PersonalAccount> recoveredAccs = recovered.Find("journal").GetPersonalAccounts();
+			for (int i = 0; i < numThreads; ++i) {
+				if (recoveredAccs.get(i).GetBalanceCents() != accs[i].GetBalanceCents()) {
+					throw new IllegalStateException("Journal replayed account " + accs[i].GetAccNumber() + " to " + recoveredAccs.get(i).GetBalanceCents() + " cents, expected " + accs[i].GetBalanceCents());
+				}
+			}
+			
+			double opsPerMs = depositsPerThread * numThreads / elapsedMs;
+			System.out.printf("%-55s %12.1f ops/ms (%.1f deposits per fsync, replay matches)%n", "Journaled deposits (" + numThreads + " threads)",
+					opsPerMs, (double) depositsPerThread * numThreads / syncs);
+			return opsPerMs;
+		}
+		catch (IOException excpt) {
+			throw new IllegalStateException("Journal benchmark could not use its file", excpt);
+		}
+		catch (InterruptedException excpt) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for deposits", excpt);
+		}
+		finally {
+			if (path != null) {
+				try {
+					Files.deleteIfExists(path);
+				}
+				catch (IOException excpt) {
+					System.out.println("Could not delete " + path);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Times starting the bank by replaying a whole journal, on one thread and in parallel across accounts, against loading a snapshot of it,
+	 * then checks all three give every account the same balance and history
+	 * @throws IllegalStateException if the files cannot be used, or the two starts differ
+	 */
+	private static void MeasureStartup() {
+		Path journalPath = null;
+		Path snapshotPath = null;
+		try {
+			journalPath = Files.createTempFile("bank", ".journal");
+			snapshotPath = Files.createTempFile("bank", ".snapshot");
+			try (Journal journal = Journal.Open(journalPath)) {
+				journal.AppendBankAccount("startup", "test", 0, "Startup", "Test");
+				for (int a = 0; a < STARTUP_ACCOUNTS; ++a) {
+					long accNumber = 400000000000L + a;
+					long balance = 0;
+					journal.AppendPersonalAccount("startup", "Startup Account", accNumber, balance);
+					for (int i = 0; i < STARTUP_TRANSACTIONS_PER_ACCOUNT; ++i) {
+						long amount = 100 + (i * 37) % 5_000;
+						balance += amount;
+						journal.AppendTransaction(accNumber, POSTING_DAY + i, MERCHANTS[i % MERCHANTS.length], "Credit", amount, balance);
+					}
+				}
+			}
+			
+			long start = System.nanoTime();
+			AccountRegistry replayed = new AccountRegistry();
+			Journal.Replay(journalPath, new JournalRecovery(replayed, new ConfirmationNumberGenerator(0L)));
+			double replayMs = (System.nanoTime() - start) / 1_000_000.0;
+			
+			start = System.nanoTime();
+			AccountRegistry parallel = new AccountRegistry();
+			ReplayEngine.Replay(journalPath, 0L, parallel, new ConfirmationNumberGenerator(0L), ForkJoinPool.commonPool());
+			double parallelMs = (System.nanoTime() - start) / 1_000_000.0;
+			
+			try (Journal journal = Journal.Open(journalPath)) {
+				Snapshot.Write(snapshotPath, replayed, journal, new ConfirmationNumberGenerator(0L));
+			}
+			
+			start = System.nanoTime();
+			AccountRegistry loaded = new AccountRegistry();
+			ConfirmationNumberGenerator confirmationNumbers = new ConfirmationNumberGenerator(0L);
+			long snapshotPosition = Snapshot.Load(snapshotPath, loaded, confirmationNumbers);
+			Journal.Replay(journalPath, snapshotPosition, new JournalRecovery(loaded, confirmationNumbers));
+			double loadMs = (System.nanoTime() - start) / 1_000_000.0;
+			
+			ArrayList<PersonalAccount> replayedAccs = replayed.Find("startup").GetPersonalAccounts();
+			ArrayList<PersonalAccount> loadedAccs = loaded.Find("startup").GetPersonalAccounts();
+			ArrayList<PersonalAccount> parallelAccs = parallel.Find("startup").GetPersonalAccounts();
+			for (int a = 0; a < STARTUP_ACCOUNTS; a += 97) {
+				PersonalAccount replayedAcc = replayedAccs.get(a);
+				for (PersonalAccount otherAcc : new PersonalAccount[] {loadedAccs.get(a), parallelAccs.get(a)}) {
+					if (otherAcc.GetBalanceCents() != replayedAcc.GetBalanceCents() || otherAcc.GetTransactionCount() != replayedAcc.GetTransactionCount()
+							|| otherAcc.GetTransaction(STARTUP_TRANSACTIONS_PER_ACCOUNT - 1).GetDescription().equals(replayedAcc.GetTransaction(STARTUP_TRANSACTIONS_PER_ACCOUNT - 1).GetDescription()) == false) {
+						throw new IllegalStateException((otherAcc == loadedAccs.get(a) ? "Snapshot loaded" : "Parallel replay rebuilt") + " account " + otherAcc.GetAccNumber() + " differently from the journal");
+					}
+				}
+			}
+			
+			String size = " (" + STARTUP_ACCOUNTS * STARTUP_TRANSACTIONS_PER_ACCOUNT + " transactions)";
+			System.out.printf("%-55s %12.1f ms%n", "Startup replaying the journal" + size, replayMs);
+			System.out.printf("%-55s %12.1f ms%n", "Startup replaying in parallel (" + ForkJoinPool.commonPool().getParallelism() + " threads)", parallelMs);
+			System.out.printf("Parallel replay speedup: %.2fx%n", replayMs / parallelMs);
+			System.out.printf("%-55s %12.1f ms%n", "Startup loading a snapshot" + size, loadMs);
+			System.out.printf("Startup speedup: %.2fx%n", replayMs / loadMs);
+		}
+		catch (IOException excpt) {
+			throw new IllegalStateException("Startup benchmark could not use its files", excpt);
+		}
+		finally {
+			for (Path path : new Path[] {journalPath, snapshotPath}) {
+				try {
+					if (path != null) {
+						Files.deleteIfExists(path);
+					}
+				}
+				catch (IOException excpt) {
+					System.out.println("Could not delete " + path);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Makes transfers between 64 accounts of one bank account, one call each or a batch at a time
+	 * @param ops number of transfers to make
+	 * @param batched true to use TransferMoneyBatch, false to call TransferMoneyCents for each transfer
+	 * @return the number of completed transfers
+	 */
+	private static long LoopTransfers(int ops, boolean batched) {
+		BankAccount bankAccount = new BankAccount("batch", "test", 0, "Batch", "Test");
+		PersonalAccount[] accs = new PersonalAccount[64];
+		for (int i = 0; i < accs.length; ++i) {
+			accs[i] = bankAccount.CreatePersonalAccount("Payroll Account", 200000000000L + i, 1_000_000.00);
+		}
+		
+		long completed = 0;
+		ArrayList<TransferRequest> batch = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < ops; ++i) {
+			PersonalAccount from = accs[i % accs.length];
+			PersonalAccount to = accs[(i * 7 + 1) % accs.length];
+			long amount = 100 + (i % 5_000);
+			if (batched == false) {
+				if (bankAccount.TransferMoneyCents(from, to, amount).endsWith(to.GetShortenedAccNum() + "")) {
+					++completed;
+				}
+				continue;
+			}
+			batch.add(new TransferRequest(from, to, amount));
+			if (batch.size() == BATCH_SIZE || i == ops - 1) {
+				for (TransferStatus status : bankAccount.TransferMoneyBatch(batch)) {
+					if (status == TransferStatus.COMPLETED) {
+						++completed;
+					}
+				}
+				batch.clear();
+			}
+		}
+		return completed;
+	}
+	
+	/**
+	 * Makes confirmation numbers with the shared generator and writes them as text
+	 * @param ops number of confirmation numbers to make
+	 * @return the total length of the confirmation numbers
+	 */
+	private static long ConfirmationNumbers(int ops) {
+		long total = 0;
+		for (int i = 0; i < ops; ++i) {
+			total += ConfirmationNumberGenerator.Format(ConfirmationNumberGenerator.SHARED.Next()).length();
+		}
+		return total;
+	}
+	
+	/**
+	 * Makes confirmation numbers the way BankAccount did before the generator,
+	 * with a new Random each time and zeros added to the front one at a time
+	 * @param ops number of confirmation numbers to make
+	 * @return the total length of the confirmation numbers
+	 */
+	private static long LegacyConfirmationNumbers(int ops) {
+		long total = 0;
+		for (int i = 0; i < ops; ++i) {
+			Random rand = new Random();
+			String confirmationNumber = Long.toString(rand.nextLong(9999999999L));
+			while (confirmationNumber.length() < 10) {
+				confirmationNumber = 0 + confirmationNumber;
+			}
+			total += confirmationNumber.length();
+		}
+		return total;
+	}
+	
+	/**
+	 * Adds transactions to a balance kept in cents and a columnar history, the same work as LegacyCreateTransaction(int)
+	 * without the thread safety, journal and monthly totals PersonalAccount adds to every posting
+	 * @param ops number of transactions to add
+	 * @return the final balance in cents
+	 */
+	private static long AppendTransactionCents(int ops) {
+		TransactionStore transactions = new TransactionStore();
+		long balance = 10000L;
+		for (int i = 0; i < ops; ++i) {
+			long amount = (i & 1) == 0 ? 1999L : -1733L;
+			balance = Money.Add(balance, amount);
+			transactions.Append(POSTING_DAY, "Amazon", "Credit", amount, balance);
+		}
+		return balance + transactions.Size();
+	}
+	
+	/**
+	 * Posts transactions through PersonalAccount with amounts already in cents
+	 * @param ops number of transactions to post
+	 * @return the final balance in cents
+	 */
+	private static long CreateTransactionCents(int ops) {
+		PersonalAccount acc = new PersonalAccount("Adv Plus Banking", 392852342332L, 100.00);
+		for (int i = 0; i < ops; ++i) {
+			acc.CreateTransactionCents(POSTING_DAY, "Amazon", "Credit", (i & 1) == 0 ? 1999L : -1733L);
+		}
+		return acc.GetBalanceCents();
+	}
+	
+	/**
+	 * Posts transactions through PersonalAccount with amounts already in cents, without making a Transaction object for each
+	 * @param ops number of transactions to post
+	 * @return the final balance in cents
+	 */
+	private static long PostTransactionCents(int ops) {
+		PersonalAccount acc = new PersonalAccount("Adv Plus Banking", 392852342332L, 100.00);
+		long balance = 0;
+		for (int i = 0; i < ops; ++i) {
+			balance = acc.PostTransactionCents(POSTING_DAY, "Amazon", "Credit", (i & 1) == 0 ? 1999L : -1733L);
+		}
+		return balance;
+	}
+	
+	/**
+	 * Applies amounts to a balance kept in cents, without recording transactions
+	 * @param ops number of amounts to apply
+	 * @return the final balance in cents
+	 */
+	private static long BalanceUpdateCents(int ops) {
+		long balance = 10000L;
+		for (int i = 0; i < ops; ++i) {
+			balance = Money.Add(balance, (i & 1) == 0 ? 1999L : -1733L);
+		}
+		return balance;
+	}
+	
+	/**
+	 * Applies amounts to a double balance the way PersonalAccount did before balances were kept in cents,
+	 * without recording transactions
+	 * @param ops number of amounts to apply
+	 * @return the final balance in cents
+	 */
+	private static long LegacyBalanceUpdate(int ops) {
+		double balance = 100.00;
+		for (int i = 0; i < ops; ++i) {
+			double amount = (i & 1) == 0 ? 19.99 : -17.33;
+			double roundedAmount = Math.round(amount*100.00)/100.00;
+			balance = Math.round((balance + roundedAmount)*100.00)/100.00;
+		}
+		return Math.round(balance * 100.00);
+	}
+	
+	/**
+	 * Posts transactions the way PersonalAccount did before balances were kept in cents,
+	 * rounding the double amount and the double balance on every posting
+	 * @param ops number of transactions to post
+	 * @return the final balance in cents
+	 */
+	private static long LegacyCreateTransaction(int ops) {
+		ArrayList<LegacyTransaction> transactions = new ArrayList<>();
+		double balance = 100.00;
+		for (int i = 0; i < ops; ++i) {
+			double amount = (i & 1) == 0 ? 19.99 : -17.33;
+			double roundedAmount = Math.round(amount*100.00)/100.00;
+			balance = Math.round((balance + roundedAmount)*100.00)/100.00;
+			transactions.add(new LegacyTransaction("01/18/2023", "Amazon", "Credit", roundedAmount, balance));
+		}
+		return Math.round(balance * 100.00) + transactions.size();
+	}
+}
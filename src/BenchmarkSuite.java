@@ -0,0 +1,451 @@
+/**
+ * Class is a benchmark suite for the core banking operations a user drives from the app:
+ * making transactions, transfers, deposits and withdrawals, listing and printing accounts, and logging in.
+ * Each benchmark runs for a fixed time per round on one or more threads, after warmup rounds, and reports
+ * its throughput, the bytes it allocates per operation, and the garbage collections during the measured rounds,
+ * so a change that slows these paths down or makes them allocate more shows up.
+ * Benchmarks are run for every combination of the parameters they depend on: the number of bank accounts
+ * in the registry, the number of transactions already in each account's history, and the number of threads.
+ * Run with: java BenchmarkSuite [name filter] [--threads=1,4] [--accounts=100,10000] [--history=10,1000]
+ * @author Katie Ho
+ * @version 1.0
+ * @see Benchmark
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BenchmarkSuite {
+	/**
+	 * Number of untimed rounds run before measuring so the JIT has compiled the hot path
+	 */
+	private static final int WARMUP_ROUNDS = 3;
+	
+	/**
+	 * Number of timed rounds that are averaged
+	 */
+	private static final int MEASURED_ROUNDS = 5;
+	
+	/**
+	 * Length of every round in nanoseconds
+	 */
+	private static final long ROUND_NANOS = 200_000_000L;
+	
+	/**
+	 * Number of operations a thread runs between checks of the clock
+	 */
+	private static final int OPS_PER_CHECK = 16;
+	
+	/**
+	 * Number of personal accounts every bank account in the fixture owns
+	 */
+	private static final int PERSONAL_ACCS_PER_BANK_ACC = 4;
+	
+	/**
+	 * Balance every personal account in the fixture opens with, enough for every withdrawal and transfer
+	 */
+	private static final double OPENING_BALANCE = 1_000_000_000.00;
+	
+	/**
+	 * Default values of the parameters
+	 */
+	private static final int[] DEFAULT_THREADS = {1, 4};
+	private static final int[] DEFAULT_ACCOUNTS = {100, 10_000};
+	private static final int[] DEFAULT_HISTORY = {10, 1_000};
+	
+	/**
+	 * Where the results are printed, System.out is silenced while benchmarks that print run
+	 */
+	private static final PrintStream REPORT = System.out;
+	
+	/**
+	 * Measures the bytes allocated by each thread
+	 */
+	private static final com.sun.management.ThreadMXBean THREAD_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	
+	/**
+	 * Result of every benchmark, kept so the JIT cannot drop the work being measured
+	 */
+	private static final LongAdder sink = new LongAdder();
+	
+	/**
+	 * A benchmarked operation, run by a thread on the accounts given to it
+	 */
+	private interface Operation {
+		/**
+		 * Runs the operation
+		 * @param fixture the accounts being benchmarked
+		 * @param thread index of the thread running the operation
+		 * @param ops number of times to run the operation
+		 * @return a long that depends on the work done so it can not be optimized away
+		 */
+		long Run(Fixture fixture, int thread, int ops);
+	}
+	
+	/**
+	 * A named operation and the parameters it depends on
+	 */
+	private static final class Case {
+		private final String name;
+		private final boolean usesAccounts;
+		private final boolean usesHistory;
+		private final Operation operation;
+		
+		Case(String name, boolean usesAccounts, boolean usesHistory, Operation operation) {
+			this.name = name;
+			this.usesAccounts = usesAccounts;
+			this.usesHistory = usesHistory;
+			this.operation = operation;
+		}
+	}
+	
+	/**
+	 * The registry of bank accounts a benchmark runs against.
+	 * Thread t works on the personal accounts of bank account t, whose histories are filled in up front
+	 */
+	private static final class Fixture {
+		private final AccountRegistry bankAccounts = new AccountRegistry();
+		private final BankAccount[] bankAccountsByIndex;
+		private final String[] usernames;
+		private final String[] passwords;
+		
+		Fixture(int numAccounts, int historySize, int numThreads) {
+			int numBankAccounts = Math.max(numAccounts, numThreads);
+			bankAccountsByIndex = new BankAccount[numBankAccounts];
+			usernames = new String[numBankAccounts];
+			passwords = new String[numBankAccounts];
+			for (int i = 0; i < numBankAccounts; ++i) {
+				usernames[i] = "user" + i;
+				passwords[i] = "pass" + i;
+				BankAccount bankAccount = new BankAccount(usernames[i], passwords[i], 1000 + i, "First" + i, "Last" + i);
+				bankAccounts.Register(bankAccount);
+				bankAccountsByIndex[i] = bankAccount;
+				for (int j = 0; j < PERSONAL_ACCS_PER_BANK_ACC; ++j) {
+					PersonalAccount acc = bankAccount.CreatePersonalAccount(j % 2 == 0 ? "Adv Plus Banking" : "Advantage Savings", 500000000000L + i * 10L + j, OPENING_BALANCE);
+					if (i < numThreads) {
+						for (int k = 0; k < historySize; ++k) {
+							acc.PostTransactionCents(PostingDate.Parse("01/18/2023") - k, "Kitakata Ramen", "Credit", -100 - k);
+						}
+					}
+				}
+			}
+		}
+		
+		BankAccount BankAccountOf(int thread) {
+			return bankAccountsByIndex[thread];
+		}
+		
+		PersonalAccount PersonalAccountOf(int thread, int index) {
+			return bankAccountsByIndex[thread].GetPersonalAccounts().get(index);
+		}
+	}
+	
+	/**
+	 * Runs every benchmark whose name contains the filter for every combination of its parameters
+	 * @param args optional name filter, then optional --threads=, --accounts= and --history= lists of values
+	 */
+	public static void main(String[] args) {
+		String filter = "";
+		int[] threadCounts = DEFAULT_THREADS;
+		int[] accountCounts = DEFAULT_ACCOUNTS;
+		int[] historySizes = DEFAULT_HISTORY;
+		for (String arg : args) {
+			if (arg.startsWith("--threads=")) {
+				threadCounts = ParseList(arg);
+			}
+			else if (arg.startsWith("--accounts=")) {
+				accountCounts = ParseList(arg);
+			}
+			else if (arg.startsWith("--history=")) {
+				historySizes = ParseList(arg);
+			}
+			else {
+				filter = arg;
+			}
+		}
+		
+		REPORT.printf("%-62s %12s %12s %6s%n", "Benchmark", "ops/ms", "B/op", "GCs");
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		try {
+			for (Case benchmark : Cases()) {
+				if (benchmark.name.contains(filter) == false) {
+					continue;
+				}
+				for (int numThreads : threadCounts) {
+					for (int numAccounts : benchmark.usesAccounts ? accountCounts : new int[] {accountCounts[0]}) {
+						for (int historySize : benchmark.usesHistory ? historySizes : new int[] {historySizes[0]}) {
+							String name = benchmark.name + " (threads=" + numThreads
+									+ (benchmark.usesAccounts ? ", accounts=" + numAccounts : "")
+									+ (benchmark.usesHistory ? ", history=" + historySize : "") + ")";
+							Measure(name, new Fixture(numAccounts, historySize, numThreads), numThreads, benchmark.operation);
+						}
+					}
+				}
+			}
+		}
+		finally {
+			System.setOut(REPORT);
+		}
+		REPORT.println("(checksum " + sink.sum() + ")");
+	}
+	
+	/**
+	 * Makes the list of benchmarks
+	 * @return every benchmark in the suite
+	 */
+	private static ArrayList<Case> Cases() {
+		ArrayList<Case> cases = new ArrayList<>();
+		cases.add(new Case("PersonalAccount.CreateTransaction", false, true, (fixture, thread, ops) -> {
+			PersonalAccount acc = fixture.PersonalAccountOf(thread, 0);
+			long total = 0;
+			for (int i = 0; i < ops; ++i) {
+				total += acc.CreateTransaction("1/18/2023", "Seaside Bakery", "Cash", (i & 1) == 0 ? -7.00 : 7.00).GetBalanceCents();
+			}
+			return total;
+		}));
+		cases.add(new Case("BankAccount.TransferMoney", false, false, (fixture, thread, ops) -> {
+			BankAccount bankAccount = fixture.BankAccountOf(thread);
+			PersonalAccount debit = fixture.PersonalAccountOf(thread, 0);
+			PersonalAccount savings = fixture.PersonalAccountOf(thread, 1);
+			long total = 0;
+			for (int i = 0; i < ops; ++i) {
+				total += (i & 1) == 0 ? bankAccount.TransferMoney(debit, savings, 20.50).length() : bankAccount.TransferMoney(savings, debit, 20.50).length();
+			}
+			return total;
+		}));
+		cases.add(new Case("BankAccount.DepositMoneyTo", false, false, (fixture, thread, ops) -> {
+			BankAccount bankAccount = fixture.BankAccountOf(thread);
+			PersonalAccount acc = fixture.PersonalAccountOf(thread, 2);
+			long total = 0;
+			for (int i = 0; i < ops; ++i) {
+				total += bankAccount.DepositMoneyTo(acc, 100.10).length();
+			}
+			return total;
+		}));
+		cases.add(new Case("BankAccount.WithdrawMoneyFrom", false, false, (fixture, thread, ops) -> {
+			BankAccount bankAccount = fixture.BankAccountOf(thread);
+			PersonalAccount acc = fixture.PersonalAccountOf(thread, 3);
+			long total = 0;
+			for (int i = 0; i < ops; ++i) {
+				total += bankAccount.WithdrawMoneyFrom(acc, 5.25).length();
+			}
+			return total;
+		}));
+		cases.add(new Case("BankAccount.PrintPersonalAccs", false, false, (fixture, thread, ops) -> {
+			BankAccount bankAccount = fixture.BankAccountOf(thread);
+			long total = 0;
+			for (int i = 0; i < ops; ++i) {
+				total += bankAccount.PrintPersonalAccs().length();
+			}
+			return total;
+		}));
+		cases.add(new Case("PersonalAccount.PrintAccInfo", false, true, (fixture, thread, ops) -> {
+			PersonalAccount acc = fixture.PersonalAccountOf(thread, 1);
+			for (int i = 0; i < ops; ++i) {
+				acc.PrintAccInfo();
+			}
+			return acc.GetBalanceCents();
+		}));
+		cases.add(new Case("PersonalAccount.WriteHistory", false, true, (fixture, thread, ops) -> {
+			//one page of the newest transactions, as a statement screen would show
+			PersonalAccount acc = fixture.PersonalAccountOf(thread, 1);
+			StringBuilder page = new StringBuilder();
+			long total = 0;
+			try {
+				for (int i = 0; i < ops; ++i) {
+					page.setLength(0);
+					total += acc.WriteHistory(page, PersonalAccount.NEWEST, 10) + page.length();
+				}
+			}
+			catch (IOException excpt) {
+				//a StringBuilder never throws
+				throw new UncheckedIOException(excpt);
+			}
+			return total;
+		}));
+		cases.add(new Case("PersonalAccount.BalanceAsOf", false, true, (fixture, thread, ops) -> {
+			//fixture histories post one transaction a day going back from 01/18/2023
+			PersonalAccount acc = fixture.PersonalAccountOf(thread, 1);
+			int lastDay = PostingDate.Parse("01/18/2023");
+			long total = 0;
+			for (int i = 0; i < ops; ++i) {
+				total += acc.BalanceAsOfCents(lastDay - (i & 1023));
+			}
+			return total;
+		}));
+		cases.add(new Case("PersonalAccount.GetMonthlyTotals", false, true, (fixture, thread, ops) -> {
+			//fixture histories post one transaction a day going back from 01/18/2023, so 02/2022 to 01/2023 have transactions for a long enough history
+			PersonalAccount acc = fixture.PersonalAccountOf(thread, 1);
+			long total = 0;
+			for (int i = 0; i < ops; ++i) {
+				int monthsBack = i % 12;
+				MonthlyTotals totals = monthsBack == 0 ? acc.GetMonthlyTotals(2023, 1) : acc.GetMonthlyTotals(2022, 13 - monthsBack);
+				total += totals.GetOutflowCents() + totals.GetTypeTotalCents("Credit");
+			}
+			return total;
+		}));
+		cases.add(new Case("PersonalAccount.GetTransactionsBetween", false, true, (fixture, thread, ops) -> {
+			//a month long statement, the fixture histories post one transaction a day going back from 01/18/2023
+			PersonalAccount acc = fixture.PersonalAccountOf(thread, 1);
+			int fromDay = PostingDate.Parse("12/01/2022");
+			int toDay = PostingDate.Parse("12/31/2022");
+			long total = 0;
+			for (int i = 0; i < ops; ++i) {
+				for (Transaction transaction : acc.GetTransactionsBetweenDays(fromDay, toDay, "Credit")) {
+					total += transaction.GetAmountCents();
+				}
+			}
+			return total;
+		}));
+		cases.add(new Case("PersonalAccount.SearchTransactions", false, true, (fixture, thread, ops) -> {
+			//every fixture transaction is at Kitakata Ramen, so the prefix search matches the whole history
+			PersonalAccount acc = fixture.PersonalAccountOf(thread, 1);
+			long total = 0;
+			for (int i = 0; i < ops; ++i) {
+				for (Transaction transaction : acc.SearchTransactions((i & 1) == 0 ? "kitakata ram" : "starbucks", true)) {
+					total += transaction.GetAmountCents();
+				}
+			}
+			return total;
+		}));
+		cases.add(new Case("AccountRegistry.FindPersonalAccount", true, false, (fixture, thread, ops) -> {
+			//every fourth number was never given to an account
+			int numAccounts = fixture.usernames.length;
+			int next = thread * 7919;
+			long total = 0;
+			for (int i = 0; i < ops; ++i) {
+				next = (next + 40503) % numAccounts;
+				long accNumber = 500000000000L + next * 10L + (i & 3) * ((i & 3) == 3 ? 2 : 1);
+				PersonalAccount acc = fixture.bankAccounts.FindPersonalAccount(accNumber);
+				total += acc == null ? 1 : acc.GetAccNumber();
+			}
+			return total;
+		}));
+		cases.add(new Case("Driver.FindMatchingBankAcc", true, false, (fixture, thread, ops) -> {
+			//Driver.FindMatchingBankAcc only hands the login to its registry, so the registry is called the same way
+			//every fourth login is for a username that was never registered
+			String unknownUsername = "nobody" + thread;
+			long total = 0;
+			int numAccounts = fixture.usernames.length;
+			int next = thread * 7919;
+			for (int i = 0; i < ops; ++i) {
+				next = (next + 40503) % numAccounts;
+				if ((i & 3) == 3) {
+					total += fixture.bankAccounts.FindMatchingBankAcc(unknownUsername, fixture.passwords[next]) == null ? 1 : 0;
+				}
+				else {
+					total += fixture.bankAccounts.FindMatchingBankAcc(fixture.usernames[next], fixture.passwords[next]).GetPinCode();
+				}
+			}
+			return total;
+		}));
+		return cases;
+	}
+	
+	/**
+	 * Warms up and then times an operation on several threads at once, and prints its throughput,
+	 * bytes allocated per operation and number of garbage collections
+	 * @param name name of the benchmark for the report
+	 * @param fixture the accounts to run against
+	 * @param numThreads number of threads running the operation at once
+	 * @param operation the operation to time
+	 */
+	private static void Measure(String name, Fixture fixture, int numThreads, Operation operation) {
+		for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+			RunRound(fixture, numThreads, operation, new long[3]);
+		}
+		
+		long gcsBefore = CountCollections();
+		long[] totals = new long[3];
+		for (int i = 0; i < MEASURED_ROUNDS; ++i) {
+			RunRound(fixture, numThreads, operation, totals);
+		}
+		long gcs = CountCollections() - gcsBefore;
+		
+		double opsPerMs = totals[0] / (totals[1] / 1_000_000.0);
+		double bytesPerOp = (double) totals[2] / totals[0];
+		REPORT.printf("%-62s %12.1f %12.1f %6d%n", name, opsPerMs, bytesPerOp, gcs);
+	}
+	
+	/**
+	 * Runs an operation on every thread until the round's time is up
+	 * @param fixture the accounts to run against
+	 * @param numThreads number of threads running the operation at once
+	 * @param operation the operation to run
+	 * @param totals adds the operations run, the nanoseconds the round took, and the bytes allocated
+	 */
+	private static void RunRound(Fixture fixture, int numThreads, Operation operation, long[] totals) {
+		LongAdder ops = new LongAdder();
+		LongAdder allocatedBytes = new LongAdder();
+		Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < numThreads; ++t) {
+			int thread = t;
+			threads[t] = new Thread(() -> {
+				long allocatedBefore = THREAD_BEAN.getCurrentThreadAllocatedBytes();
+				long deadline = System.nanoTime() + ROUND_NANOS;
+				long count = 0;
+				long result = 0;
+				do {
+					result += operation.Run(fixture, thread, OPS_PER_CHECK);
+					count += OPS_PER_CHECK;
+				} while (System.nanoTime() < deadline);
+				allocatedBytes.add(THREAD_BEAN.getCurrentThreadAllocatedBytes() - allocatedBefore);
+				ops.add(count);
+				sink.add(result);
+			});
+		}
+		
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			}
+			catch (InterruptedException excpt) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for a round", excpt);
+			}
+		}
+		totals[0] += ops.sum();
+		totals[1] += System.nanoTime() - start;
+		totals[2] += allocatedBytes.sum();
+	}
+	
+	/**
+	 * Counts the garbage collections made so far by every collector
+	 * @return a long that represents the number of collections
+	 */
+	private static long CountCollections() {
+		long count = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, collector.getCollectionCount());
+		}
+		return count;
+	}
+	
+	/**
+	 * Reads a comma separated list of numbers from an argument like --threads=1,4
+	 * @param arg the argument
+	 * @return the numbers in the list
+	 * @throws IllegalArgumentException if the list is empty or holds something that is not a positive number
+	 */
+	private static int[] ParseList(String arg) {
+		String[] parts = arg.substring(arg.indexOf('=') + 1).split(",");
+		int[] values = new int[parts.length];
+		for (int i = 0; i < parts.length; ++i) {
+			values[i] = Integer.parseInt(parts[i].trim());
+			if (values[i] <= 0) {
+				throw new IllegalArgumentException("Benchmark parameters must be positive: " + arg);
+			}
+		}
+		return values;
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * Class represents a fixed size Bloom filter over Strings.
+ * Used as a fast negative check, a String that was never added is almost always rejected
+ * without touching the objects it would have matched. A String that was added is never rejected.
+ * Safe for concurrent adds and lookups
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class BloomFilter {
+	/**
+	 * The bits of the filter, packed 64 to a word
+	 */
+	private final AtomicLongArray words;
+	
+	/**
+	 * The number of bits in the filter, always a power of two
+	 */
+	private final int numBits;
+	
+	/**
+	 * The number of bits set for every added String
+	 */
+	private final int numHashes;
+	
+	/**
+	 * Overload constructor sizing the filter for the expected number of Strings
+	 * @param expectedInsertions number of Strings the filter is expected to hold
+	 * @param numHashes number of bits set for every added String
+	 */
+	public BloomFilter(int expectedInsertions, int numHashes) {
+		int bits = Integer.highestOneBit(Math.max(64, expectedInsertions * 10 - 1)) << 1;
+		this.numBits = bits;
+		this.numHashes = numHashes;
+		this.words = new AtomicLongArray(bits >>> 6);
+	}
+	
+	/**
+	 * Adds a String to the filter
+	 * @param key the String to add
+	 */
+	public void Add(String key) {
+		int hash1 = key.hashCode();
+		int hash2 = Spread(hash1);
+		for (int i = 0; i < numHashes; ++i) {
+			int bit = (hash1 + i * hash2) & (numBits - 1);
+			int wordIndex = bit >>> 6;
+			long mask = 1L << bit;
+			long word = words.get(wordIndex);
+			while ((word & mask) == 0 && words.compareAndSet(wordIndex, word, word | mask) == false) {
+				word = words.get(wordIndex);
+			}
+		}
+	}
+	
+	/**
+	 * Checks if a String might have been added to the filter
+	 * @param key the String to check
+	 * @return false if the String was definitely never added, true if it might have been
+	 */
+	public boolean MightContain(String key) {
+		int hash1 = key.hashCode();
+		int hash2 = Spread(hash1);
+		for (int i = 0; i < numHashes; ++i) {
+			int bit = (hash1 + i * hash2) & (numBits - 1);
+			if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Derives a second, odd hash from the String's hash code so the probes cover the whole filter
+	 * @param hash the String's hash code
+	 * @return an int that represents the step between probes
+	 */
+	private static int Spread(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash | 1;
+	}
+}
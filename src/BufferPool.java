@@ -0,0 +1,84 @@
+/**
+ * Class keeps direct byte buffers of one size for reuse, so sessions of the bank server only hold a buffer
+ * while they have bytes waiting in it and reading or writing a session does not allocate.
+ * Safe for concurrent use
+ * @author Katie Ho
+ * @version 1.0
+ * @see BankServer
+ */
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BufferPool {
+	/**
+	 * Capacity of every buffer in the pool
+	 */
+	private final int bufferSize;
+	
+	/**
+	 * Largest number of free buffers kept, any more given back are dropped
+	 */
+	private final int maxFree;
+	
+	/**
+	 * Buffers free to be taken
+	 */
+	private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+	
+	/**
+	 * Number of buffers in the free queue
+	 */
+	private final AtomicInteger numFree = new AtomicInteger();
+	
+	/**
+	 * Overload constructor initializing all fields to its values in the parameters
+	 * @param bufferSize capacity of every buffer in the pool
+	 * @param maxFree largest number of free buffers kept
+	 * @throws IllegalArgumentException if the buffer size is not positive or the number kept is negative
+	 */
+	public BufferPool(int bufferSize, int maxFree) {
+		if (bufferSize <= 0 || maxFree < 0) {
+			throw new IllegalArgumentException("Invalid buffer pool: buffer size " + bufferSize + ", free buffers kept " + maxFree);
+		}
+		this.bufferSize = bufferSize;
+		this.maxFree = maxFree;
+	}
+	
+	/**
+	 * Takes a free buffer, or makes a new one if there is none
+	 * @return an empty buffer of the pool's size
+	 */
+	public ByteBuffer Take() {
+		ByteBuffer buffer = free.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		numFree.decrementAndGet();
+		return buffer.clear();
+	}
+	
+	/**
+	 * Gives back a buffer from Take() once nothing uses it. Buffers that did not come from a pool of this size are dropped
+	 * @param buffer the buffer
+	 */
+	public void Give(ByteBuffer buffer) {
+		if (buffer.isDirect() == false || buffer.capacity() != bufferSize) {
+			return;
+		}
+		if (numFree.incrementAndGet() > maxFree) {
+			numFree.decrementAndGet();
+			return;
+		}
+		free.add(buffer);
+	}
+	
+	/**
+	 * Gets the capacity of every buffer in the pool
+	 * @return an int that represents the size in bytes
+	 */
+	public int GetBufferSize() {
+		return bufferSize;
+	}
+}
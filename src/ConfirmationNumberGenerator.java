@@ -0,0 +1,159 @@
+/**
+ * Class represents a source of unique 10 digit confirmation numbers for transactions.
+ * Each confirmation number comes from a sequence number that is never handed out twice, scrambled
+ * by a fixed multiply and add mod 10^10 so that numbers in a row do not look alike.
+ * The scrambling is a one-to-one mapping, so different sequence numbers always give different
+ * confirmation numbers. Threads take blocks of sequence numbers at a time, so they rarely touch shared state
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+public class ConfirmationNumberGenerator {
+	/**
+	 * Number of digits in a confirmation number
+	 */
+	public static final int DIGITS = 10;
+	
+	/**
+	 * Number of different confirmation numbers, 10^10
+	 */
+	public static final long LIMIT = 10_000_000_000L;
+	
+	/**
+	 * Generator shared by every bank account so confirmation numbers are unique across the bank
+	 */
+	public static final ConfirmationNumberGenerator SHARED = new ConfirmationNumberGenerator(0L);
+	
+	/**
+	 * Multiplier of the scrambling, shares no factor with 10^10 so the mapping is one-to-one,
+	 * and is small enough that a sequence number times it fits in a long
+	 */
+	private static final long MULTIPLIER = 735_632_791L;
+	
+	/**
+	 * Amount added by the scrambling
+	 */
+	private static final long OFFSET = 4_173_902_658L;
+	
+	/**
+	 * Number of sequence numbers a thread takes at a time
+	 */
+	private static final int BLOCK_SIZE = 1024;
+	
+	/**
+	 * The first sequence number not yet handed to any thread
+	 */
+	private final AtomicLong nextSequence;
+	
+	/**
+	 * The block of sequence numbers each thread is using: the next one to use, and the end of the block
+	 */
+	private final ThreadLocal<long[]> threadBlock = ThreadLocal.withInitial(() -> new long[2]);
+	
+	/**
+	 * Told the new first unreserved sequence number every time sequence numbers are reserved, or null
+	 */
+	private volatile LongConsumer reservationListener;
+	
+	/**
+	 * Overload constructor starting the generator at a sequence number
+	 * @param firstSequence the first sequence number to hand out, past every one handed out before
+	 */
+	public ConfirmationNumberGenerator(long firstSequence) {
+		this.nextSequence = new AtomicLong(firstSequence);
+	}
+	
+	/**
+	 * Gets a new confirmation number
+	 * @return a long from 0 to 9999999999 that no other call has returned
+	 * @throws IllegalStateException if every confirmation number has been handed out
+	 */
+	public long Next() {
+		long[] block = threadBlock.get();
+		if (block[0] == block[1]) {
+			block[0] = Reserve(BLOCK_SIZE);
+			block[1] = block[0] + BLOCK_SIZE;
+		}
+		return ConfirmationNumberOf(block[0]++);
+	}
+	
+	/**
+	 * Takes a run of sequence numbers for the caller's own use, like one per transfer in a batch
+	 * @param count number of sequence numbers to take
+	 * @return a long that represents the first of the sequence numbers
+	 * @throws IllegalStateException if there are not that many confirmation numbers left
+	 * @see ConfirmationNumberGenerator#ConfirmationNumberOf(long)
+	 */
+	public long Reserve(int count) {
+		long first = nextSequence.getAndAdd(count);
+		if (first + count > LIMIT) {
+			throw new IllegalStateException("Ran out of confirmation numbers.");
+		}
+		LongConsumer listener = reservationListener;
+		if (listener != null) {
+			listener.accept(first + count);
+		}
+		return first;
+	}
+	
+	/**
+	 * Sets what is told every time sequence numbers are reserved, so a journal can record how far
+	 * the generator got before the reserved numbers are used
+	 * @param reservationListener receives the first sequence number not yet reserved, or null for nothing
+	 * @see Journal#AppendConfirmationSequence(long)
+	 */
+	public void SetReservationListener(LongConsumer reservationListener) {
+		this.reservationListener = reservationListener;
+	}
+	
+	/**
+	 * Gets the first sequence number not yet handed to any thread,
+	 * so a restarted bank can carry on without repeating a confirmation number
+	 * @return a long that represents the next sequence number
+	 */
+	public long GetNextSequence() {
+		return nextSequence.get();
+	}
+	
+	/**
+	 * Moves the generator past every sequence number below the given one, it never moves backwards
+	 * @param sequence the sequence number to carry on from
+	 */
+	public void AdvanceTo(long sequence) {
+		nextSequence.accumulateAndGet(sequence, Math::max);
+	}
+	
+	/**
+	 * Scrambles a sequence number into its confirmation number
+	 * @param sequence a reserved sequence number
+	 * @return a long from 0 to 9999999999 that represents the confirmation number
+	 */
+	public static long ConfirmationNumberOf(long sequence) {
+		return (sequence * MULTIPLIER + OFFSET) % LIMIT;
+	}
+	
+	/**
+	 * Writes a confirmation number as 10 digits, with leading zeros
+	 * @param builder where to write the confirmation number
+	 * @param confirmationNumber the confirmation number
+	 * @return the builder
+	 */
+	public static StringBuilder AppendTo(StringBuilder builder, long confirmationNumber) {
+		for (long place = LIMIT / 10; place > confirmationNumber && place > 1; place /= 10) {
+			builder.append('0');
+		}
+		return builder.append(confirmationNumber);
+	}
+	
+	/**
+	 * Writes a confirmation number as 10 digits, with leading zeros
+	 * @param confirmationNumber the confirmation number
+	 * @return a String that represents the confirmation number
+	 */
+	public static String Format(long confirmationNumber) {
+		return AppendTo(new StringBuilder(DIGITS), confirmationNumber).toString();
+	}
+}
@@ -0,0 +1,168 @@
+/**
+ * Class is an inverted index of the words in a personal account's transaction descriptions, for searching the history.
+ * Descriptions are split into terms, runs of letters and digits in lower case, and each term keeps a posting list:
+ * a growable int array of the history indexes of the transactions whose description has it, in the order they were made.
+ * Terms are kept sorted, so a prefix of a term finds every term that starts with it.
+ * Not safe for concurrent use, the owning personal account guards it
+ * @author Katie Ho
+ * @version 1.0
+ * @see PersonalAccount#SearchTransactions(String, boolean)
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.TreeMap;
+
+public class DescriptionIndex {
+	/**
+	 * Capacity of a new posting list
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+	
+	/**
+	 * Posting list of every term, keyed by the term
+	 */
+	private final TreeMap<String, Postings> postingsByTerm = new TreeMap<>();
+	
+	/**
+	 * History indexes of the transactions with a term, in increasing order
+	 */
+	private static final class Postings {
+		private int[] indexes = new int[INITIAL_CAPACITY];
+		private int size;
+		
+		void Add(int index) {
+			//a term used twice in one description is only posted once
+			if (size > 0 && indexes[size - 1] == index) {
+				return;
+			}
+			if (size == indexes.length) {
+				indexes = Arrays.copyOf(indexes, size * 2);
+			}
+			indexes[size++] = index;
+		}
+	}
+	
+	/**
+	 * Adds the terms of a transaction's description, the transaction must come after every transaction already added
+	 * @param index index of the transaction in the history
+	 * @param description description portion of the transaction
+	 */
+	public void Add(int index, String description) {
+		for (String term : Tokenize(description)) {
+			postingsByTerm.computeIfAbsent(term, key -> new Postings()).Add(index);
+		}
+	}
+	
+	/**
+	 * Finds the transactions whose description has every term of a query
+	 * @param query words to search for, split into terms the same way as descriptions
+	 * @param prefix whether the last term of the query also matches any longer term that starts with it, like "amaz" for "amazon"
+	 * @return an int array of the history indexes of the matching transactions in the order they were made, empty if the query has no terms
+	 */
+	public int[] Find(String query, boolean prefix) {
+		ArrayList<String> terms = Tokenize(query);
+		int[] matches = new int[0];
+		for (int i = 0; i < terms.size(); ++i) {
+			int[] termMatches = prefix && i == terms.size() - 1 ? FindPrefix(terms.get(i)) : FindTerm(terms.get(i));
+			matches = i == 0 ? termMatches : Intersect(matches, termMatches);
+			if (matches.length == 0) {
+				break;
+			}
+		}
+		return matches;
+	}
+	
+	/**
+	 * Finds the transactions whose description has a term
+	 * @param term the term
+	 * @return an int array of the history indexes in increasing order
+	 */
+	private int[] FindTerm(String term) {
+		Postings postings = postingsByTerm.get(term);
+		return postings == null ? new int[0] : Arrays.copyOf(postings.indexes, postings.size);
+	}
+	
+	/**
+	 * Finds the transactions whose description has any term that starts with a prefix
+	 * @param prefix the start of the terms
+	 * @return an int array of the history indexes in increasing order, without repeats
+	 */
+	private int[] FindPrefix(String prefix) {
+		int numMatches = 0;
+		int numTerms = 0;
+		for (Postings postings : postingsByTerm.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+			numMatches += postings.size;
+			++numTerms;
+		}
+		if (numTerms == 1) {
+			return FindTerm(postingsByTerm.ceilingKey(prefix));
+		}
+		
+		int[] matches = new int[numMatches];
+		int filled = 0;
+		for (Postings postings : postingsByTerm.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+			System.arraycopy(postings.indexes, 0, matches, filled, postings.size);
+			filled += postings.size;
+		}
+		Arrays.sort(matches);
+		
+		int numDistinct = 0;
+		for (int i = 0; i < matches.length; ++i) {
+			if (i == 0 || matches[i] != matches[numDistinct - 1]) {
+				matches[numDistinct++] = matches[i];
+			}
+		}
+		return Arrays.copyOf(matches, numDistinct);
+	}
+	
+	/**
+	 * Keeps the history indexes that are in both of two increasing lists
+	 * @param first increasing history indexes
+	 * @param second increasing history indexes
+	 * @return an int array of the history indexes in both lists, in increasing order
+	 */
+	private static int[] Intersect(int[] first, int[] second) {
+		int[] both = new int[Math.min(first.length, second.length)];
+		int numBoth = 0;
+		int i = 0;
+		int j = 0;
+		while (i < first.length && j < second.length) {
+			if (first[i] < second[j]) {
+				++i;
+			}
+			else if (first[i] > second[j]) {
+				++j;
+			}
+			else {
+				both[numBoth++] = first[i];
+				++i;
+				++j;
+			}
+		}
+		return Arrays.copyOf(both, numBoth);
+	}
+	
+	/**
+	 * Splits text into terms: runs of letters and digits, in lower case
+	 * @param text the text to split
+	 * @return an ArrayList of the terms in the order they appear, with repeats
+	 */
+	private static ArrayList<String> Tokenize(String text) {
+		ArrayList<String> terms = new ArrayList<>();
+		String lowerCase = text.toLowerCase(Locale.ROOT);
+		int start = -1;
+		for (int i = 0; i <= lowerCase.length(); ++i) {
+			boolean inTerm = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+			if (inTerm && start < 0) {
+				start = i;
+			}
+			else if (inTerm == false && start >= 0) {
+				terms.add(lowerCase.substring(start, i));
+				start = -1;
+			}
+		}
+		return terms;
+	}
+}
@@ -4,12 +4,25 @@
  * Users can then explore different activities they can do with their account.
  * Activities include transferring money between personal checking accounts, withdrawing/depositing money, 
  * and viewing past transactions made on the personal account.
+ * Started with --server [port], the same activities are served over TCP on the loopback address to many users at once instead.
+ * With --metrics, the banking operations are counted and timed and can be read through JMX, and a server also prints them every minute
  * @author Katie Ho
  * @version 1.0
  */
 
-import java.util.Scanner;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 
 
@@ -17,7 +30,57 @@ public class Driver{
 	/**
 	 * Record of all the bank accounts made at this bank
 	 */
-	private static ArrayList<BankAccount> bankAccounts = new ArrayList<BankAccount>();
+	private static AccountRegistry bankAccounts = new AccountRegistry();
+	
+	/**
+	 * Location of the journal the bank is rebuilt from when it starts
+	 */
+	private static final Path JOURNAL_PATH = Paths.get("bank.journal");
+	
+	/**
+	 * Location of the latest snapshot of the bank, loaded before the journal is replayed
+	 */
+	private static final Path SNAPSHOT_PATH = Paths.get("bank.snapshot");
+	
+	/**
+	 * Minutes between snapshots while the bank is running
+	 */
+	private static final long SNAPSHOT_INTERVAL_MINUTES = 5;
+	
+	/**
+	 * Journal every change made at this bank is written to, or null before it is opened
+	 */
+	private static Journal journal;
+	
+	/**
+	 * Background thread taking a snapshot every few minutes
+	 */
+	private static ScheduledExecutorService snapshotTimer;
+	
+	/**
+	 * Background thread printing the metrics every METRICS_INTERVAL_SECONDS, apart from the snapshots so a slow snapshot does not hold it up
+	 */
+	private static ScheduledExecutorService metricsTimer;
+	
+	/**
+	 * Whether the bank was closed, guarded by Driver's lock
+	 */
+	private static boolean bankClosed;
+	
+	/**
+	 * Port the server listens on when none is given
+	 */
+	private static final int SERVER_PORT = 8023;
+	
+	/**
+	 * Threads running the server's commands, enough that many sessions wait on the journal together
+	 */
+	private static final int SERVER_WORKERS = 4 * Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * Seconds between the server printing its metrics
+	 */
+	private static final long METRICS_INTERVAL_SECONDS = 60;
 	
 	/**
 	 * Creates a new bank account and adds it the the record of bank account
@@ -27,40 +90,95 @@ public class Driver{
 	 * @param firstName first name of the account's user
 	 * @param lastName last name of the account's user
 	 * @return a newly made bank account
+	 * @throws IllegalArgumentException if another bank account already has the username
+	 * @see AccountRegistry#Register(BankAccount)
+	 * @see Journal#AppendBankAccount(String, String, int, String, String)
 	 */
 	private static BankAccount CreateBankAccount(String username, String password, int pinCode, String firstName, String lastName) {
 		BankAccount bankAccount = new BankAccount(username, password, pinCode, firstName, lastName);
-		bankAccounts.add(bankAccount);
+		if (bankAccounts.Register(bankAccount) == false) {
+			throw new IllegalArgumentException("Username " + username + " is already taken.");
+		}
+		
+		if (journal != null) {
+			journal.AwaitDurable(journal.AppendBankAccount(username, password, pinCode, firstName, lastName));
+			bankAccount.SetJournal(journal);
+		}
 		
 		return bankAccount;
 	}
 	
 	/**
-	 * Searches for a bank account in the list of a bank accounts and identifies a match based on same username and password
-	 * @param usernameInput user's input for the username
-	 * @param passwordInput user's input for the password
-	 * @return a bank account that matches the login information
+	 * Rebuilds the record of bank accounts from the latest snapshot and the journal written since,
+	 * then opens the journal so every later change is written to it and starts taking snapshots every few minutes.
+	 * If much of the journal had to be replayed, a new snapshot is taken right away
+	 * @throws IOException if the snapshot or journal cannot be read, or the journal cannot be opened
+	 * @see Snapshot#Load(Path, AccountRegistry, ConfirmationNumberGenerator)
+	 * @see ReplayEngine#Replay(Path, long, AccountRegistry, ConfirmationNumberGenerator, ForkJoinPool)
 	 */
-	private static BankAccount FindMatchingBankAcc(String usernameInput, String passwordInput) {
-		for (int i = 0; i < bankAccounts.size(); ++i) {
-			if (bankAccounts.get(i).VerifyLogin(usernameInput, passwordInput) == true) {
-				return bankAccounts.get(i);
-			}
+	private static void LoadBank() throws IOException {
+		long snapshotPosition = Snapshot.Load(SNAPSHOT_PATH, bankAccounts, ConfirmationNumberGenerator.SHARED);
+		long numReplayed = ReplayEngine.Replay(JOURNAL_PATH, snapshotPosition, bankAccounts, ConfirmationNumberGenerator.SHARED, ForkJoinPool.commonPool());
+		
+		journal = Journal.Open(JOURNAL_PATH);
+		for (BankAccount bankAccount : bankAccounts.GetBankAccounts()) {
+			bankAccount.SetJournal(journal);
 		}
-		return null;
+		ConfirmationNumberGenerator.SHARED.SetReservationListener(journal::AppendConfirmationSequence);
+		
+		if (numReplayed > 0) {
+			SaveSnapshot();
+		}
+		snapshotTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		snapshotTimer.scheduleWithFixedDelay(Driver::SaveSnapshot, SNAPSHOT_INTERVAL_MINUTES, SNAPSHOT_INTERVAL_MINUTES, TimeUnit.MINUTES);
 	}
 	
 	/**
-	 * Simulates user experience on mobile banking app
-	 * @param args command line-arguments
+	 * Takes a snapshot of every account at the bank
+	 * @see Snapshot#Write(Path, AccountRegistry, Journal, ConfirmationNumberGenerator)
+	 */
+	private static void SaveSnapshot() {
+		try {
+			Snapshot.Write(SNAPSHOT_PATH, bankAccounts, journal, ConfirmationNumberGenerator.SHARED);
+		}
+		catch (IOException excpt) {
+			System.out.println("ERROR: Snapshot could not be saved. " + excpt.getMessage());
+		}
+	}
+	
+	/**
+	 * Stops the snapshot and metrics timers, takes a last snapshot, and closes the journal with every change durable.
+	 * Only the first call closes the bank, so the server and its shutdown hook can both call it
+	 */
+	private static synchronized void CloseBank() {
+		if (bankClosed) {
+			return;
+		}
+		bankClosed = true;
+		snapshotTimer.shutdown();
+		if (metricsTimer != null) {
+			metricsTimer.shutdown();
+		}
+		SaveSnapshot();
+		try {
+			journal.close();
+		}
+		catch (IOException excpt) {
+			System.out.println("ERROR: " + excpt.getMessage());
+		}
+	}
+	
+	/**
+	 * Creates the mock bank accounts, personal accounts, and transactions the bank starts with
 	 * @see Driver#CreateBankAccount(String, String, int, String, String)
 	 * @see BankAccount#CreatePersonalAccount(String, long, double)
 	 * @see PersonalAccount#CreateTransaction(String, String, String, double)
 	 */
-	public static void main(String[] args) {
-		/*
-		 * mock accounts
-		 */
+	private static void CreateMockAccounts() {
 		BankAccount mockAcc1 = CreateBankAccount("rick", "san", 1234, "Rick", "Sanchez");
 		BankAccount mockAcc2 = CreateBankAccount("morty", "smi", 4321, "Morty", "Smith");
 		
@@ -85,6 +203,119 @@ public class Driver{
 		Transaction mockTransaction14 = mockSaving2.CreateTransaction("12/31/2022", "Online Banking Transfer from CHK 9232 Confirmation #2849539105", "Transfer", 34.00);
 		Transaction mockTransaction15 = mockSaving2.CreateTransaction("12/22/2022", "Online Banking Transfer from CHK 9232 Confirmation #9353066105", "Transfer", 360.00);
 		Transaction mockTransaction16 = mockSaving2.CreateTransaction("12/18/2022", "Online Banking Transfer to CHK 2332 Confirmation #29348285442", "Transfer", -50.00);
+	}
+	
+	/**
+	 * Looks up a bank account in the record of bank accounts by username and identifies a match based on same username and password
+	 * @param usernameInput user's input for the username
+	 * @param passwordInput user's input for the password
+	 * @return a bank account that matches the login information
+	 * @see AccountRegistry#FindMatchingBankAcc(String, String)
+	 */
+	private static BankAccount FindMatchingBankAcc(String usernameInput, String passwordInput) {
+		return bankAccounts.FindMatchingBankAcc(usernameInput, passwordInput);
+	}
+	
+	/**
+	 * Turns on the metrics of the banking operations and registers them with JMX
+	 * @param printPeriodically whether to also print them every METRICS_INTERVAL_SECONDS on a thread of their own
+	 * @see BankMetrics
+	 */
+	private static void StartMetrics(boolean printPeriodically) {
+		BankMetrics.SetEnabled(true);
+		BankMetrics.RegisterMBeans();
+		if (printPeriodically) {
+			metricsTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "metrics");
+				thread.setDaemon(true);
+				return thread;
+			});
+			metricsTimer.scheduleAtFixedRate(Driver::PrintMetrics, METRICS_INTERVAL_SECONDS, METRICS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+		}
+	}
+	
+	/**
+	 * Prints the metrics, reporting a failure instead of throwing so the next print still runs
+	 */
+	private static void PrintMetrics() {
+		try {
+			System.out.print(BankMetrics.Dump());
+		}
+		catch (RuntimeException excpt) {
+			System.out.println("ERROR: Metrics could not be printed. " + excpt.getMessage());
+		}
+	}
+	
+	/**
+	 * Serves the bank over TCP on the loopback address until the program is stopped, then closes the bank.
+	 * The server and the bank are also closed if the server cannot be opened or stops with an error
+	 * @param port port to listen on
+	 * @throws IOException if the port cannot be listened on, or the server fails
+	 * @see BankServer
+	 */
+	private static void RunServer(int port) throws IOException {
+		try {
+			BankServer server = BankServer.Open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), bankAccounts, SERVER_WORKERS);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				server.close();
+				CloseBank();
+			}, "shutdown"));
+			
+			System.out.println("Bank of PollyWolly is serving on port " + server.GetPort() + ".");
+			try {
+				server.Run();
+			}
+			finally {
+				server.close();
+			}
+		}
+		finally {
+			CloseBank();
+		}
+	}
+	
+	/**
+	 * Simulates user experience on mobile banking app
+	 * @param args command line-arguments, --server and an optional port to serve the app over TCP instead, and --metrics to turn on metrics
+	 * @see Driver#LoadBank()
+	 * @see Driver#CreateMockAccounts()
+	 * @see Driver#StartMetrics(boolean)
+	 * @see Driver#RunServer(int)
+	 */
+	public static void main(String[] args) {
+		List<String> options = new ArrayList<>(Arrays.asList(args));
+		boolean useMetrics = options.remove("--metrics");
+		boolean useServer = options.size() > 0 && options.get(0).equals("--server");
+		
+		/*
+		 * bank accounts from the snapshot and journal, or the mock accounts the first time the bank starts
+		 */
+		try {
+			LoadBank();
+		}
+		catch (Exception excpt) {
+			System.out.println("ERROR: Bank records could not be loaded. " + excpt.getMessage());
+			return;
+		}
+		if (bankAccounts.Size() == 0) {
+			CreateMockAccounts();
+		}
+		if (useMetrics) {
+			StartMetrics(useServer);
+		}
+		
+		/*
+		 * server mode, every user connects over TCP instead of the console
+		 */
+		if (useServer) {
+			try {
+				RunServer(options.size() > 1 ? Integer.parseInt(options.get(1)) : SERVER_PORT);
+			}
+			catch (Exception excpt) {
+				System.out.println("ERROR: Server could not be run. " + excpt.getMessage());
+			}
+			return;
+		}
 		
 		
 		
@@ -376,6 +607,7 @@ public class Driver{
 					 */
 					else if (userChoice == 5) {
 						System.out.println("Thank you for using Bank Of PollyWolly!");
+						CloseBank();
 						needChoice = false;
 					}
 				}
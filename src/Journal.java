@@ -0,0 +1,878 @@
+/**
+ * Class represents an append-only journal of every change made at the bank, kept in a file so the bank
+ * can be rebuilt after a restart.
+ * Each event is a compact binary record: its length, a CRC32 of its body, then the body.
+ * Appending a record only copies it into memory and gives back its end position in the file;
+ * a caller that needs the record to be durable waits for that position with AwaitDurable(long).
+ * Writers waiting at the same time share one write and one fsync: the first becomes the leader and syncs
+ * everything appended so far while the rest wait, and whatever is appended during that sync goes out
+ * together in the next one (group commit). Records that must survive a crash together, like the two sides of a transfer,
+ * are gathered in a Group and appended as one GROUP record, which is read back whole or not at all. Safe for concurrent use
+ * @author Katie Ho
+ * @version 1.0
+ * @see JournalListener
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+public class Journal implements AutoCloseable {
+	/**
+	 * Record kinds, the first byte of every record body.
+	 * A GROUP record holds transaction and balance records that are replayed all together or not at all
+	 */
+	private static final byte BANK_ACCOUNT = 1;
+	private static final byte PERSONAL_ACCOUNT = 2;
+	private static final byte BALANCE = 4;
+	private static final byte CONFIRMATION_SEQUENCE = 5;
+	private static final byte DESCRIBED_TRANSACTION = 6;
+	private static final byte GROUP = 7;
+	
+	/**
+	 * Bytes in front of every record body: the body's length and its CRC32
+	 */
+	private static final int HEADER_SIZE = 8;
+	
+	/**
+	 * Largest record body accepted, large enough for a group holding a whole batch of transfers.
+	 * Anything bigger in the file is treated as a torn write
+	 */
+	private static final int MAX_BODY_SIZE = 1 << 26;
+	
+	/**
+	 * Starting size of the buffers records are gathered in
+	 */
+	private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * Starting size of a group's buffer, enough for the two sides of a transfer
+	 */
+	private static final int INITIAL_GROUP_SIZE = 256;
+	
+	/**
+	 * Interface for receiving every record read back from a journal, undecoded
+	 */
+	@FunctionalInterface
+	public interface RecordReader {
+		/**
+		 * Called for every complete record, oldest first
+		 * @param body the record body, positioned at its kind, only valid during the call
+		 * @param endPosition position in the file just past the record
+		 * @throws IOException if the record cannot be handled
+		 */
+		void OnRecord(ByteBuffer body, long endPosition) throws IOException;
+	}
+	
+	/**
+	 * Transaction and balance records gathered to be appended together as one GROUP record,
+	 * so after a crash either every one of them is replayed or none is.
+	 * Each record is kept as its length and its body. Not safe for concurrent use
+	 * @see Journal#AppendGroup(Group)
+	 */
+	public static final class Group {
+		private ByteBuffer records = ByteBuffer.allocate(INITIAL_GROUP_SIZE);
+		private int count;
+		
+		/**
+		 * Adds a transaction made on a personal account to the group.
+		 * Transactions of one account must be added in the order they changed its balance
+		 * @param accNumber identifying number of the personal account
+		 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+		 * @param descriptionKind kind of the description
+		 * @param description description portion of the transaction for TransactionDescription.TEXT, or the other account's shortened name and number
+		 * @param confirmationNumber confirmation number of the description, unused for TransactionDescription.TEXT
+		 * @param type type portion of the transaction
+		 * @param amountCents amount/cost portion of the transaction in cents
+		 * @param balanceCents balance of the personal account after the transaction in cents
+		 * @see Journal#AppendTransaction(long, int, byte, String, long, String, long, long)
+		 */
+		public void AddTransaction(long accNumber, int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amountCents, long balanceCents) {
+			byte[] descriptionBytes = Encode(description);
+			byte[] typeBytes = Encode(type);
+			BeginEntry(DESCRIBED_TRANSACTION, TransactionSize(descriptionBytes, typeBytes));
+			PutTransaction(records, accNumber, postingDay, descriptionKind, descriptionBytes, confirmationNumber, typeBytes, amountCents, balanceCents);
+		}
+		
+		/**
+		 * Adds a personal account's balance being set directly to the group
+		 * @param accNumber identifying number of the personal account
+		 * @param balanceCents the balance it was set to in cents
+		 * @see Journal#AppendBalance(long, long)
+		 */
+		public void AddBalance(long accNumber, long balanceCents) {
+			BeginEntry(BALANCE, 16);
+			records.putLong(accNumber);
+			records.putLong(balanceCents);
+		}
+		
+		/**
+		 * Checks if nothing was added to the group
+		 * @return a boolean that represents whether the group holds no records
+		 */
+		public boolean IsEmpty() {
+			return count == 0;
+		}
+		
+		/**
+		 * Starts a record in the group, making room for all of it
+		 * @param kind the kind of record
+		 * @param fieldsSize number of bytes of the record's fields
+		 */
+		private void BeginEntry(byte kind, int fieldsSize) {
+			int size = 4 + 1 + fieldsSize;
+			if (records.remaining() < size) {
+				int capacity = records.capacity();
+				while (capacity - records.position() < size) {
+					capacity *= 2;
+				}
+				ByteBuffer larger = ByteBuffer.allocate(capacity);
+				records.flip();
+				larger.put(records);
+				records = larger;
+			}
+			records.putInt(1 + fieldsSize);
+			records.put(kind);
+			++count;
+		}
+	}
+	
+	/**
+	 * The journal file
+	 */
+	private final FileChannel channel;
+	
+	/**
+	 * Lock guarding every field below
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	/**
+	 * Signalled whenever a sync finishes
+	 */
+	private final Condition syncFinished = lock.newCondition();
+	
+	/**
+	 * Checksum reused for every record
+	 */
+	private final CRC32 crc = new CRC32();
+	
+	/**
+	 * Records appended but not yet handed to a sync
+	 */
+	private ByteBuffer pending = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+	
+	/**
+	 * Empty buffer swapped in for the pending one when a sync takes it
+	 */
+	private ByteBuffer spare = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+	
+	/**
+	 * Position in the file just past the last appended record
+	 */
+	private long appendedPosition;
+	
+	/**
+	 * Position in the file up to which every record is written and synced
+	 */
+	private long durablePosition;
+	
+	/**
+	 * Whether a thread is writing and syncing right now
+	 */
+	private boolean syncing;
+	
+	/**
+	 * Number of syncs made so far
+	 */
+	private long syncCount;
+	
+	/**
+	 * The error a sync failed with, after which nothing more can be made durable
+	 */
+	private IOException failure;
+	
+	/**
+	 * Whether the journal was closed
+	 */
+	private boolean closed;
+	
+	/**
+	 * Constructor that writes after the records already in the file
+	 * @param channel the journal file opened for writing
+	 * @throws IOException if the file's size cannot be read
+	 */
+	private Journal(FileChannel channel) throws IOException {
+		this.channel = channel;
+		this.appendedPosition = channel.size();
+		this.durablePosition = appendedPosition;
+	}
+	
+	/**
+	 * Opens a journal file to append to, making it if it does not exist.
+	 * Replay the file first, any torn record at its end must already be cut off
+	 * @param path location of the journal file
+	 * @return the opened journal
+	 * @throws IOException if the file cannot be opened
+	 * @see Journal#Replay(Path, JournalListener)
+	 */
+	public static Journal Open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		channel.position(channel.size());
+		return new Journal(channel);
+	}
+	
+	/**
+	 * Records that a bank account was made
+	 * @param username username portion of the bank account login
+	 * @param password password portion of the bank account login
+	 * @param pinCode pin code portion of the bank account login
+	 * @param firstName first name of the account's user
+	 * @param lastName last name of the account's user
+	 * @return a long that represents the position to wait for to make the record durable
+	 */
+	public long AppendBankAccount(String username, String password, int pinCode, String firstName, String lastName) {
+		byte[] usernameBytes = Encode(username);
+		byte[] passwordBytes = Encode(password);
+		byte[] firstNameBytes = Encode(firstName);
+		byte[] lastNameBytes = Encode(lastName);
+		lock.lock();
+		try {
+			int start = BeginRecord(BANK_ACCOUNT, 4 + SizeOf(usernameBytes) + SizeOf(passwordBytes) + SizeOf(firstNameBytes) + SizeOf(lastNameBytes));
+			PutString(pending, usernameBytes);
+			PutString(pending, passwordBytes);
+			pending.putInt(pinCode);
+			PutString(pending, firstNameBytes);
+			PutString(pending, lastNameBytes);
+			return EndRecord(start);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records that a personal account was made
+	 * @param ownerUsername username of the bank account the personal account belongs to
+	 * @param accName personal account's name
+	 * @param accNumber personal account's identifying number
+	 * @param balanceCents personal account's opening balance in cents
+	 * @return a long that represents the position to wait for to make the record durable
+	 */
+	public long AppendPersonalAccount(String ownerUsername, String accName, long accNumber, long balanceCents) {
+		byte[] ownerUsernameBytes = Encode(ownerUsername);
+		byte[] accNameBytes = Encode(accName);
+		lock.lock();
+		try {
+			int start = BeginRecord(PERSONAL_ACCOUNT, 16 + SizeOf(ownerUsernameBytes) + SizeOf(accNameBytes));
+			PutString(pending, ownerUsernameBytes);
+			PutString(pending, accNameBytes);
+			pending.putLong(accNumber);
+			pending.putLong(balanceCents);
+			return EndRecord(start);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records a transaction made on a personal account.
+	 * Transactions of one account must be appended in the order they changed its balance
+	 * @param accNumber identifying number of the personal account
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param description description portion of the transaction
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @param balanceCents balance of the personal account after the transaction in cents
+	 * @return a long that represents the position to wait for to make the record durable
+	 * @see Journal#AppendTransaction(long, int, byte, String, long, String, long, long)
+	 */
+	public long AppendTransaction(long accNumber, int postingDay, String description, String type, long amountCents, long balanceCents) {
+		return AppendTransaction(accNumber, postingDay, TransactionDescription.TEXT, description, 0L, type, amountCents, balanceCents);
+	}
+	
+	/**
+	 * Records a transaction with a structured description made on a personal account.
+	 * Transactions of one account must be appended in the order they changed its balance
+	 * @param accNumber identifying number of the personal account
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param descriptionKind kind of the description
+	 * @param description description portion of the transaction for TransactionDescription.TEXT, or the other account's shortened name and number
+	 * @param confirmationNumber confirmation number of the description, unused for TransactionDescription.TEXT
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @param balanceCents balance of the personal account after the transaction in cents
+	 * @return a long that represents the position to wait for to make the record durable
+	 */
+	public long AppendTransaction(long accNumber, int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amountCents, long balanceCents) {
+		byte[] descriptionBytes = Encode(description);
+		byte[] typeBytes = Encode(type);
+		lock.lock();
+		try {
+			int start = BeginRecord(DESCRIBED_TRANSACTION, TransactionSize(descriptionBytes, typeBytes));
+			PutTransaction(pending, accNumber, postingDay, descriptionKind, descriptionBytes, confirmationNumber, typeBytes, amountCents, balanceCents);
+			return EndRecord(start);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records that a personal account's balance was set directly
+	 * @param accNumber identifying number of the personal account
+	 * @param balanceCents the balance it was set to in cents
+	 * @return a long that represents the position to wait for to make the record durable
+	 */
+	public long AppendBalance(long accNumber, long balanceCents) {
+		lock.lock();
+		try {
+			int start = BeginRecord(BALANCE, 16);
+			pending.putLong(accNumber);
+			pending.putLong(balanceCents);
+			return EndRecord(start);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records every transaction and balance in a group as one record, so they are durable all together or not at all
+	 * @param group the records to append, which must not be empty
+	 * @return a long that represents the position to wait for to make every record in the group durable
+	 * @see Journal#ReadGroup(ByteBuffer, long, RecordReader)
+	 */
+	public long AppendGroup(Group group) {
+		lock.lock();
+		try {
+			int start = BeginRecord(GROUP, 4 + group.records.position());
+			pending.putInt(group.count);
+			pending.put(group.records.duplicate().flip());
+			return EndRecord(start);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records that confirmation numbers were reserved up to a sequence number.
+	 * Any transaction using one of them is appended after this record, so it is never durable without it
+	 * @param nextSequence the first confirmation sequence number not yet reserved
+	 * @return a long that represents the position to wait for to make the record durable
+	 * @see ConfirmationNumberGenerator#SetReservationListener(java.util.function.LongConsumer)
+	 */
+	public long AppendConfirmationSequence(long nextSequence) {
+		lock.lock();
+		try {
+			int start = BeginRecord(CONFIRMATION_SEQUENCE, 8);
+			pending.putLong(nextSequence);
+			return EndRecord(start);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Waits until every record up to a position is written to the file and synced.
+	 * If no other thread is syncing, the caller syncs every record appended so far itself,
+	 * otherwise it waits for that thread and, if its record was not included, for the next sync
+	 * @param position a position returned when a record was appended, 0 returns right away
+	 * @throws UncheckedIOException if writing or syncing the file failed
+	 */
+	public void AwaitDurable(long position) {
+		lock.lock();
+		try {
+			while (durablePosition < position) {
+				if (failure != null) {
+					throw new UncheckedIOException("Journal could not be written.", failure);
+				}
+				if (syncing) {
+					syncFinished.awaitUninterruptibly();
+				}
+				else {
+					Sync();
+				}
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Gets the position in the file just past the last appended record.
+	 * Every record appended before this call ends at or before it
+	 * @return a long that represents the appended position
+	 */
+	public long GetAppendedPosition() {
+		lock.lock();
+		try {
+			return appendedPosition;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Gets the number of times the file has been synced, which is less than the number of records
+	 * whenever writers waited together
+	 * @return a long that represents the number of syncs
+	 */
+	public long GetSyncCount() {
+		lock.lock();
+		try {
+			return syncCount;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Makes every appended record durable, then closes the file
+	 * @throws IOException if the file could not be written, synced, or closed
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			try {
+				AwaitDurable(appendedPosition);
+			}
+			catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			closed = true;
+		}
+		finally {
+			lock.unlock();
+		}
+		channel.close();
+	}
+	
+	/**
+	 * Reads every complete record in a journal file, oldest first, and passes it to the listener.
+	 * Reading stops at the first record that is cut short or fails its checksum, which is what a crash
+	 * in the middle of a write leaves behind, and the file is cut back to just before it
+	 * @param path location of the journal file, nothing is read if it does not exist
+	 * @param listener receives every record read
+	 * @return a long that represents the number of records read
+	 * @throws IOException if the file cannot be read
+	 * @see Journal#Replay(Path, long, JournalListener)
+	 */
+	public static long Replay(Path path, JournalListener listener) throws IOException {
+		return Replay(path, 0L, listener);
+	}
+	
+	/**
+	 * Reads every complete record in a journal file from a position on, like the position a snapshot was taken at
+	 * @param path location of the journal file
+	 * @param fromPosition position of the first record to read, the end of an earlier record
+	 * @param listener receives every record read
+	 * @return a long that represents the number of records read
+	 * @throws IOException if the file cannot be read, or is shorter than the position
+	 * @see Journal#Replay(Path, JournalListener)
+	 * @see Journal#ReadRecords(Path, long, RecordReader)
+	 */
+	public static long Replay(Path path, long fromPosition, JournalListener listener) throws IOException {
+		return ReadRecords(path, fromPosition, (body, endPosition) -> Dispatch(body, endPosition, listener));
+	}
+	
+	/**
+	 * Reads every complete record in a journal file from a position on and passes it to the reader undecoded,
+	 * stopping at and cutting off a torn record the same way as Replay(Path, long, JournalListener)
+	 * @param path location of the journal file
+	 * @param fromPosition position of the first record to read, the end of an earlier record
+	 * @param reader receives every record read
+	 * @return a long that represents the number of records read
+	 * @throws IOException if the file cannot be read, is shorter than the position, or the reader fails
+	 * @see Journal#Dispatch(ByteBuffer, long, JournalListener)
+	 */
+	public static long ReadRecords(Path path, long fromPosition, RecordReader reader) throws IOException {
+		if (Files.exists(path) == false) {
+			if (fromPosition > 0) {
+				throw new IOException("Journal " + path + " is missing records up to " + fromPosition + ".");
+			}
+			return 0;
+		}
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long size = channel.size();
+			if (size < fromPosition) {
+				throw new IOException("Journal " + path + " is missing records up to " + fromPosition + ".");
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			ByteBuffer body = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+			CRC32 checksum = new CRC32();
+			long position = fromPosition;
+			long count = 0;
+			while (position + HEADER_SIZE <= size) {
+				header.clear();
+				ReadFully(channel, header, position);
+				int bodySize = header.getInt(0);
+				if (bodySize <= 0 || bodySize > MAX_BODY_SIZE || position + HEADER_SIZE + bodySize > size) {
+					break;
+				}
+				
+				if (bodySize > body.capacity()) {
+					body = ByteBuffer.allocate(Math.max(bodySize, body.capacity() * 2));
+				}
+				body.clear().limit(bodySize);
+				ReadFully(channel, body, position + HEADER_SIZE);
+				checksum.reset();
+				checksum.update(body.array(), 0, bodySize);
+				if ((int) checksum.getValue() != header.getInt(4)) {
+					break;
+				}
+				
+				body.flip();
+				position += HEADER_SIZE + bodySize;
+				reader.OnRecord(body, position);
+				++count;
+			}
+			
+			if (position < size) {
+				channel.truncate(position);
+				channel.force(true);
+			}
+			return count;
+		}
+	}
+	
+	/**
+	 * Writes every pending record to the file and syncs it, releasing the lock while the file is busy
+	 * so other threads can keep appending. Called holding the lock, with no other sync running
+	 */
+	private void Sync() {
+		syncing = true;
+		ByteBuffer batch = pending;
+		pending = spare;
+		long target = appendedPosition;
+		IOException error = null;
+		
+		lock.unlock();
+		try {
+			batch.flip();
+			while (batch.hasRemaining()) {
+				channel.write(batch);
+			}
+			channel.force(false);
+		}
+		catch (IOException e) {
+			error = e;
+		}
+		finally {
+			lock.lock();
+		}
+		
+		batch.clear();
+		spare = batch;
+		syncing = false;
+		++syncCount;
+		if (error != null) {
+			failure = error;
+		}
+		else {
+			durablePosition = target;
+		}
+		syncFinished.signalAll();
+	}
+	
+	/**
+	 * Starts a record in the pending buffer, making room for all of it and leaving room for its header. Called holding the lock
+	 * @param kind the kind of record
+	 * @param fieldsSize number of bytes of the record's fields
+	 * @return an int that represents where the record starts in the pending buffer
+	 * @throws IllegalStateException if the journal was closed or could not be written
+	 * @throws IllegalArgumentException if the record is too large
+	 */
+	private int BeginRecord(byte kind, int fieldsSize) {
+		if (closed || failure != null) {
+			throw new IllegalStateException("Journal is closed.");
+		}
+		if (1 + fieldsSize > MAX_BODY_SIZE) {
+			throw new IllegalArgumentException("Journal record is too large.");
+		}
+		EnsureRemaining(HEADER_SIZE + 1 + fieldsSize);
+		int start = pending.position();
+		pending.position(start + HEADER_SIZE);
+		pending.put(kind);
+		return start;
+	}
+	
+	/**
+	 * Fills in the header of the record being written. Called holding the lock
+	 * @param start where the record starts in the pending buffer
+	 * @return a long that represents the position in the file just past the record
+	 */
+	private long EndRecord(int start) {
+		int end = pending.position();
+		int bodySize = end - start - HEADER_SIZE;
+		
+		crc.reset();
+		crc.update(pending.duplicate().position(start + HEADER_SIZE).limit(end));
+		pending.putInt(start, bodySize);
+		pending.putInt(start + 4, (int) crc.getValue());
+		appendedPosition += end - start;
+		return appendedPosition;
+	}
+	
+	/**
+	 * Encodes a String in UTF-8 before taking the lock, so the lock is only held to copy bytes
+	 * @param value the String to encode
+	 * @return the String's bytes, or null if the String is null
+	 */
+	private static byte[] Encode(String value) {
+		return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Gets the number of bytes PutString(ByteBuffer, byte[]) writes for an encoded String
+	 * @param bytes the encoded String, or null
+	 * @return an int that represents the number of bytes
+	 */
+	private static int SizeOf(byte[] bytes) {
+		return bytes == null ? 4 : 4 + bytes.length;
+	}
+	
+	/**
+	 * Writes an encoded String as its length and bytes, null is written as length -1.
+	 * Called with room for it already made, like by BeginRecord(byte, int) holding the lock
+	 * @param buffer where to write the String
+	 * @param bytes the encoded String, or null
+	 */
+	private static void PutString(ByteBuffer buffer, byte[] bytes) {
+		if (bytes == null) {
+			buffer.putInt(-1);
+			return;
+		}
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+	
+	/**
+	 * Gets the number of bytes PutTransaction writes for a transaction's fields
+	 * @param descriptionBytes the encoded description, or null
+	 * @param typeBytes the encoded type, or null
+	 * @return an int that represents the number of bytes
+	 */
+	private static int TransactionSize(byte[] descriptionBytes, byte[] typeBytes) {
+		return 37 + SizeOf(descriptionBytes) + SizeOf(typeBytes);
+	}
+	
+	/**
+	 * Writes the fields of a transaction record, with room for them already made
+	 * @param buffer where to write the fields
+	 * @param accNumber identifying number of the personal account
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param descriptionKind kind of the description
+	 * @param descriptionBytes the encoded description, or null
+	 * @param confirmationNumber confirmation number of the description
+	 * @param typeBytes the encoded type, or null
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @param balanceCents balance of the personal account after the transaction in cents
+	 */
+	private static void PutTransaction(ByteBuffer buffer, long accNumber, int postingDay, byte descriptionKind, byte[] descriptionBytes, long confirmationNumber, byte[] typeBytes, long amountCents, long balanceCents) {
+		buffer.putLong(accNumber);
+		buffer.putInt(postingDay);
+		buffer.put(descriptionKind);
+		PutString(buffer, descriptionBytes);
+		buffer.putLong(confirmationNumber);
+		PutString(buffer, typeBytes);
+		buffer.putLong(amountCents);
+		buffer.putLong(balanceCents);
+	}
+	
+	/**
+	 * Makes the pending buffer larger if it does not have room for more bytes. Called holding the lock
+	 * @param bytes number of bytes about to be written
+	 */
+	private void EnsureRemaining(int bytes) {
+		if (pending.remaining() >= bytes) {
+			return;
+		}
+		int capacity = pending.capacity();
+		while (capacity - pending.position() < bytes) {
+			capacity *= 2;
+		}
+		ByteBuffer larger = ByteBuffer.allocateDirect(capacity);
+		pending.flip();
+		larger.put(pending);
+		pending = larger;
+	}
+	
+	/**
+	 * Checks if a record changes one personal account's history or balance, like a transaction, rather than making an account
+	 * @param body the record body, positioned at its kind, left where it is
+	 * @return a boolean that represents whether the record is a transaction or balance record
+	 */
+	public static boolean IsAccountRecord(ByteBuffer body) {
+		byte kind = body.get(body.position());
+		return kind == DESCRIBED_TRANSACTION || kind == BALANCE;
+	}
+	
+	/**
+	 * Checks if a record is a group of transaction and balance records
+	 * @param body the record body, positioned at its kind, left where it is
+	 * @return a boolean that represents whether the record is a group
+	 * @see Journal#ReadGroup(ByteBuffer, long, RecordReader)
+	 */
+	public static boolean IsGroup(ByteBuffer body) {
+		return body.get(body.position()) == GROUP;
+	}
+	
+	/**
+	 * Passes every record in a group record to a reader undecoded, in the order they were added.
+	 * Each record is given the end of the group as its end position, since the group is durable as a whole
+	 * @param body the group record body, positioned at its kind, backed by an array
+	 * @param endPosition position in the file just past the group
+	 * @param reader receives every record in the group, with the body limited to that record
+	 * @throws IOException if the group holds anything but transaction and balance records, or the reader fails
+	 * @see Journal#AppendGroup(Group)
+	 */
+	public static void ReadGroup(ByteBuffer body, long endPosition, RecordReader reader) throws IOException {
+		int end = body.limit();
+		body.get();
+		int count = body.getInt();
+		for (int i = 0; i < count; ++i) {
+			int length = body.getInt();
+			int next = body.position() + length;
+			if (length <= 0 || next > end) {
+				throw new IOException("Journal group record is cut short.");
+			}
+			body.limit(next);
+			if (IsAccountRecord(body) == false) {
+				throw new IOException("Journal group holds a record of kind " + body.get(body.position()) + ".");
+			}
+			reader.OnRecord(body, endPosition);
+			body.limit(end).position(next);
+		}
+	}
+	
+	/**
+	 * Gets the personal account a transaction or balance record is about, without decoding the rest of it
+	 * @param body the record body, positioned at its kind, left where it is
+	 * @return a long that represents the account number
+	 * @see Journal#IsAccountRecord(ByteBuffer)
+	 */
+	public static long AccNumberOf(ByteBuffer body) {
+		return body.getLong(body.position() + 1);
+	}
+	
+	/**
+	 * Gets the balance a transaction or balance record leaves its personal account with, without decoding the rest of it
+	 * @param body the whole record body, left where it is
+	 * @return a long that represents the balance in cents
+	 * @see Journal#IsAccountRecord(ByteBuffer)
+	 */
+	public static long BalanceOf(ByteBuffer body) {
+		//every account record ends with the balance
+		return body.getLong(body.limit() - Long.BYTES);
+	}
+	
+	/**
+	 * Decodes one record body and passes it to the listener, or every record in it for a group
+	 * @param body the record body, positioned at its kind, backed by an array
+	 * @param endPosition position in the file just past the record
+	 * @param listener receives the record
+	 * @throws IOException if the record's kind is unknown
+	 */
+	public static void Dispatch(ByteBuffer body, long endPosition, JournalListener listener) throws IOException {
+		if (IsGroup(body)) {
+			ReadGroup(body, endPosition, (record, recordEnd) -> Dispatch(record, recordEnd, listener));
+			return;
+		}
+		byte kind = body.get();
+		switch (kind) {
+			case BANK_ACCOUNT: {
+				String username = GetString(body);
+				String password = GetString(body);
+				int pinCode = body.getInt();
+				String firstName = GetString(body);
+				String lastName = GetString(body);
+				listener.OnBankAccount(username, password, pinCode, firstName, lastName);
+				break;
+			}
+			case PERSONAL_ACCOUNT: {
+				String ownerUsername = GetString(body);
+				String accName = GetString(body);
+				long accNumber = body.getLong();
+				long balanceCents = body.getLong();
+				listener.OnPersonalAccount(ownerUsername, accName, accNumber, balanceCents);
+				break;
+			}
+			case DESCRIBED_TRANSACTION: {
+				long accNumber = body.getLong();
+				int postingDay = body.getInt();
+				byte descriptionKind = body.get();
+				String description = GetString(body);
+				long confirmationNumber = body.getLong();
+				String type = GetString(body);
+				long amountCents = body.getLong();
+				long balanceCents = body.getLong();
+				listener.OnTransaction(accNumber, postingDay, descriptionKind, description, confirmationNumber, type, amountCents, balanceCents, endPosition);
+				break;
+			}
+			case BALANCE: {
+				long accNumber = body.getLong();
+				long balanceCents = body.getLong();
+				listener.OnBalance(accNumber, balanceCents, endPosition);
+				break;
+			}
+			case CONFIRMATION_SEQUENCE:
+				listener.OnConfirmationSequence(body.getLong());
+				break;
+			default:
+				throw new IOException("Unknown journal record kind " + kind + ".");
+		}
+	}
+	
+	/**
+	 * Reads a String written by PutString(ByteBuffer, byte[])
+	 * @param body the record body, positioned at the String
+	 * @return the String read, or null
+	 */
+	private static String GetString(ByteBuffer body) {
+		int length = body.getInt();
+		if (length < 0) {
+			return null;
+		}
+		String value = new String(body.array(), body.arrayOffset() + body.position(), length, StandardCharsets.UTF_8);
+		body.position(body.position() + length);
+		return value;
+	}
+	
+	/**
+	 * Fills a buffer from the file starting at a position
+	 * @param channel the file
+	 * @param buffer the buffer to fill
+	 * @param position where in the file to start
+	 * @throws IOException if the file ends first or cannot be read
+	 */
+	private static void ReadFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new EOFException();
+			}
+			position += read;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ * Interface for receiving the events read back from a journal, in the order they were written
+ * @author Katie Ho
+ * @version 1.0
+ * @see Journal#Replay(java.nio.file.Path, JournalListener)
+ */
+
+public interface JournalListener {
+	/**
+	 * Called for a bank account that was made
+	 * @param username username portion of the bank account login
+	 * @param password password portion of the bank account login
+	 * @param pinCode pin code portion of the bank account login
+	 * @param firstName first name of the account's user
+	 * @param lastName last name of the account's user
+	 */
+	void OnBankAccount(String username, String password, int pinCode, String firstName, String lastName);
+	
+	/**
+	 * Called for a personal account that was made
+	 * @param ownerUsername username of the bank account the personal account belongs to
+	 * @param accName personal account's name
+	 * @param accNumber personal account's identifying number
+	 * @param balanceCents personal account's opening balance in cents
+	 */
+	void OnPersonalAccount(String ownerUsername, String accName, long accNumber, long balanceCents);
+	
+	/**
+	 * Called for a transaction that was made
+	 * @param accNumber identifying number of the personal account the transaction was made on
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param descriptionKind kind of the description
+	 * @param description description portion of the transaction for TransactionDescription.TEXT, or the other account's shortened name and number
+	 * @param confirmationNumber confirmation number of the description, 0 for TransactionDescription.TEXT
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @param balanceCents balance of the personal account after the transaction in cents
+	 * @param journalPosition position in the journal just past the record
+	 * @see TransactionDescription
+	 */
+	void OnTransaction(long accNumber, int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amountCents, long balanceCents, long journalPosition);
+	
+	/**
+	 * Called for a personal account's balance that was set directly
+	 * @param accNumber identifying number of the personal account
+	 * @param balanceCents the balance it was set to in cents
+	 * @param journalPosition position in the journal just past the record
+	 */
+	void OnBalance(long accNumber, long balanceCents, long journalPosition);
+	
+	/**
+	 * Called when confirmation numbers were reserved
+	 * @param nextSequence the first confirmation sequence number not yet reserved
+	 */
+	void OnConfirmationSequence(long nextSequence);
+}
@@ -0,0 +1,129 @@
+/**
+ * Class rebuilds the bank from the events read back from its journal.
+ * Bank accounts go into the registry, personal accounts into their owner's list, and every transaction
+ * is made again on its account, checking that it leaves the same balance it did the first time.
+ * Use it before the journal is attached to any account, so nothing replayed is journaled twice.
+ * Accounts already in the registry, like ones loaded from a snapshot, are kept, and records they already hold are skipped
+ * @author Katie Ho
+ * @version 1.0
+ * @see Journal#Replay(java.nio.file.Path, JournalListener)
+ */
+
+import java.util.HashMap;
+
+public class JournalRecovery implements JournalListener {
+	/**
+	 * Record of the bank accounts being rebuilt
+	 */
+	private final AccountRegistry bankAccounts;
+	
+	/**
+	 * The journal position each account already in the registry holds every record up to, keyed by its number
+	 */
+	private final HashMap<Long, Long> restoredThrough = new HashMap<>();
+	
+	/**
+	 * Generator carried on past every confirmation number reserved before
+	 */
+	private final ConfirmationNumberGenerator confirmationNumbers;
+	
+	/**
+	 * Overload constructor rebuilding into a registry, keeping the accounts already in it
+	 * @param bankAccounts record of bank accounts to add the rebuilt bank accounts to
+	 * @param confirmationNumbers generator to carry on past the reserved confirmation numbers
+	 */
+	public JournalRecovery(AccountRegistry bankAccounts, ConfirmationNumberGenerator confirmationNumbers) {
+		this.bankAccounts = bankAccounts;
+		this.confirmationNumbers = confirmationNumbers;
+		for (BankAccount bankAccount : bankAccounts.GetBankAccounts()) {
+			for (PersonalAccount personalAccount : bankAccount.GetPersonalAccounts()) {
+				restoredThrough.put(personalAccount.GetAccNumber(), personalAccount.GetJournalPosition());
+			}
+		}
+	}
+	
+	/**
+	 * Rebuilds a bank account, unless it is already in the registry
+	 */
+	@Override
+	public void OnBankAccount(String username, String password, int pinCode, String firstName, String lastName) {
+		bankAccounts.Register(new BankAccount(username, password, pinCode, firstName, lastName));
+	}
+	
+	/**
+	 * Rebuilds a personal account under its owner, unless it is already in the registry
+	 * @throws IllegalStateException if the owner was never made
+	 */
+	@Override
+	public void OnPersonalAccount(String ownerUsername, String accName, long accNumber, long balanceCents) {
+		if (bankAccounts.FindPersonalAccount(accNumber) != null) {
+			return;
+		}
+		BankAccount owner = bankAccounts.Find(ownerUsername);
+		if (owner == null) {
+			throw new IllegalStateException("Journal has personal account " + accNumber + " for unknown username " + ownerUsername + ".");
+		}
+		owner.CreatePersonalAccountCents(accName, accNumber, balanceCents);
+	}
+	
+	/**
+	 * Makes a transaction again on its personal account, unless the account already holds it
+	 * @throws IllegalStateException if the account was never made, or the transaction leaves a different balance
+	 */
+	@Override
+	public void OnTransaction(long accNumber, int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amountCents, long balanceCents, long journalPosition) {
+		if (IsRestored(accNumber, journalPosition)) {
+			return;
+		}
+		long replayedBalanceCents = FindPersonalAccount(accNumber).PostTransactionCents(postingDay, descriptionKind, description, confirmationNumber, type, amountCents);
+		if (replayedBalanceCents != balanceCents) {
+			throw new IllegalStateException("Journal balance " + balanceCents + " of account " + accNumber + " does not match replayed balance " + replayedBalanceCents + ".");
+		}
+	}
+	
+	/**
+	 * Sets a personal account's balance again, unless the account already holds the change
+	 * @throws IllegalStateException if the account was never made
+	 */
+	@Override
+	public void OnBalance(long accNumber, long balanceCents, long journalPosition) {
+		if (IsRestored(accNumber, journalPosition)) {
+			return;
+		}
+		FindPersonalAccount(accNumber).SetBalanceCents(balanceCents);
+	}
+	
+	/**
+	 * Moves the generator past the reserved confirmation numbers
+	 */
+	@Override
+	public void OnConfirmationSequence(long nextSequence) {
+		confirmationNumbers.AdvanceTo(nextSequence);
+	}
+	
+	/**
+	 * Checks if an account was already in the registry holding a record
+	 * @param accNumber identifying number of the personal account
+	 * @param journalPosition position in the journal just past the record
+	 * @return a boolean that represents whether the record is already held
+	 */
+	private boolean IsRestored(long accNumber, long journalPosition) {
+		Long through = restoredThrough.get(accNumber);
+		return through != null && journalPosition <= through;
+	}
+	
+	/**
+	 * Finds a rebuilt personal account by number
+	 * @param accNumber identifying number of the personal account
+	 * @return the personal account
+	 * @throws IllegalStateException if the account was never made
+	 * @see AccountRegistry#FindPersonalAccount(long)
+	 */
+	private PersonalAccount FindPersonalAccount(long accNumber) {
+		PersonalAccount personalAccount = bankAccounts.FindPersonalAccount(accNumber);
+		if (personalAccount == null) {
+			throw new IllegalStateException("Journal has a transaction for unknown account " + accNumber + ".");
+		}
+		return personalAccount;
+	}
+}
@@ -0,0 +1,147 @@
+/**
+ * Class counts latencies in a histogram with buckets that grow with the value, like HdrHistogram,
+ * so any latency from a nanosecond to hours is kept to within 2% in a fixed array of counts.
+ * Values below 128 each have their own bucket. Above that, every power of two is split into 64 buckets of equal width.
+ * Recording a value is a few shifts and an array increment, so it does not disturb what is being measured.
+ * Not safe for concurrent use, give each thread its own histogram and add them together afterwards
+ * @author Katie Ho
+ * @version 1.0
+ * @see LoadGenerator
+ */
+
+public class LatencyHistogram {
+	/**
+	 * Number of buckets each power of two is split into, as a power of two
+	 */
+	private static final int SUB_BUCKET_BITS = 6;
+	
+	/**
+	 * Number of buckets each power of two is split into
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	
+	/**
+	 * Number of buckets, enough for every positive long
+	 */
+	private static final int NUM_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	/**
+	 * Number of values recorded in every bucket
+	 */
+	private final long[] counts = new long[NUM_BUCKETS];
+	
+	/**
+	 * Number of values recorded
+	 */
+	private long totalCount;
+	
+	/**
+	 * Sum of the values recorded, for the mean
+	 */
+	private double sum;
+	
+	/**
+	 * Smallest and largest values recorded
+	 */
+	private long min = Long.MAX_VALUE;
+	private long max;
+	
+	/**
+	 * Records a value, like a latency in nanoseconds
+	 * @param value the value, negative values are recorded as 0
+	 */
+	public void Record(long value) {
+		value = Math.max(0L, value);
+		++counts[BucketOf(value)];
+		++totalCount;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+	
+	/**
+	 * Adds every value recorded in another histogram to this one
+	 * @param other the other histogram
+	 */
+	public void Add(LatencyHistogram other) {
+		for (int i = 0; i < NUM_BUCKETS; ++i) {
+			counts[i] += other.counts[i];
+		}
+		totalCount += other.totalCount;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+	
+	/**
+	 * Gets the value that a percentage of the recorded values are at or below
+	 * @param percentile the percentage, from 0 to 100
+	 * @return a long that represents the largest value in the bucket holding the percentile, never more than the largest value recorded, 0 if nothing was recorded
+	 */
+	public long GetValueAtPercentile(double percentile) {
+		if (totalCount == 0) {
+			return 0L;
+		}
+		long countAtPercentile = Math.max(1L, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * totalCount));
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; ++i) {
+			seen += counts[i];
+			if (seen >= countAtPercentile) {
+				return Math.min(max, Math.max(min, HighestValueIn(i)));
+			}
+		}
+		return max;
+	}
+	
+	/**
+	 * Gets the number of values recorded
+	 * @return a long that represents the count
+	 */
+	public long GetCount() {
+		return totalCount;
+	}
+	
+	/**
+	 * Gets the mean of the values recorded
+	 * @return a double that represents the mean, 0 if nothing was recorded
+	 */
+	public double GetMean() {
+		return totalCount == 0 ? 0.0 : sum / totalCount;
+	}
+	
+	/**
+	 * Gets the largest value recorded
+	 * @return a long that represents the largest value, 0 if nothing was recorded
+	 */
+	public long GetMax() {
+		return max;
+	}
+	
+	/**
+	 * Finds the bucket a value is counted in
+	 * @param value the value, not negative
+	 * @return an int that represents the index of the bucket
+	 */
+	private static int BucketOf(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		//shift the value down until it is between SUB_BUCKETS and 2 * SUB_BUCKETS - 1
+		int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS - 1;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+	
+	/**
+	 * Gets the largest value counted in a bucket
+	 * @param bucket index of the bucket
+	 * @return a long that represents the value
+	 */
+	private static long HighestValueIn(int bucket) {
+		if (bucket < 2 * SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,499 @@
+/**
+ * Class is a load test harness that runs a production-like mix of banking operations at a target rate and reports
+ * the throughput and latency percentiles it got.
+ * It makes a number of bank accounts with a number of personal accounts each, the way the driver makes its mock accounts,
+ * then threads make transfers, deposits, withdrawals, and history reads picked at random in the configured mix.
+ * The load is open: every operation has a start time on a fixed schedule, and its latency is measured from that time,
+ * not from when a thread got around to it. When the bank falls behind, the operations that wait count the waiting
+ * in their latency, so a stall is not hidden by the operations that were never sent during it (no coordinated omission).
+ * The time each operation took once it started is reported next to it as the service time.
+ * With --metrics, the bank's own metrics are turned on for the run and dumped after the report, see BankMetrics.
+ * Run with: java LoadGenerator [--bankAccounts=1000] [--personalAccounts=4] [--threads=4] [--rate=20000] [--seconds=10]
+ * [--warmup=5] [--history=10] [--mix=transfer:40,deposit:20,withdraw:20,history:20] [--journal] [--metrics] [--seed=1]
+ * @author Katie Ho
+ * @version 1.0
+ * @see LatencyHistogram
+ * @see BenchmarkSuite
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class LoadGenerator {
+	/**
+	 * Kinds of operation in the mix, in the order of their names
+	 */
+	private static final int TRANSFER = 0;
+	private static final int DEPOSIT = 1;
+	private static final int WITHDRAW = 2;
+	private static final int HISTORY = 3;
+	private static final String[] OPERATION_NAMES = {"transfer", "deposit", "withdraw", "history"};
+	
+	/**
+	 * Percentiles reported for every kind of operation
+	 */
+	private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9, 99.99};
+	
+	/**
+	 * Balance every personal account opens with in cents, enough that no withdrawal or transfer runs out of funds
+	 */
+	private static final long OPENING_BALANCE_CENTS = 1_000_000_000_00L;
+	
+	/**
+	 * Largest amount moved by one operation in cents
+	 */
+	private static final int MAX_AMOUNT_CENTS = 100_00;
+	
+	/**
+	 * Number of past transactions in one history read
+	 */
+	private static final int HISTORY_PAGE_SIZE = 20;
+	
+	/**
+	 * Operations closer than this to their start time are waited for by spinning instead of parking, which oversleeps
+	 */
+	private static final long SPIN_NANOS = 100_000L;
+	
+	/**
+	 * Settings of a run, read from the command line
+	 */
+	private int numBankAccounts = 1_000;
+	private int personalAccsPerBankAcc = 4;
+	private int numThreads = 4;
+	private long opsPerSecond = 20_000;
+	private int measuredSeconds = 10;
+	private int warmupSeconds = 5;
+	private int historySize = 10;
+	private int[] mix = {40, 20, 20, 20};
+	private boolean useJournal;
+	private boolean useMetrics;
+	private long seed = 1;
+	
+	/**
+	 * What one thread measured: the latency and service time of each kind of operation
+	 */
+	private static final class ThreadResult {
+		private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATION_NAMES.length];
+		private final LatencyHistogram[] serviceTimes = new LatencyHistogram[OPERATION_NAMES.length];
+		private long depositedCents;
+		private long withdrawnCents;
+		
+		ThreadResult() {
+			for (int i = 0; i < OPERATION_NAMES.length; ++i) {
+				latencies[i] = new LatencyHistogram();
+				serviceTimes[i] = new LatencyHistogram();
+			}
+		}
+	}
+	
+	/**
+	 * Runs the load test and prints its report
+	 * @param args optional settings, see the class description
+	 */
+	public static void main(String[] args) {
+		LoadGenerator generator = new LoadGenerator();
+		for (String arg : args) {
+			generator.ParseArg(arg);
+		}
+		try {
+			generator.Run();
+		}
+		catch (IOException excpt) {
+			System.out.println("ERROR: " + excpt.getMessage());
+		}
+	}
+	
+	/**
+	 * Reads one setting from the command line
+	 * @param arg the argument, like --threads=8
+	 * @throws IllegalArgumentException if the argument is not a known setting or its value is invalid
+	 */
+	private void ParseArg(String arg) {
+		String value = arg.substring(arg.indexOf('=') + 1);
+		if (arg.startsWith("--bankAccounts=")) {
+			numBankAccounts = ParsePositive(arg, value);
+		}
+		else if (arg.startsWith("--personalAccounts=")) {
+			personalAccsPerBankAcc = ParsePositive(arg, value);
+		}
+		else if (arg.startsWith("--threads=")) {
+			numThreads = ParsePositive(arg, value);
+		}
+		else if (arg.startsWith("--rate=")) {
+			opsPerSecond = ParsePositive(arg, value);
+		}
+		else if (arg.startsWith("--seconds=")) {
+			measuredSeconds = ParsePositive(arg, value);
+		}
+		else if (arg.startsWith("--warmup=")) {
+			warmupSeconds = Integer.parseInt(value);
+		}
+		else if (arg.startsWith("--history=")) {
+			historySize = Integer.parseInt(value);
+		}
+		else if (arg.startsWith("--mix=")) {
+			mix = ParseMix(value);
+		}
+		else if (arg.equals("--journal")) {
+			useJournal = true;
+		}
+		else if (arg.equals("--metrics")) {
+			useMetrics = true;
+		}
+		else if (arg.startsWith("--seed=")) {
+			seed = Long.parseLong(value);
+		}
+		else {
+			throw new IllegalArgumentException("Unknown setting " + arg);
+		}
+	}
+	
+	/**
+	 * Makes the accounts, runs the warmup and the measured load, and prints the report
+	 * @throws IOException if the journal cannot be made
+	 */
+	private void Run() throws IOException {
+		AccountRegistry bankAccounts = new AccountRegistry();
+		BankAccount[] bankAccountsByIndex = new BankAccount[numBankAccounts];
+		PersonalAccount[] personalAccs = new PersonalAccount[numBankAccounts * personalAccsPerBankAcc];
+		CreateAccounts(bankAccounts, bankAccountsByIndex, personalAccs);
+		
+		Path journalPath = null;
+		Journal journal = null;
+		if (useJournal) {
+			journalPath = Files.createTempFile("bank", ".journal");
+			journal = Journal.Open(journalPath);
+			for (BankAccount bankAccount : bankAccountsByIndex) {
+				bankAccount.SetJournal(journal);
+			}
+		}
+		
+		BankMetrics.SetEnabled(useMetrics);
+		System.out.printf("%d bank accounts x %d personal accounts, %d threads, target %d ops/s, mix %s%s%n",
+				numBankAccounts, personalAccsPerBankAcc, numThreads, opsPerSecond, MixToString(), useJournal ? ", journaled" : "");
+		try {
+			long openingTotal = TotalBalance(personalAccs);
+			long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+			long measureStart = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+			long end = measureStart + TimeUnit.SECONDS.toNanos(measuredSeconds);
+			ThreadResult[] results = RunThreads(bankAccountsByIndex, personalAccs, start, measureStart, end);
+			long finished = System.nanoTime();
+			Report(results, finished - measureStart);
+			
+			long expectedTotal = openingTotal;
+			for (ThreadResult result : results) {
+				expectedTotal += result.depositedCents - result.withdrawnCents;
+			}
+			System.out.println(TotalBalance(personalAccs) == expectedTotal ? "Ledger conserved." : "ERROR: Ledger not conserved.");
+			if (useMetrics) {
+				//the bank's metrics count the warmup too
+				System.out.print(BankMetrics.Dump());
+			}
+		}
+		finally {
+			if (journal != null) {
+				journal.close();
+				Files.deleteIfExists(journalPath);
+			}
+		}
+	}
+	
+	/**
+	 * Makes the bank accounts and their personal accounts, and fills in each personal account's history
+	 * @param bankAccounts registry to add the bank accounts to
+	 * @param bankAccountsByIndex filled with the bank accounts
+	 * @param personalAccs filled with the personal accounts, those of one bank account next to each other
+	 * @see BankAccount#CreatePersonalAccountCents(String, long, long)
+	 */
+	private void CreateAccounts(AccountRegistry bankAccounts, BankAccount[] bankAccountsByIndex, PersonalAccount[] personalAccs) {
+		int today = TransactionClock.SYSTEM.Today();
+		for (int i = 0; i < numBankAccounts; ++i) {
+			BankAccount bankAccount = new BankAccount("user" + i, "pass" + i, 1000 + i % 9000, "First" + i, "Last" + i);
+			bankAccounts.Register(bankAccount);
+			bankAccountsByIndex[i] = bankAccount;
+			for (int j = 0; j < personalAccsPerBankAcc; ++j) {
+				PersonalAccount acc = bankAccount.CreatePersonalAccountCents(j % 2 == 0 ? "Adv Plus Banking" : "Advantage Savings", 100000000000L + (long) i * personalAccsPerBankAcc + j, OPENING_BALANCE_CENTS);
+				for (int k = 0; k < historySize; ++k) {
+					acc.PostTransactionCents(today - historySize + k, k % 2 == 0 ? "Kitakata Ramen" : "Seaside Bakery", "Credit", -100 - k);
+				}
+				personalAccs[i * personalAccsPerBankAcc + j] = acc;
+			}
+		}
+	}
+	
+	/**
+	 * Runs the load on every thread until the end time.
+	 * Thread t sends every numThreads-th operation of the schedule, so the threads together keep to the target rate
+	 * @param bankAccountsByIndex every bank account
+	 * @param personalAccs every personal account
+	 * @param start time of the first operation
+	 * @param measureStart time of the first operation that is measured
+	 * @param end time after which no more operations are sent
+	 * @return what each thread measured
+	 */
+	private ThreadResult[] RunThreads(BankAccount[] bankAccountsByIndex, PersonalAccount[] personalAccs, long start, long measureStart, long end) {
+		double intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) opsPerSecond;
+		ThreadResult[] results = new ThreadResult[numThreads];
+		Thread[] threads = new Thread[numThreads];
+		LongAdder sink = new LongAdder();
+		for (int t = 0; t < numThreads; ++t) {
+			int thread = t;
+			results[t] = new ThreadResult();
+			threads[t] = new Thread(() -> {
+				SplittableRandom random = new SplittableRandom(seed * 31 + thread);
+				StringBuilder page = new StringBuilder();
+				ThreadResult result = results[thread];
+				long work = 0;
+				for (long i = thread; ; i += numThreads) {
+					long intended = start + (long) (i * intervalNanos);
+					if (intended >= end) {
+						break;
+					}
+					WaitUntil(intended);
+					
+					int operation = PickOperation(random);
+					long actualStart = System.nanoTime();
+					work += RunOperation(operation, random, bankAccountsByIndex, personalAccs, page, result);
+					long finished = System.nanoTime();
+					if (intended >= measureStart) {
+						result.latencies[operation].Record(finished - intended);
+						result.serviceTimes[operation].Record(finished - actualStart);
+					}
+				}
+				sink.add(work);
+			}, "load-" + t);
+		}
+		
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			}
+			catch (InterruptedException excpt) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for the load", excpt);
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Runs one operation against a random account
+	 * @param operation kind of operation
+	 * @param random the thread's random numbers
+	 * @param bankAccountsByIndex every bank account
+	 * @param personalAccs every personal account
+	 * @param page the thread's reused buffer for history reads
+	 * @param result adds the money deposited and withdrawn
+	 * @return an int that depends on the work done so it can not be optimized away
+	 * @see BankAccount#TransferMoneyCents(PersonalAccount, PersonalAccount, long)
+	 * @see BankAccount#DepositMoneyToCents(PersonalAccount, long)
+	 * @see BankAccount#WithdrawMoneyFromCents(PersonalAccount, long)
+	 * @see PersonalAccount#WriteHistory(Appendable, int, int)
+	 */
+	private int RunOperation(int operation, SplittableRandom random, BankAccount[] bankAccountsByIndex, PersonalAccount[] personalAccs, StringBuilder page, ThreadResult result) {
+		int bankAccIndex = random.nextInt(numBankAccounts);
+		BankAccount bankAccount = bankAccountsByIndex[bankAccIndex];
+		PersonalAccount acc = personalAccs[bankAccIndex * personalAccsPerBankAcc + random.nextInt(personalAccsPerBankAcc)];
+		long amountCents = 1 + random.nextInt(MAX_AMOUNT_CENTS);
+		
+		if (operation == TRANSFER) {
+			PersonalAccount accSentTo = personalAccs[random.nextInt(personalAccs.length)];
+			if (accSentTo == acc) {
+				accSentTo = personalAccs[(bankAccIndex * personalAccsPerBankAcc + personalAccsPerBankAcc) % personalAccs.length];
+			}
+			return bankAccount.TransferMoneyCents(acc, accSentTo, amountCents).length();
+		}
+		else if (operation == DEPOSIT) {
+			String message = bankAccount.DepositMoneyToCents(acc, amountCents);
+			result.depositedCents += amountCents;
+			return message.length();
+		}
+		else if (operation == WITHDRAW) {
+			String message = bankAccount.WithdrawMoneyFromCents(acc, amountCents);
+			if (message.startsWith("You have")) {
+				result.withdrawnCents += amountCents;
+			}
+			return message.length();
+		}
+		else {
+			page.setLength(0);
+			try {
+				acc.WriteHistory(page, PersonalAccount.NEWEST, HISTORY_PAGE_SIZE);
+			}
+			catch (IOException excpt) {
+				throw new UncheckedIOException(excpt);
+			}
+			return page.length();
+		}
+	}
+	
+	/**
+	 * Picks the kind of the next operation at random, in proportion to the mix
+	 * @param random the thread's random numbers
+	 * @return an int that represents the kind of operation
+	 */
+	private int PickOperation(SplittableRandom random) {
+		int total = 0;
+		for (int weight : mix) {
+			total += weight;
+		}
+		int pick = random.nextInt(total);
+		for (int i = 0; i < mix.length; ++i) {
+			pick -= mix[i];
+			if (pick < 0) {
+				return i;
+			}
+		}
+		return mix.length - 1;
+	}
+	
+	/**
+	 * Waits until a time on the schedule, returning right away if it has passed
+	 * @param time the time, from System.nanoTime()
+	 */
+	private static void WaitUntil(long time) {
+		long remaining;
+		while ((remaining = time - System.nanoTime()) > 0) {
+			if (remaining > SPIN_NANOS) {
+				LockSupport.parkNanos(remaining - SPIN_NANOS);
+			}
+			else {
+				Thread.onSpinWait();
+			}
+		}
+	}
+	
+	/**
+	 * Prints the throughput, and the latency and service time percentiles of each kind of operation and of all of them
+	 * @param results what each thread measured
+	 * @param elapsedNanos how long the measured load took
+	 */
+	private void Report(ThreadResult[] results, long elapsedNanos) {
+		LatencyHistogram allLatencies = new LatencyHistogram();
+		LatencyHistogram allServiceTimes = new LatencyHistogram();
+		LatencyHistogram[] latencies = new LatencyHistogram[OPERATION_NAMES.length];
+		LatencyHistogram[] serviceTimes = new LatencyHistogram[OPERATION_NAMES.length];
+		for (int i = 0; i < OPERATION_NAMES.length; ++i) {
+			latencies[i] = new LatencyHistogram();
+			serviceTimes[i] = new LatencyHistogram();
+			for (ThreadResult result : results) {
+				latencies[i].Add(result.latencies[i]);
+				serviceTimes[i].Add(result.serviceTimes[i]);
+			}
+			allLatencies.Add(latencies[i]);
+			allServiceTimes.Add(serviceTimes[i]);
+		}
+		
+		double seconds = elapsedNanos / 1e9;
+		System.out.printf("Throughput: %.1f ops/s (target %d ops/s) over %.1f s%n", allLatencies.GetCount() / seconds, opsPerSecond, seconds);
+		System.out.printf("%-22s %10s %10s", "Latency (us)", "count", "mean");
+		for (double percentile : PERCENTILES) {
+			System.out.printf(" %10s", "p" + percentile);
+		}
+		System.out.printf(" %10s%n", "max");
+		for (int i = 0; i < OPERATION_NAMES.length; ++i) {
+			if (latencies[i].GetCount() > 0) {
+				PrintRow(OPERATION_NAMES[i], latencies[i]);
+				PrintRow(OPERATION_NAMES[i] + " (service)", serviceTimes[i]);
+			}
+		}
+		PrintRow("all", allLatencies);
+		PrintRow("all (service)", allServiceTimes);
+	}
+	
+	/**
+	 * Prints one row of the latency table in microseconds
+	 * @param name name of the row
+	 * @param histogram the latencies in nanoseconds
+	 */
+	private static void PrintRow(String name, LatencyHistogram histogram) {
+		System.out.printf("%-22s %10d %10.1f", name, histogram.GetCount(), histogram.GetMean() / 1000.0);
+		for (double percentile : PERCENTILES) {
+			System.out.printf(" %10.1f", histogram.GetValueAtPercentile(percentile) / 1000.0);
+		}
+		System.out.printf(" %10.1f%n", histogram.GetMax() / 1000.0);
+	}
+	
+	/**
+	 * Adds up the balances of every personal account
+	 * @param personalAccs the personal accounts
+	 * @return a long that represents the total in cents
+	 */
+	private static long TotalBalance(PersonalAccount[] personalAccs) {
+		long total = 0;
+		for (PersonalAccount acc : personalAccs) {
+			total += acc.GetBalanceCents();
+		}
+		return total;
+	}
+	
+	/**
+	 * Reads a mix like transfer:40,deposit:20,withdraw:20,history:20, kinds left out get no weight
+	 * @param value the mix
+	 * @return an int array of the weight of each kind of operation
+	 * @throws IllegalArgumentException if the mix names an unknown operation, has a negative weight, or adds up to 0
+	 */
+	private static int[] ParseMix(String value) {
+		int[] weights = new int[OPERATION_NAMES.length];
+		int total = 0;
+		for (String part : value.split(",")) {
+			String[] nameAndWeight = part.trim().split(":");
+			int kind = -1;
+			for (int i = 0; i < OPERATION_NAMES.length; ++i) {
+				if (OPERATION_NAMES[i].equals(nameAndWeight[0])) {
+					kind = i;
+				}
+			}
+			if (kind < 0 || nameAndWeight.length != 2) {
+				throw new IllegalArgumentException("Invalid mix entry " + part);
+			}
+			weights[kind] = Integer.parseInt(nameAndWeight[1]);
+			if (weights[kind] < 0) {
+				throw new IllegalArgumentException("Invalid mix entry " + part);
+			}
+			total += weights[kind];
+		}
+		if (total == 0) {
+			throw new IllegalArgumentException("Mix must have an operation with weight: " + value);
+		}
+		return weights;
+	}
+	
+	/**
+	 * Makes the mix into text for the report
+	 * @return a String that represents the mix
+	 */
+	private String MixToString() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < OPERATION_NAMES.length; ++i) {
+			if (mix[i] > 0) {
+				text.append(text.length() == 0 ? "" : ",").append(OPERATION_NAMES[i]).append(':').append(mix[i]);
+			}
+		}
+		return text.toString();
+	}
+	
+	/**
+	 * Reads a positive number
+	 * @param arg the argument the number came from, for the error message
+	 * @param value the number as text
+	 * @return an int that represents the number
+	 * @throws IllegalArgumentException if it is not a positive number
+	 */
+	private static int ParsePositive(String arg, String value) {
+		int number = Integer.parseInt(value);
+		if (number <= 0) {
+			throw new IllegalArgumentException("Setting must be positive: " + arg);
+		}
+		return number;
+	}
+}
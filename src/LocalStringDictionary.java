@@ -0,0 +1,144 @@
+/**
+ * Class represents a dictionary that gives every distinct String a small int id, for use by one thread at a time.
+ * The ids are kept in an open-addressing table of ints probed one slot after another, so a String costs a slot
+ * in the table and a slot in the array of values, with no entry objects or boxed ids.
+ * Ids start at 0 and are never reused, and null is never given one.
+ * Not safe for concurrent use, the owner guards it, see StringDictionary for a dictionary shared between threads
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+
+public class LocalStringDictionary {
+	/**
+	 * Number of Strings a new dictionary holds before it grows
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+	
+	/**
+	 * Every String in the dictionary indexed by its id
+	 */
+	private String[] values = new String[INITIAL_CAPACITY];
+	
+	/**
+	 * Id plus 1 of the String in each slot of the table, 0 for an empty slot. The table is kept at most half full
+	 */
+	private int[] slots = new int[INITIAL_CAPACITY * 2];
+	
+	/**
+	 * Number of Strings in the dictionary
+	 */
+	private int size;
+	
+	/**
+	 * Gets the id of a String, adding the String to the dictionary if it is new
+	 * @param value the String to look up
+	 * @return an int that represents the id of the String
+	 * @throws IllegalArgumentException if the String is null
+	 */
+	public int IdOf(String value) {
+		int id = Find(value);
+		return id >= 0 ? id : Add(value);
+	}
+	
+	/**
+	 * Gets the id of a String without adding it
+	 * @param value the String to look up
+	 * @return an int that represents the id of the String, or -1 if it is not in the dictionary
+	 * @throws IllegalArgumentException if the String is null
+	 */
+	public int Find(String value) {
+		CheckNotNull(value);
+		int mask = slots.length - 1;
+		for (int slot = SlotOf(value, mask); slots[slot] != 0; slot = (slot + 1) & mask) {
+			String candidate = values[slots[slot] - 1];
+			if (candidate == value || candidate.equals(value)) {
+				return slots[slot] - 1;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Adds a String that is not in the dictionary yet
+	 * @param value the String to add
+	 * @return an int that represents the id given to the String
+	 * @throws IllegalArgumentException if the String is null
+	 */
+	public int Add(String value) {
+		CheckNotNull(value);
+		if ((size + 1) * 2 > slots.length) {
+			Rehash(slots.length * 2);
+		}
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size] = value;
+		Place(size);
+		return size++;
+	}
+	
+	/**
+	 * Gets the String that an id was given to
+	 * @param id id from IdOf(String) or Add(String)
+	 * @return the String with that id
+	 */
+	public String ValueOf(int id) {
+		return values[id];
+	}
+	
+	/**
+	 * Gets the number of distinct Strings in the dictionary
+	 * @return an int that represents the number of Strings
+	 */
+	public int Size() {
+		return size;
+	}
+	
+	/**
+	 * Checks a String can be held by the dictionary
+	 * @param value the String
+	 * @throws IllegalArgumentException if the String is null
+	 */
+	private static void CheckNotNull(String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Dictionary can not hold a null String.");
+		}
+	}
+	
+	/**
+	 * Puts an id in the first empty slot from its String's slot on
+	 * @param id id of a String already in the values
+	 */
+	private void Place(int id) {
+		int mask = slots.length - 1;
+		int slot = SlotOf(values[id], mask);
+		while (slots[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = id + 1;
+	}
+	
+	/**
+	 * Moves every id into a new table
+	 * @param capacity number of slots of the new table, a power of two
+	 */
+	private void Rehash(int capacity) {
+		slots = new int[capacity];
+		for (int id = 0; id < size; ++id) {
+			Place(id);
+		}
+	}
+	
+	/**
+	 * Finds the slot a String's search starts from, spreading the high bits of its hash into the low ones
+	 * @param value the String
+	 * @param mask number of slots minus 1
+	 * @return an int that represents the slot
+	 */
+	private static int SlotOf(String value, int mask) {
+		int hash = value.hashCode();
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+}
@@ -0,0 +1,218 @@
+/**
+ * Class holds the arithmetic for amounts of money stored as a whole number of cents in a long.
+ * Every method works on primitives only, so posting money never rounds a double or allocates,
+ * and amounts are written straight into the caller's builder, array or buffer
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.nio.ByteBuffer;
+
+public final class Money {
+	/**
+	 * Number of cents in a dollar
+	 */
+	public static final long CENTS_PER_DOLLAR = 100L;
+	
+	/**
+	 * Longest text an amount of money can be written as, "-$92,233,720,368,547,758.08"
+	 */
+	public static final int MAX_LENGTH = 27;
+	
+	/**
+	 * Powers of ten up to the largest that fits in a long, for reading the digits of an amount
+	 */
+	private static final long[] POWERS_OF_TEN = new long[19];
+	
+	static {
+		POWERS_OF_TEN[0] = 1L;
+		for (int i = 1; i < POWERS_OF_TEN.length; ++i) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+		}
+	}
+	
+	/**
+	 * Money only holds static methods and is never made
+	 */
+	private Money() {
+	}
+	
+	/**
+	 * Converts a dollar amount, like one typed in by the user, to cents rounding to the nearest cent
+	 * @param dollars the amount in dollars
+	 * @return a long that represents the amount in cents
+	 */
+	public static long FromDollars(double dollars) {
+		return Math.round(dollars * CENTS_PER_DOLLAR);
+	}
+	
+	/**
+	 * Converts an amount in cents to dollars for display
+	 * @param cents the amount in cents
+	 * @return a double that represents the amount in dollars
+	 */
+	public static double ToDollars(long cents) {
+		return cents / (double) CENTS_PER_DOLLAR;
+	}
+	
+	/**
+	 * Adds two amounts of money
+	 * @param cents the first amount in cents
+	 * @param otherCents the second amount in cents
+	 * @return a long that represents the sum in cents
+	 * @throws ArithmeticException if the sum does not fit in a long
+	 */
+	public static long Add(long cents, long otherCents) {
+		return Math.addExact(cents, otherCents);
+	}
+	
+	/**
+	 * Subtracts one amount of money from another
+	 * @param cents the amount in cents to subtract from
+	 * @param otherCents the amount in cents to subtract
+	 * @return a long that represents the difference in cents
+	 * @throws ArithmeticException if the difference does not fit in a long
+	 */
+	public static long Subtract(long cents, long otherCents) {
+		return Math.subtractExact(cents, otherCents);
+	}
+	
+	/**
+	 * Checks if an amount of money is positive
+	 * @param cents the amount in cents
+	 * @return a boolean that represents whether the amount is more than zero
+	 */
+	public static boolean IsPositive(long cents) {
+		return cents > 0;
+	}
+	
+	/**
+	 * Writes an amount of money with a dollar sign and two decimal places, like "$12.30" or "-$7.05".
+	 * Gives the same text as formatting the amount in dollars with "%.2f", without a format String or a double
+	 * @param builder where to write the amount
+	 * @param cents the amount in cents
+	 * @return the builder
+	 * @see Money#AppendTo(StringBuilder, long, boolean)
+	 */
+	public static StringBuilder AppendTo(StringBuilder builder, long cents) {
+		return AppendTo(builder, cents, false);
+	}
+	
+	/**
+	 * Writes an amount of money with a dollar sign and two decimal places, optionally grouping the dollars by thousands like "$1,234.50".
+	 * Gives the same text as formatting the amount in dollars with "%.2f", or "%,.2f" when grouped, without making any objects
+	 * @param builder where to write the amount
+	 * @param cents the amount in cents
+	 * @param grouped whether to put a comma between every three digits of the dollars
+	 * @return the builder
+	 */
+	public static StringBuilder AppendTo(StringBuilder builder, long cents, boolean grouped) {
+		if (cents < 0) {
+			builder.append('-');
+		}
+		builder.append('$');
+		long dollars = Dollars(cents);
+		for (int place = NumDigits(dollars) - 1; place >= 0; --place) {
+			builder.append(Digit(dollars, place));
+			if (grouped && place > 0 && place % 3 == 0) {
+				builder.append(',');
+			}
+		}
+		int remainder = Remainder(cents);
+		return builder.append('.').append(Digit(remainder, 1)).append(Digit(remainder, 0));
+	}
+	
+	/**
+	 * Writes an amount of money into a char array, in the same text as AppendTo(StringBuilder, long, boolean)
+	 * @param chars where to write the amount, with room for up to MAX_LENGTH chars from the offset
+	 * @param offset index in the array to write the first char at
+	 * @param cents the amount in cents
+	 * @param grouped whether to put a comma between every three digits of the dollars
+	 * @return an int that represents the index just past the last char written
+	 * @throws ArrayIndexOutOfBoundsException if the amount does not fit in the array
+	 */
+	public static int WriteTo(char[] chars, int offset, long cents, boolean grouped) {
+		if (cents < 0) {
+			chars[offset++] = '-';
+		}
+		chars[offset++] = '$';
+		long dollars = Dollars(cents);
+		for (int place = NumDigits(dollars) - 1; place >= 0; --place) {
+			chars[offset++] = Digit(dollars, place);
+			if (grouped && place > 0 && place % 3 == 0) {
+				chars[offset++] = ',';
+			}
+		}
+		int remainder = Remainder(cents);
+		chars[offset++] = '.';
+		chars[offset++] = Digit(remainder, 1);
+		chars[offset++] = Digit(remainder, 0);
+		return offset;
+	}
+	
+	/**
+	 * Writes an amount of money into a byte buffer as ASCII, in the same text as AppendTo(StringBuilder, long, boolean)
+	 * @param buffer where to write the amount, starting at its position, which is moved past the amount
+	 * @param cents the amount in cents
+	 * @param grouped whether to put a comma between every three digits of the dollars
+	 * @return the buffer
+	 * @throws java.nio.BufferOverflowException if the amount does not fit in the buffer
+	 */
+	public static ByteBuffer PutTo(ByteBuffer buffer, long cents, boolean grouped) {
+		if (cents < 0) {
+			buffer.put((byte) '-');
+		}
+		buffer.put((byte) '$');
+		long dollars = Dollars(cents);
+		for (int place = NumDigits(dollars) - 1; place >= 0; --place) {
+			buffer.put((byte) Digit(dollars, place));
+			if (grouped && place > 0 && place % 3 == 0) {
+				buffer.put((byte) ',');
+			}
+		}
+		int remainder = Remainder(cents);
+		return buffer.put((byte) '.').put((byte) Digit(remainder, 1)).put((byte) Digit(remainder, 0));
+	}
+	
+	/**
+	 * Gets the whole dollars of an amount without its sign
+	 * @param cents the amount in cents
+	 * @return a long that represents the whole dollars
+	 */
+	private static long Dollars(long cents) {
+		//divided before taking the absolute value so Long.MIN_VALUE does not overflow
+		return Math.abs(cents / CENTS_PER_DOLLAR);
+	}
+	
+	/**
+	 * Gets the cents past the whole dollars of an amount without its sign
+	 * @param cents the amount in cents
+	 * @return an int from 0 to 99 that represents the cents past the dollar
+	 */
+	private static int Remainder(long cents) {
+		return (int) Math.abs(cents % CENTS_PER_DOLLAR);
+	}
+	
+	/**
+	 * Counts the digits of a whole number, 0 has one digit
+	 * @param value a number that is not negative
+	 * @return an int that represents the number of digits
+	 */
+	private static int NumDigits(long value) {
+		int numDigits = 1;
+		while (numDigits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[numDigits]) {
+			++numDigits;
+		}
+		return numDigits;
+	}
+	
+	/**
+	 * Gets one digit of a whole number
+	 * @param value a number that is not negative
+	 * @param place place of the digit, 0 for the ones
+	 * @return a char that represents the digit
+	 */
+	private static char Digit(long value, int place) {
+		return (char) ('0' + value / POWERS_OF_TEN[place] % 10);
+	}
+}
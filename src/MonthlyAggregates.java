@@ -0,0 +1,191 @@
+/**
+ * Class keeps a personal account's monthly statement totals up to date as transactions are added to its history:
+ * for each posting month, the money that came in, the money that went out, the number of transactions,
+ * and the total and number of transactions of each type, like Credit or Cash.
+ * Months are kept in parallel primitive arrays sorted by month, and each type has its own arrays parallel to them,
+ * indexed by the type's id in TransactionStore. Adding a transaction to the latest month only updates the last slot,
+ * and a month's totals are found with a binary search over the months, so neither depends on the length of the history.
+ * Transactions still processing have no posting month and are not counted.
+ * Not safe for concurrent use, the owning personal account guards it
+ * @author Katie Ho
+ * @version 1.0
+ * @see PersonalAccount#GetMonthlyTotals(int, int)
+ */
+
+import java.util.Arrays;
+
+public class MonthlyAggregates {
+	/**
+	 * Capacity of the arrays of a new index
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+	
+	/**
+	 * Every posting month with a transaction, as months since 01/1970, in increasing order
+	 */
+	private int[] months = new int[INITIAL_CAPACITY];
+	
+	/**
+	 * Total of the positive amounts, and of the negative amounts as a positive number, posted in the month at the same index, in cents
+	 */
+	private long[] inflows = new long[INITIAL_CAPACITY];
+	private long[] outflows = new long[INITIAL_CAPACITY];
+	
+	/**
+	 * Number of transactions posted in the month at the same index
+	 */
+	private int[] counts = new int[INITIAL_CAPACITY];
+	
+	/**
+	 * Total amount in cents and number of transactions of each type posted in each month, indexed by type id then by month.
+	 * A type with no transactions in the account has null arrays
+	 */
+	private long[][] typeTotals = new long[0][];
+	private int[][] typeCounts = new int[0][];
+	
+	/**
+	 * Number of posting months in the index
+	 */
+	private int size;
+	
+	/**
+	 * Posting day of the last transaction added and its month, most transactions post on the same day as the one before
+	 */
+	private int lastPostingDay = PostingDate.PENDING;
+	private int lastMonth;
+	
+	/**
+	 * Adds a transaction to the totals of its posting month
+	 * @param postingDay the day of the posting date, never PostingDate.PENDING
+	 * @param typeId id of the transaction's type
+	 * @param amountCents the amount of the transaction in cents
+	 * @see TransactionStore#GetTypeId(int)
+	 */
+	public void Add(int postingDay, int typeId, long amountCents) {
+		if (postingDay != lastPostingDay) {
+			lastMonth = PostingDate.MonthOf(postingDay);
+			lastPostingDay = postingDay;
+		}
+		int index = IndexOf(lastMonth, true);
+		if (amountCents >= 0) {
+			inflows[index] += amountCents;
+		}
+		else {
+			outflows[index] -= amountCents;
+		}
+		++counts[index];
+		
+		if (typeId >= typeTotals.length) {
+			typeTotals = Arrays.copyOf(typeTotals, typeId + 1);
+			typeCounts = Arrays.copyOf(typeCounts, typeId + 1);
+		}
+		if (typeTotals[typeId] == null) {
+			typeTotals[typeId] = new long[months.length];
+			typeCounts[typeId] = new int[months.length];
+		}
+		typeTotals[typeId][index] += amountCents;
+		++typeCounts[typeId][index];
+	}
+	
+	/**
+	 * Gets the totals of a month
+	 * @param year the year, like 2023
+	 * @param month the month of the year, 1 for January to 12 for December
+	 * @return the month's totals, all 0 if nothing was posted in it
+	 * @throws IllegalArgumentException if the month is not from 1 to 12
+	 */
+	public MonthlyTotals GetTotals(int year, int month) {
+		int index = IndexOf(PostingDate.MonthOf(year, month), false);
+		if (index < 0) {
+			return new MonthlyTotals(year, month, 0L, 0L, 0, new String[0], new long[0], new int[0]);
+		}
+		
+		int numTypes = 0;
+		for (int[] counted : typeCounts) {
+			if (counted != null && counted[index] > 0) {
+				++numTypes;
+			}
+		}
+		String[] types = new String[numTypes];
+		long[] totals = new long[numTypes];
+		int[] numByType = new int[numTypes];
+		int next = 0;
+		for (int typeId = 0; typeId < typeCounts.length; ++typeId) {
+			if (typeCounts[typeId] != null && typeCounts[typeId][index] > 0) {
+				types[next] = TransactionStore.TypeOf(typeId);
+				totals[next] = typeTotals[typeId][index];
+				numByType[next] = typeCounts[typeId][index];
+				++next;
+			}
+		}
+		return new MonthlyTotals(year, month, inflows[index], outflows[index], counts[index], types, totals, numByType);
+	}
+	
+	/**
+	 * Gets the number of posting months in the index
+	 * @return an int that represents the number of months
+	 */
+	public int Size() {
+		return size;
+	}
+	
+	/**
+	 * Finds the index of a month, adding it with all totals 0 if asked to
+	 * @param month the month as months since 01/1970
+	 * @param add whether to add the month if it is not in the index
+	 * @return an int that represents the month's index, or -1 if it is not in the index and was not added
+	 */
+	private int IndexOf(int month, boolean add) {
+		//transactions usually post in the latest month
+		if (size > 0 && months[size - 1] == month) {
+			return size - 1;
+		}
+		int index = Arrays.binarySearch(months, 0, size, month);
+		if (index >= 0) {
+			return index;
+		}
+		else if (add == false) {
+			return -1;
+		}
+		
+		index = -index - 1;
+		if (size == months.length) {
+			Grow();
+		}
+		System.arraycopy(months, index, months, index + 1, size - index);
+		System.arraycopy(inflows, index, inflows, index + 1, size - index);
+		System.arraycopy(outflows, index, outflows, index + 1, size - index);
+		System.arraycopy(counts, index, counts, index + 1, size - index);
+		months[index] = month;
+		inflows[index] = 0L;
+		outflows[index] = 0L;
+		counts[index] = 0;
+		for (int typeId = 0; typeId < typeTotals.length; ++typeId) {
+			if (typeTotals[typeId] != null) {
+				System.arraycopy(typeTotals[typeId], index, typeTotals[typeId], index + 1, size - index);
+				System.arraycopy(typeCounts[typeId], index, typeCounts[typeId], index + 1, size - index);
+				typeTotals[typeId][index] = 0L;
+				typeCounts[typeId][index] = 0;
+			}
+		}
+		++size;
+		return index;
+	}
+	
+	/**
+	 * Doubles the capacity of every array
+	 */
+	private void Grow() {
+		int capacity = months.length * 2;
+		months = Arrays.copyOf(months, capacity);
+		inflows = Arrays.copyOf(inflows, capacity);
+		outflows = Arrays.copyOf(outflows, capacity);
+		counts = Arrays.copyOf(counts, capacity);
+		for (int typeId = 0; typeId < typeTotals.length; ++typeId) {
+			if (typeTotals[typeId] != null) {
+				typeTotals[typeId] = Arrays.copyOf(typeTotals[typeId], capacity);
+				typeCounts[typeId] = Arrays.copyOf(typeCounts[typeId], capacity);
+			}
+		}
+	}
+}
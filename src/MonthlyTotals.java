@@ -0,0 +1,149 @@
+/**
+ * Class represents the totals of one month of a personal account's history, for a monthly statement:
+ * the money that came in and went out, the number of transactions, and the total and number of each type of transaction
+ * @author Katie Ho
+ * @version 1.0
+ * @see MonthlyAggregates
+ */
+
+public class MonthlyTotals {
+	/**
+	 * Year and month of the year, 1 for January to 12 for December
+	 */
+	private int year;
+	private int month;
+	
+	/**
+	 * Total of the positive amounts posted in the month in cents
+	 */
+	private long inflowCents;
+	
+	/**
+	 * Total of the negative amounts posted in the month in cents, as a positive number
+	 */
+	private long outflowCents;
+	
+	/**
+	 * Number of transactions posted in the month
+	 */
+	private int numTransactions;
+	
+	/**
+	 * Every type posted in the month, and the total amount in cents and number of transactions of the type at the same index
+	 */
+	private String[] types;
+	private long[] typeTotalsCents;
+	private int[] typeCounts;
+	
+	/**
+	 * Overload constructor initializing all fields to its values in the parameters
+	 * @param year the year
+	 * @param month the month of the year
+	 * @param inflowCents total of the positive amounts in cents
+	 * @param outflowCents total of the negative amounts in cents, as a positive number
+	 * @param numTransactions number of transactions
+	 * @param types every type posted in the month
+	 * @param typeTotalsCents total amount in cents of each type
+	 * @param typeCounts number of transactions of each type
+	 */
+	public MonthlyTotals(int year, int month, long inflowCents, long outflowCents, int numTransactions, String[] types, long[] typeTotalsCents, int[] typeCounts) {
+		this.year = year;
+		this.month = month;
+		this.inflowCents = inflowCents;
+		this.outflowCents = outflowCents;
+		this.numTransactions = numTransactions;
+		this.types = types;
+		this.typeTotalsCents = typeTotalsCents;
+		this.typeCounts = typeCounts;
+	}
+	
+	/**
+	 * Gets the year
+	 * @return an int that represents the year
+	 */
+	public int GetYear() {
+		return this.year;
+	}
+	
+	/**
+	 * Gets the month of the year
+	 * @return an int that represents the month, 1 for January to 12 for December
+	 */
+	public int GetMonth() {
+		return this.month;
+	}
+	
+	/**
+	 * Gets the money that came into the account in the month
+	 * @return a long that represents the total of the positive amounts in cents
+	 */
+	public long GetInflowCents() {
+		return this.inflowCents;
+	}
+	
+	/**
+	 * Gets the money that went out of the account in the month
+	 * @return a long that represents the total of the negative amounts in cents, as a positive number
+	 */
+	public long GetOutflowCents() {
+		return this.outflowCents;
+	}
+	
+	/**
+	 * Gets the change to the balance over the month
+	 * @return a long that represents the inflow minus the outflow in cents
+	 */
+	public long GetNetCents() {
+		return this.inflowCents - this.outflowCents;
+	}
+	
+	/**
+	 * Gets the number of transactions posted in the month
+	 * @return an int that represents the number of transactions
+	 */
+	public int GetTransactionCount() {
+		return this.numTransactions;
+	}
+	
+	/**
+	 * Gets every type of transaction posted in the month
+	 * @return a String array with the types
+	 */
+	public String[] GetTypes() {
+		return this.types.clone();
+	}
+	
+	/**
+	 * Gets the total amount of one type of transaction posted in the month
+	 * @param type the type, like Credit
+	 * @return a long that represents the total in cents, 0 if no transaction of the type was posted
+	 */
+	public long GetTypeTotalCents(String type) {
+		int index = IndexOf(type);
+		return index < 0 ? 0L : this.typeTotalsCents[index];
+	}
+	
+	/**
+	 * Gets the number of transactions of one type posted in the month
+	 * @param type the type, like Credit
+	 * @return an int that represents the number of transactions
+	 */
+	public int GetTypeCount(String type) {
+		int index = IndexOf(type);
+		return index < 0 ? 0 : this.typeCounts[index];
+	}
+	
+	/**
+	 * Finds a type among the types posted in the month
+	 * @param type the type
+	 * @return an int that represents the index of the type, or -1 if it was not posted
+	 */
+	private int IndexOf(String type) {
+		for (int i = 0; i < this.types.length; ++i) {
+			if (this.types[i].equals(type)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,298 @@
+/**
+ * Class counts how often one banking operation runs, how each run turned out, and how long it took.
+ * Counters are LongAdders, so threads recording at once do not fight over one value, and the times go into
+ * fixed buckets, one per power of two of nanoseconds, so recording never allocates.
+ * The counts are read through JMX as a read-only MBean with one attribute per count and percentile
+ * Safe for concurrent use
+ * @author Katie Ho
+ * @version 1.0
+ * @see BankMetrics
+ */
+
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+public class OperationMetrics implements DynamicMBean {
+	/**
+	 * Number of time buckets, bucket i counts times below 2^i nanoseconds that are not in an earlier bucket.
+	 * The last bucket also counts everything slower, 2^40 nanoseconds is about 18 minutes
+	 */
+	private static final int NUM_BUCKETS = 41;
+	
+	/**
+	 * Percentiles read through JMX and in the text dump
+	 */
+	private static final double[] PERCENTILES = {50.0, 99.0, 99.9};
+	
+	/**
+	 * Name of the operation, like Transfer
+	 */
+	private final String name;
+	
+	/**
+	 * Name of every way a run can turn out, the first is success
+	 */
+	private final String[] outcomeNames;
+	
+	/**
+	 * Number of runs that turned out each way
+	 */
+	private final LongAdder[] outcomes;
+	
+	/**
+	 * Total time of every run in nanoseconds
+	 */
+	private final LongAdder totalNanos = new LongAdder();
+	
+	/**
+	 * Number of runs in each time bucket
+	 */
+	private final LongAdder[] buckets = new LongAdder[NUM_BUCKETS];
+	
+	/**
+	 * Overload constructor initializing all fields to its values in the parameters
+	 * @param name name of the operation
+	 * @param outcomeNames name of every way a run can turn out, the first is success
+	 * @throws IllegalArgumentException if there are no outcomes
+	 */
+	public OperationMetrics(String name, String... outcomeNames) {
+		if (outcomeNames.length == 0) {
+			throw new IllegalArgumentException("Operation " + name + " needs at least one outcome.");
+		}
+		this.name = name;
+		this.outcomeNames = outcomeNames.clone();
+		this.outcomes = new LongAdder[outcomeNames.length];
+		for (int i = 0; i < outcomes.length; ++i) {
+			outcomes[i] = new LongAdder();
+		}
+		for (int i = 0; i < NUM_BUCKETS; ++i) {
+			buckets[i] = new LongAdder();
+		}
+	}
+	
+	/**
+	 * Records one run of the operation, unless it was started while metrics were off
+	 * @param startNanos what BankMetrics.Start() gave back when the run started
+	 * @param outcome index of how the run turned out, 0 for success
+	 * @see BankMetrics#Start()
+	 */
+	public void Record(long startNanos, int outcome) {
+		if (startNanos == BankMetrics.OFF) {
+			return;
+		}
+		long nanos = Math.max(0L, System.nanoTime() - startNanos);
+		outcomes[outcome].increment();
+		totalNanos.add(nanos);
+		buckets[Math.min(NUM_BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(nanos))].increment();
+	}
+	
+	/**
+	 * Gets the name of the operation
+	 * @return a String that represents the name
+	 */
+	public String GetName() {
+		return name;
+	}
+	
+	/**
+	 * Gets the number of recorded runs
+	 * @return a long that represents the number of runs
+	 */
+	public long GetCalls() {
+		long calls = 0;
+		for (LongAdder outcome : outcomes) {
+			calls += outcome.sum();
+		}
+		return calls;
+	}
+	
+	/**
+	 * Gets the number of recorded runs that did not succeed
+	 * @return a long that represents the number of failed runs
+	 */
+	public long GetFailures() {
+		return GetCalls() - outcomes[0].sum();
+	}
+	
+	/**
+	 * Gets the number of recorded runs that turned out one way
+	 * @param outcome index of the outcome
+	 * @return a long that represents the number of runs
+	 */
+	public long GetOutcomeCount(int outcome) {
+		return outcomes[outcome].sum();
+	}
+	
+	/**
+	 * Gets the mean time of the recorded runs
+	 * @return a double that represents the mean in nanoseconds, 0 if nothing was recorded
+	 */
+	public double GetMeanNanos() {
+		long calls = GetCalls();
+		return calls == 0 ? 0.0 : totalNanos.sum() / (double) calls;
+	}
+	
+	/**
+	 * Gets a time that a percentage of the recorded runs took at most, to within a factor of two
+	 * @param percentile the percentage, from 0 to 100
+	 * @return a long that represents the upper end of the bucket holding the percentile in nanoseconds, 0 if nothing was recorded
+	 */
+	public long GetPercentileNanos(double percentile) {
+		long[] counts = new long[NUM_BUCKETS];
+		long total = 0;
+		for (int i = 0; i < NUM_BUCKETS; ++i) {
+			counts[i] = buckets[i].sum();
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0L;
+		}
+		long countAtPercentile = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; ++i) {
+			seen += counts[i];
+			if (seen >= countAtPercentile) {
+				return 1L << i;
+			}
+		}
+		return 1L << (NUM_BUCKETS - 1);
+	}
+	
+	/**
+	 * Writes one line of the text dump: the runs, each outcome that happened, the mean time, and the percentiles
+	 * @param builder where to write the line
+	 * @return the builder
+	 */
+	public StringBuilder AppendTo(StringBuilder builder) {
+		builder.append(name).append(": calls=").append(GetCalls());
+		for (int i = 0; i < outcomeNames.length; ++i) {
+			long count = outcomes[i].sum();
+			if (count > 0) {
+				builder.append(' ').append(outcomeNames[i]).append('=').append(count);
+			}
+		}
+		builder.append(" meanMicros=").append(Math.round(GetMeanNanos() / 100.0) / 10.0);
+		for (double percentile : PERCENTILES) {
+			builder.append(' ').append(PercentileName(percentile)).append("Micros<=").append(GetPercentileNanos(percentile) / 1000.0);
+		}
+		return builder.append(System.lineSeparator());
+	}
+	
+	/**
+	 * Gets the value of an MBean attribute
+	 * @param attribute the attribute's name
+	 * @return the value
+	 * @throws AttributeNotFoundException if the operation has no such attribute
+	 */
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		if (attribute.equals("Calls")) {
+			return GetCalls();
+		}
+		else if (attribute.equals("Failures")) {
+			return GetFailures();
+		}
+		else if (attribute.equals("MeanMicros")) {
+			return GetMeanNanos() / 1000.0;
+		}
+		for (double percentile : PERCENTILES) {
+			if (attribute.equals(PercentileName(percentile) + "Micros")) {
+				return GetPercentileNanos(percentile) / 1000.0;
+			}
+		}
+		for (int i = 0; i < outcomeNames.length; ++i) {
+			if (attribute.equals(outcomeNames[i])) {
+				return outcomes[i].sum();
+			}
+		}
+		throw new AttributeNotFoundException("Operation " + name + " has no attribute " + attribute);
+	}
+	
+	/**
+	 * Gets the values of several MBean attributes, leaving out any that do not exist
+	 * @param attributes the attributes' names
+	 * @return the attributes found
+	 */
+	@Override
+	public AttributeList getAttributes(String[] attributes) {
+		AttributeList values = new AttributeList();
+		for (String attribute : attributes) {
+			try {
+				values.add(new Attribute(attribute, getAttribute(attribute)));
+			}
+			catch (AttributeNotFoundException excpt) {
+				//left out, as the MBean contract allows
+			}
+		}
+		return values;
+	}
+	
+	/**
+	 * Every attribute is read-only
+	 * @param attribute the attribute to set
+	 * @throws AttributeNotFoundException always
+	 */
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("Attribute " + attribute.getName() + " of operation " + name + " is read-only.");
+	}
+	
+	/**
+	 * Every attribute is read-only, so none are set
+	 * @param attributes the attributes to set
+	 * @return an empty list
+	 */
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+	
+	/**
+	 * The MBean has no operations
+	 * @param actionName name of the operation
+	 * @param params its parameters
+	 * @param signature its parameter types
+	 * @return never
+	 * @throws ReflectionException always
+	 */
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+		throw new ReflectionException(new NoSuchMethodException(actionName), "Operation " + name + " has no MBean operations.");
+	}
+	
+	/**
+	 * Describes the MBean's attributes: the runs, failures, mean, percentiles, and the count of every outcome
+	 * @return the MBean's description
+	 */
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[3 + PERCENTILES.length + outcomeNames.length];
+		attributes[0] = new MBeanAttributeInfo("Calls", "long", "Number of runs", true, false, false);
+		attributes[1] = new MBeanAttributeInfo("Failures", "long", "Number of runs that did not succeed", true, false, false);
+		attributes[2] = new MBeanAttributeInfo("MeanMicros", "double", "Mean time of a run in microseconds", true, false, false);
+		for (int i = 0; i < PERCENTILES.length; ++i) {
+			attributes[3 + i] = new MBeanAttributeInfo(PercentileName(PERCENTILES[i]) + "Micros", "double",
+					"Time in microseconds that " + PERCENTILES[i] + "% of runs took at most, to within a factor of two", true, false, false);
+		}
+		for (int i = 0; i < outcomeNames.length; ++i) {
+			attributes[3 + PERCENTILES.length + i] = new MBeanAttributeInfo(outcomeNames[i], "long", "Number of runs that turned out " + outcomeNames[i], true, false, false);
+		}
+		return new MBeanInfo(getClass().getName(), "Counts and times of the " + name + " operation", attributes, null, new MBeanOperationInfo[0], null);
+	}
+	
+	/**
+	 * Names a percentile for an attribute, like P99 or P99_9
+	 * @param percentile the percentile
+	 * @return a String that represents the name
+	 */
+	private static String PercentileName(double percentile) {
+		return percentile == Math.rint(percentile) ? "P" + (long) percentile : "P" + Double.toString(percentile).replace('.', '_');
+	}
+}
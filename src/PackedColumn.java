@@ -0,0 +1,255 @@
+/**
+ * Class represents a growable column of whole numbers kept in the narrowest primitive array that holds every one of them.
+ * A new column stores each number in an unsigned byte, and is widened to an unsigned char, an int, then a long
+ * the first time a number does not fit, so a column of small ids or day numbers costs one or two bytes a row.
+ * The column only knows its capacity, its owner keeps track of how many rows are in use.
+ * A column can be saved as its width and its numbers, see WriteTo(DataOutput, int)
+ * Not safe for concurrent use, the owner guards it
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class PackedColumn {
+	/**
+	 * Capacity of a new column
+	 */
+	private static final int INITIAL_CAPACITY = 8;
+	
+	/**
+	 * The numbers in the column, in exactly one of these arrays depending on the width, the others are null
+	 */
+	private byte[] bytes = new byte[INITIAL_CAPACITY];
+	private char[] chars;
+	private int[] ints;
+	private long[] longs;
+	
+	/**
+	 * Number of bytes each number takes, 1, 2, 4 or 8
+	 */
+	private int width = Byte.BYTES;
+	
+	/**
+	 * Number of rows the column has room for
+	 */
+	private int capacity = INITIAL_CAPACITY;
+	
+	/**
+	 * Sets the number in a row, widening the column first if the number does not fit
+	 * @param index row to set, less than the capacity
+	 * @param value the number
+	 */
+	public void Set(int index, long value) {
+		switch (width) {
+			case Byte.BYTES:
+				if ((value & ~0xFFL) == 0) {
+					bytes[index] = (byte) value;
+					return;
+				}
+				break;
+			case Character.BYTES:
+				if ((value & ~0xFFFFL) == 0) {
+					chars[index] = (char) value;
+					return;
+				}
+				break;
+			case Integer.BYTES:
+				if (value == (int) value) {
+					ints[index] = (int) value;
+					return;
+				}
+				break;
+			default:
+				longs[index] = value;
+				return;
+		}
+		//the number does not fit, which happens at most three times in a column's life
+		Widen(WidthOf(value));
+		Set(index, value);
+	}
+	
+	/**
+	 * Gets the number in a row
+	 * @param index row to get, less than the capacity
+	 * @return a long that represents the number, 0 for a row never set
+	 */
+	public long Get(int index) {
+		switch (width) {
+			case Byte.BYTES:
+				return bytes[index] & 0xFF;
+			case Character.BYTES:
+				return chars[index];
+			case Integer.BYTES:
+				return ints[index];
+			default:
+				return longs[index];
+		}
+	}
+	
+	/**
+	 * Gets the number of rows the column has room for
+	 * @return an int that represents the capacity
+	 */
+	public int Capacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Makes room for more rows, keeping the numbers already in the column
+	 * @param newCapacity number of rows to make room for, more than the capacity
+	 */
+	public void Grow(int newCapacity) {
+		switch (width) {
+			case Byte.BYTES:
+				bytes = Arrays.copyOf(bytes, newCapacity);
+				break;
+			case Character.BYTES:
+				chars = Arrays.copyOf(chars, newCapacity);
+				break;
+			case Integer.BYTES:
+				ints = Arrays.copyOf(ints, newCapacity);
+				break;
+			default:
+				longs = Arrays.copyOf(longs, newCapacity);
+		}
+		capacity = newCapacity;
+	}
+	
+	/**
+	 * Gets the number of bytes WriteTo(DataOutput, int) writes for some rows
+	 * @param count number of rows to save
+	 * @return a long that represents the size of the saved rows in bytes
+	 */
+	public long EncodedSize(int count) {
+		return 1L + (long) count * width;
+	}
+	
+	/**
+	 * Saves the first rows of the column: its width as a byte, then each number in that many bytes
+	 * @param out where to write the rows
+	 * @param count number of rows to save
+	 * @throws IOException if the rows cannot be written
+	 * @see PackedColumn#ReadFrom(ByteBuffer, int, int)
+	 */
+	public void WriteTo(DataOutput out, int count) throws IOException {
+		out.writeByte(width);
+		switch (width) {
+			case Byte.BYTES:
+				out.write(bytes, 0, count);
+				break;
+			case Character.BYTES:
+				for (int i = 0; i < count; ++i) {
+					out.writeChar(chars[i]);
+				}
+				break;
+			case Integer.BYTES:
+				for (int i = 0; i < count; ++i) {
+					out.writeInt(ints[i]);
+				}
+				break;
+			default:
+				for (int i = 0; i < count; ++i) {
+					out.writeLong(longs[i]);
+				}
+		}
+	}
+	
+	/**
+	 * Reads rows saved by WriteTo(DataOutput, int) into the column, in bulk when they are no wider than the column
+	 * @param in the saved rows, positioned at their start, left positioned just past them
+	 * @param first row to read the first saved number into, the rows from it on must fit in the capacity
+	 * @param count number of rows saved
+	 * @throws IllegalArgumentException if the saved width is not 1, 2, 4 or 8
+	 */
+	public void ReadFrom(ByteBuffer in, int first, int count) {
+		int savedWidth = in.get();
+		if (savedWidth != Byte.BYTES && savedWidth != Character.BYTES && savedWidth != Integer.BYTES && savedWidth != Long.BYTES) {
+			throw new IllegalArgumentException("Saved column has width " + savedWidth + ".");
+		}
+		if (savedWidth > width) {
+			Widen(savedWidth);
+		}
+		if (savedWidth == width) {
+			switch (width) {
+				case Byte.BYTES:
+					in.get(in.position(), bytes, first, count);
+					break;
+				case Character.BYTES:
+					in.asCharBuffer().get(chars, first, count);
+					break;
+				case Integer.BYTES:
+					in.asIntBuffer().get(ints, first, count);
+					break;
+				default:
+					in.asLongBuffer().get(longs, first, count);
+			}
+			in.position(in.position() + count * savedWidth);
+			return;
+		}
+		
+		//saved narrower than the column is now, so each number is widened as it is read
+		for (int i = 0; i < count; ++i) {
+			switch (savedWidth) {
+				case Byte.BYTES:
+					Set(first + i, in.get() & 0xFF);
+					break;
+				case Character.BYTES:
+					Set(first + i, in.getChar());
+					break;
+				default:
+					Set(first + i, in.getInt());
+			}
+		}
+	}
+	
+	/**
+	 * Gets the narrowest width a number fits in
+	 * @param value the number
+	 * @return an int that represents the width in bytes
+	 */
+	private static int WidthOf(long value) {
+		if ((value & ~0xFFL) == 0) {
+			return Byte.BYTES;
+		}
+		else if ((value & ~0xFFFFL) == 0) {
+			return Character.BYTES;
+		}
+		else if (value == (int) value) {
+			return Integer.BYTES;
+		}
+		return Long.BYTES;
+	}
+	
+	/**
+	 * Copies every number into a wider array
+	 * @param newWidth the new width in bytes, more than the current one
+	 */
+	private void Widen(int newWidth) {
+		long[] values = new long[capacity];
+		for (int i = 0; i < capacity; ++i) {
+			values[i] = Get(i);
+		}
+		bytes = null;
+		chars = null;
+		ints = null;
+		longs = null;
+		width = newWidth;
+		switch (newWidth) {
+			case Character.BYTES:
+				chars = new char[capacity];
+				break;
+			case Integer.BYTES:
+				ints = new int[capacity];
+				break;
+			default:
+				longs = new long[capacity];
+		}
+		for (int i = 0; i < capacity; ++i) {
+			Set(i, values[i]);
+		}
+	}
+}
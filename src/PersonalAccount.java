@@ -5,29 +5,197 @@
  * @version 1.0
  */
 
-import java.util.ArrayList;
-import java.lang.Math;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class PersonalAccount {
+	/**
+	 * Cursor that starts a page of the history at the newest transaction
+	 * @see PersonalAccount#WriteHistory(Appendable, int, int)
+	 */
+	public static final int NEWEST = Integer.MAX_VALUE;
+	
+	/**
+	 * Number of transactions written into the buffer while holding the history's lock, before the buffer is handed to the output
+	 */
+	private static final int ROWS_PER_CHUNK = 256;
+	
+	/**
+	 * Largest buffer a thread keeps for writing its next history
+	 */
+	private static final int MAX_KEPT_BUFFER = 1 << 16;
+	
+	/**
+	 * Buffer each thread reuses for writing history rows
+	 */
+	private static final ThreadLocal<StringBuilder> HISTORY_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+	
+	/**
+	 * Lock order given to the next account made
+	 */
+	private static final AtomicLong NEXT_LOCK_ORDER = new AtomicLong();
+	
 	/**
 	 * The name of the account
 	 */
 	private String accName;
 	
 	/**
-	 * The identifier number of the account
+	 * The identifier number of the account, fixed once the account is registered
+	 */
+	private volatile long accNumber;
+	
+	/**
+	 * Whether the account has been added to an AccountIndex under its number, guarded by the account's monitor
+	 * @see PersonalAccount#FixAccNumber()
+	 */
+	private boolean registered;
+	
+	/**
+	 * The shortened account name and number, made the first time it is asked for, or null
 	 */
-	private long accNumber;
+	private volatile String shortenedAccNameWithNum;
 	
 	/**
-	 * The overall balance (sum of past transactions' amounts) of the account
+	 * Token replaced every time the name or number changes
+	 * @see PersonalAccount#GetLabelVersion()
 	 */
-	private double balance;
+	private volatile Object labelVersion = new Object();
 	
 	/**
-	 * The list of past transactions made on the account
+	 * The latest change to the account's balance, which holds the overall balance
+	 * (sum of past transactions' amounts) of the account in cents.
+	 * Balance changes are made by compare-and-set on this reference, without locking
 	 */
-	private ArrayList<Transaction> transactions = new ArrayList<>();
+	private final AtomicReference<Posting> latestPosting = new AtomicReference<>();
+	
+	/**
+	 * The history of past transactions made on the account, stored column by column.
+	 * Its own lock guards it, postings are added to it in the order they changed the balance
+	 */
+	private TransactionStore transactions = new TransactionStore();
+	
+	/**
+	 * The latest posting already added to the history, guarded by the history's lock
+	 */
+	private Posting latestRecorded;
+	
+	/**
+	 * Reused space for gathering postings not yet added to the history, guarded by the history's lock
+	 */
+	private Posting[] unrecordedPostings = new Posting[8];
+	
+	/**
+	 * History saved in a snapshot that has not been read into the history yet, or null.
+	 * It is read the first time the history is used, guarded by the history's lock
+	 * @see Snapshot
+	 */
+	private ByteBuffer savedHistory;
+	
+	/**
+	 * Index of the changes to the balance by posting date, guarded by the history's lock.
+	 * It is brought up to date with the history when a past balance or a range of dates is asked for
+	 */
+	private final BalanceIndex balanceIndex = new BalanceIndex();
+	
+	/**
+	 * The history in posting date order, guarded by the history's lock and brought up to date with the balance index
+	 */
+	private final PostingDateIndex dateIndex = new PostingDateIndex();
+	
+	/**
+	 * Inverted index of the words in the history's descriptions, guarded by the history's lock and brought up to date with the balance index
+	 */
+	private final DescriptionIndex descriptionIndex = new DescriptionIndex();
+	
+	/**
+	 * Number of transactions from the start of the history already in the balance, date, and description indexes, guarded by the history's lock
+	 */
+	private int numIndexedTransactions;
+	
+	/**
+	 * Totals of the history by posting month and by type, guarded by the history's lock.
+	 * Unlike the indexes above, it is brought up to date every time postings are added to the history
+	 */
+	private final MonthlyAggregates monthlyAggregates = new MonthlyAggregates();
+	
+	/**
+	 * Number of transactions from the start of the history already in the monthly totals, guarded by the history's lock
+	 */
+	private int numAggregatedTransactions;
+	
+	/**
+	 * Lock held to make changes to several accounts at once, like the two sides of a transfer.
+	 * Changes to a single account's balance do not need it, but adding postings to the history and the journal does,
+	 * so while a transfer holds its accounts no other thread can journal one side of it on its own
+	 * @see AccountLocks
+	 * @see PersonalAccount#RecordPostings(Journal.Group)
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	/**
+	 * Order the account is locked in among other accounts, given when the account is made and never changed
+	 * @see AccountLocks#Compare(PersonalAccount, PersonalAccount)
+	 */
+	private final long lockOrder = NEXT_LOCK_ORDER.getAndIncrement();
+	
+	/**
+	 * Journal every posting is written to as it is added to the history, or null for none
+	 */
+	private volatile Journal journal;
+	
+	/**
+	 * A single change to the account's balance, linked to the change before it
+	 */
+	private static final class Posting {
+		private final int postingDay;
+		private final byte descriptionKind;
+		private final String description;
+		private final long confirmationNumber;
+		private final String type;
+		private final long amount;
+		private final long balance;
+		
+		/**
+		 * Whether the posting is a transaction that goes in the history, or only sets the balance
+		 */
+		private final boolean recorded;
+		
+		/**
+		 * The posting made before this one, cleared once this posting is added to the history
+		 */
+		private Posting previous;
+		
+		/**
+		 * Position to wait for in the journal until the posting is durable, 0 if it was not journaled.
+		 * Guarded by the history's lock
+		 */
+		private long journalPosition;
+		
+		Posting(int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amount, long balance, boolean recorded, Posting previous) {
+			this.postingDay = postingDay;
+			this.descriptionKind = descriptionKind;
+			this.description = description;
+			this.confirmationNumber = confirmationNumber;
+			this.type = type;
+			this.amount = amount;
+			this.balance = balance;
+			this.recorded = recorded;
+			this.previous = previous;
+		}
+		
+		Transaction ToTransaction() {
+			return new Transaction(postingDay, descriptionKind, description, confirmationNumber, type, amount, balance);
+		}
+	}
 	
 	/**
 	 * Default constructor initializing all fields to 0 or N/A
@@ -35,7 +203,7 @@ public class PersonalAccount {
 	public PersonalAccount() {
 		this.accName = "N/A";
 		this.accNumber = 000000000000;
-		this.balance = 0.00;
+		SetOpeningBalance(0L);
 	}
 	
 	/**
@@ -47,7 +215,19 @@ public class PersonalAccount {
 	public PersonalAccount(String accName, long accNumber, double balance) {
 		this.accName = accName;
 		this.accNumber = accNumber;
-		this.balance = balance;
+		SetOpeningBalance(Money.FromDollars(balance));
+	}
+	
+	/**
+	 * Overload constructor initializing all fields to its values in the parameters, with the balance in cents
+	 * @param accName name of the account
+	 * @param accNumber identifier number of the account
+	 * @param balanceCents overall balance of the account in cents
+	 */
+	public PersonalAccount(String accName, long accNumber, long balanceCents) {
+		this.accName = accName;
+		this.accNumber = accNumber;
+		SetOpeningBalance(balanceCents);
 	}
 	
 	/**
@@ -56,35 +236,142 @@ public class PersonalAccount {
 	 * @param postingDate 
 	 * @param description
 	 * @param type
-	 * @param amount
+	 * @param amount amount in dollars, rounded to the nearest cent
 	 * @return a newly made transaction
-	 * @see PersonalAccount#UpdateAccBalance()
-	 * @see PersonalAccount#AddTransaction(Transaction)
+	 * @see PostingDate#Parse(String)
+	 * @see PersonalAccount#CreateTransactionCents(int, String, String, long)
 	 */
 	public Transaction CreateTransaction(String postingDate, String description, String type, double amount) {
-		double roundedAmount = Math.round(amount*100.00)/100.00;
-		UpdateAccBalance(roundedAmount);
-		Transaction transaction = new Transaction(postingDate, description, type, roundedAmount, this.balance);
-		AddTransaction(transaction);
+		return CreateTransactionCents(PostingDate.Parse(postingDate), description, type, Money.FromDollars(amount));
+	}
+	
+	/**
+	 * Creates a single transaction from an amount in cents and add it to the personal acc's history of transactions.
+	 * Takes the transaction and adds it to the overall balance.
+	 * If the account has a journal, returns once the transaction is durable in it
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param description description portion of the transaction
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @return a newly made transaction
+	 * @see PersonalAccount#CreateTransactionCents(int, byte, String, long, String, long)
+	 */
+	public Transaction CreateTransactionCents(int postingDay, String description, String type, long amountCents) {
+		return CreateTransactionCents(postingDay, TransactionDescription.TEXT, description, 0L, type, amountCents);
+	}
+	
+	/**
+	 * Creates a single transaction with a structured description from an amount in cents and add it to the personal acc's history of transactions.
+	 * The description is only made into text when it is displayed.
+	 * If the account has a journal, returns once the transaction is durable in it
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param descriptionKind kind of the description
+	 * @param description description portion of the transaction for TransactionDescription.TEXT, or the other account's shortened name and number
+	 * @param confirmationNumber confirmation number of the description, unused for TransactionDescription.TEXT
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @return a newly made transaction
+	 * @see PersonalAccount#Post(int, byte, String, long, String, long, boolean)
+	 */
+	Transaction CreateTransactionCents(int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amountCents) {
+		return PostAndRecord(postingDay, descriptionKind, description, confirmationNumber, type, amountCents).ToTransaction();
+	}
+	
+	/**
+	 * Adds a transaction from an amount in cents to the personal acc's history of transactions without making a Transaction object,
+	 * for callers that only need the new balance.
+	 * If the account has a journal, returns once the transaction is durable in it
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param description description portion of the transaction
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @return a long that represents the balance after the transaction in cents
+	 * @see PersonalAccount#PostTransactionCents(int, byte, String, long, String, long)
+	 */
+	public long PostTransactionCents(int postingDay, String description, String type, long amountCents) {
+		return PostTransactionCents(postingDay, TransactionDescription.TEXT, description, 0L, type, amountCents);
+	}
+	
+	/**
+	 * Adds a transaction with a structured description from an amount in cents to the personal acc's history of transactions
+	 * without making a Transaction object.
+	 * If the account has a journal, returns once the transaction is durable in it
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param descriptionKind kind of the description
+	 * @param description description portion of the transaction for TransactionDescription.TEXT, or the other account's shortened name and number
+	 * @param confirmationNumber confirmation number of the description, unused for TransactionDescription.TEXT
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @return a long that represents the balance after the transaction in cents
+	 */
+	long PostTransactionCents(int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amountCents) {
+		return PostAndRecord(postingDay, descriptionKind, description, confirmationNumber, type, amountCents).balance;
+	}
+	
+	/**
+	 * Changes the balance by an amount in cents, adds the change to the history, and waits until it is durable
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param descriptionKind kind of the description
+	 * @param description description portion of the transaction for TransactionDescription.TEXT, or the other account's shortened name and number
+	 * @param confirmationNumber confirmation number of the description, unused for TransactionDescription.TEXT
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @return the posting that changed the balance
+	 * @see PersonalAccount#Post(int, byte, String, long, String, long, boolean)
+	 */
+	private Posting PostAndRecord(int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amountCents) {
+		Posting posting = Post(postingDay, descriptionKind, description, confirmationNumber, type, amountCents, false);
+		AwaitDurable(RecordPostings());
+		return posting;
+	}
+	
+	/**
+	 * Creates a single transaction taking an amount in cents out of the account, only if the balance is greater than the amount.
+	 * The check and the change to the balance happen as one atomic step without locking,
+	 * so threads withdrawing from the same account at once can never overdraw it.
+	 * If the account has a journal, returns once the transaction is durable in it
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param description description portion of the transaction
+	 * @param type type portion of the transaction
+	 * @param amountCents amount in cents to take out of the account
+	 * @return a newly made transaction, or null if the account has insufficient funds
+	 * @see PersonalAccount#CreateWithdrawalCents(int, byte, String, long, String, long)
+	 */
+	public Transaction CreateWithdrawalCents(int postingDay, String description, String type, long amountCents) {
+		return CreateWithdrawalCents(postingDay, TransactionDescription.TEXT, description, 0L, type, amountCents);
+	}
+	
+	/**
+	 * Creates a single transaction with a structured description taking an amount in cents out of the account,
+	 * only if the balance is greater than the amount.
+	 * If the account has a journal, returns once the transaction is durable in it
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param descriptionKind kind of the description
+	 * @param description description portion of the transaction for TransactionDescription.TEXT, or the other account's shortened name and number
+	 * @param confirmationNumber confirmation number of the description, unused for TransactionDescription.TEXT
+	 * @param type type portion of the transaction
+	 * @param amountCents amount in cents to take out of the account
+	 * @return a newly made transaction, or null if the account has insufficient funds
+	 * @see PersonalAccount#Post(int, byte, String, long, String, long, boolean)
+	 */
+	Transaction CreateWithdrawalCents(int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amountCents) {
+		Posting posting = Post(postingDay, descriptionKind, description, confirmationNumber, type, -amountCents, true);
+		if (posting == null) {
+			return null;
+		}
+		AwaitDurable(RecordPostings());
 		
-		return transaction;
+		return posting.ToTransaction();
 	}
 	
 	/**
 	 * Puts amount into money format with a dollar sign
-	 * @param moneyAmount
+	 * @param moneyAmount an amount in dollars of whole cents, like a balance
 	 * @return a String that represents the amount
+	 * @see Money#AppendTo(StringBuilder, long)
 	 */
 	public String DisplayMoney(double moneyAmount) {
-		String moneyString;
-		if (moneyAmount < 0) {
-			moneyString = "-$" + String.format("%.2f", Math.abs(moneyAmount)); 
-		}
-		else {
-			moneyString = "$" + String.format("%.2f", Math.abs(moneyAmount));
-		}
-		
-		return moneyString;
+		return Money.AppendTo(new StringBuilder(Money.MAX_LENGTH), Money.FromDollars(moneyAmount)).toString();
 	}
 	
 	/**
@@ -92,30 +379,31 @@ public class PersonalAccount {
 	 * @return a String that represents the account name but shortened
 	 */
 	public String GetShortenedAccName() {
-		String shortenedAccName = "";
-		for (int i = 0; i < 3; ++i) {
-			shortenedAccName += this.accName.charAt(i);
-		}
-		
-		return shortenedAccName;
+		return this.accName.substring(0, 3);
 	}
 	
 	/**
 	 * Shortens the account number from a long to an int
-	 * @return an int that represents the account number but shortened
+	 * @return an int that represents the last four digits of the account number
 	 */
 	public int GetShortenedAccNum() {
-		Long accNumber = this.accNumber;
-		String accNumberString = accNumber.toString();
-		
-		String lastFourDigitsString = "";
-		for (int i = 4; i > 0; --i) {
-			lastFourDigitsString += accNumberString.charAt(accNumberString.length() - i);
+		return (int) Math.abs(this.accNumber % 10000);
+	}
+	
+	/**
+	 * Gets the shortened account name with the shortened number, like "Adv - 9957", as descriptions name the account.
+	 * It is made once and kept until the account's name or number changes
+	 * @return a String that represents the shortened account name and number
+	 * @see PersonalAccount#GetShortenedAccName()
+	 * @see PersonalAccount#GetShortenedAccNum()
+	 */
+	public String GetShortenedAccNameWithNum() {
+		String shortened = shortenedAccNameWithNum;
+		if (shortened == null) {
+			shortened = GetShortenedAccName() + " - " + GetShortenedAccNum();
+			shortenedAccNameWithNum = shortened;
 		}
-		
-		int lastFourDigits = Integer.parseInt(lastFourDigitsString);
-		
-		return lastFourDigits;
+		return shortened;
 	}
 	
 	/**
@@ -124,14 +412,22 @@ public class PersonalAccount {
 	 */
 	public void SetAccName(String accName) {
 		this.accName = accName;
+		this.shortenedAccNameWithNum = null;
+		this.labelVersion = new Object();
 	}
 	
 	/**
-	 * Sets the identifier number of the account
+	 * Sets the identifier number of the account, only while it is not registered, since accounts are found by their number
 	 * @param accNumber number portion of the account
+	 * @throws IllegalStateException if the account is already registered under its number
 	 */
-	public void SetAccNumber(long accNumber) {
+	public synchronized void SetAccNumber(long accNumber) {
+		if (registered) {
+			throw new IllegalStateException("Account number " + this.accNumber + " can not be changed once the account is registered.");
+		}
 		this.accNumber = accNumber;
+		this.shortenedAccNameWithNum = null;
+		this.labelVersion = new Object();
 	}
 	
 	/**
@@ -139,7 +435,28 @@ public class PersonalAccount {
 	 * @param balance balance portion of the account
 	 */
 	public void SetBalance(double balance) {
-		this.balance = Math.round(balance*100.00)/100.00;
+		SetBalanceCents(Money.FromDollars(balance));
+	}
+	
+	/**
+	 * Sets the overall balance of the account in cents.
+	 * If the account has a journal, returns once the new balance is durable in it
+	 * @param balanceCents balance portion of the account in cents
+	 */
+	public void SetBalanceCents(long balanceCents) {
+		Posting previous;
+		do {
+			previous = latestPosting.get();
+		} while (latestPosting.compareAndSet(previous, new Posting(PostingDate.PENDING, TransactionDescription.TEXT, null, 0L, null, 0L, balanceCents, false, previous)) == false);
+		AwaitDurable(RecordPostings());
+	}
+	
+	/**
+	 * Sets the journal every later posting is written to
+	 * @param journal journal for the account's postings, or null for none
+	 */
+	public void SetJournal(Journal journal) {
+		this.journal = journal;
 	}
 	
 	/**
@@ -163,51 +480,737 @@ public class PersonalAccount {
 	 * @return a double that represents the balance of the account
 	 */
 	public double GetBalance() {
-		return this.balance;
+		return Money.ToDollars(GetBalanceCents());
+	}
+	
+	/**
+	 * Gets the overall balance of the account in cents
+	 * @return a long that represents the balance of the account in cents
+	 */
+	public long GetBalanceCents() {
+		return latestPosting.get().balance;
+	}
+	
+	/**
+	 * Gets the balance of the account at the end of a past date
+	 * @param postingDate the date, in the format MM/dd/yyyy
+	 * @return a double that represents the balance on that date
+	 * @see PersonalAccount#BalanceAsOfCents(int)
+	 */
+	public double BalanceAsOf(String postingDate) {
+		return Money.ToDollars(BalanceAsOfCents(PostingDate.Parse(postingDate)));
+	}
+	
+	/**
+	 * Gets the balance of the account in cents at the end of a past date: the balance before the first transaction,
+	 * plus the change each transaction posted on or before the date made to the running balance.
+	 * A balance set directly counts from the next transaction's posting date, and transactions still processing are not counted.
+	 * Transactions not yet in the balance index are added to it first, after that it answers with a binary search
+	 * @param postingDay the date as days since 01/01/1970
+	 * @return a long that represents the balance on that date in cents
+	 * @throws IllegalArgumentException if the date is PostingDate.PENDING
+	 * @see PersonalAccount#IndexHistory()
+	 * @see BalanceIndex#GetChangeThrough(int)
+	 */
+	public long BalanceAsOfCents(int postingDay) {
+		if (postingDay == PostingDate.PENDING) {
+			throw new IllegalArgumentException("A balance can only be found for a posting date, not " + PostingDate.PENDING_TEXT + ".");
+		}
+		
+		RecordPostings();
+		synchronized (transactions) {
+			LoadSavedHistory();
+			int numTransactions = transactions.Size();
+			if (numTransactions == 0) {
+				return latestRecorded.balance;
+			}
+			
+			IndexHistory();
+			return transactions.GetBalanceCents(0) - transactions.GetAmountCents(0) + balanceIndex.GetChangeThrough(postingDay);
+		}
+	}
+	
+	/**
+	 * Gets the totals of one month of the history for a monthly statement: money in, money out, and totals by type.
+	 * They are kept up to date as transactions are made, so this does not read the history
+	 * @param year the year, like 2023
+	 * @param month the month of the year, 1 for January to 12 for December
+	 * @return the month's totals, all 0 if nothing was posted in it
+	 * @throws IllegalArgumentException if the month is not from 1 to 12
+	 * @see MonthlyAggregates#GetTotals(int, int)
+	 */
+	public MonthlyTotals GetMonthlyTotals(int year, int month) {
+		RecordPostings();
+		synchronized (transactions) {
+			LoadSavedHistory();
+			AggregateHistory();
+			return monthlyAggregates.GetTotals(year, month);
+		}
+	}
+	
+	/**
+	 * Gets the past transactions posted within a range of dates, in posting date order
+	 * @param fromDate first date of the range, in the format MM/dd/yyyy
+	 * @param toDate last date of the range, in the format MM/dd/yyyy
+	 * @param type type of the transactions to get, or null for every type
+	 * @return an Iterable over the transactions in the range
+	 * @see PersonalAccount#GetTransactionsBetweenDays(int, int, String)
+	 */
+	public Iterable<Transaction> GetTransactionsBetween(String fromDate, String toDate, String type) {
+		return GetTransactionsBetweenDays(PostingDate.Parse(fromDate), PostingDate.Parse(toDate), type);
+	}
+	
+	/**
+	 * Gets the past transactions posted within a range of dates, in posting date order, and made in history order within a day.
+	 * Transactions still processing have no posting date and are never in a range.
+	 * The transactions are found as they are iterated: the first one in the range is found with a binary search
+	 * over the history in date order, and each Transaction object is only made when it is reached,
+	 * so a scan only touches the transactions in the range
+	 * @param fromDay first date of the range as days since 01/01/1970
+	 * @param toDay last date of the range as days since 01/01/1970
+	 * @param type type of the transactions to get, or null for every type
+	 * @return an Iterable over the transactions in the range
+	 * @throws IllegalArgumentException if either date is PostingDate.PENDING
+	 * @see PostingDateIndex#FindAfter(int, int)
+	 */
+	public Iterable<Transaction> GetTransactionsBetweenDays(int fromDay, int toDay, String type) {
+		if (fromDay == PostingDate.PENDING || toDay == PostingDate.PENDING) {
+			throw new IllegalArgumentException("A range of transactions can only be found between posting dates, not " + PostingDate.PENDING_TEXT + ".");
+		}
+		
+		RecordPostings();
+		synchronized (transactions) {
+			LoadSavedHistory();
+			IndexHistory();
+		}
+		return () -> new RangeIterator(fromDay, toDay, type);
+	}
+	
+	/**
+	 * Searches the past transactions by the words in their descriptions, like a merchant's name.
+	 * Words are runs of letters and digits and are matched ignoring case, a transaction matches if its description has every word of the query.
+	 * The matches are found in the description index, without reading the descriptions of the history
+	 * @param query words to search for, like "seaside bakery"
+	 * @param prefix whether the last word of the query also matches longer words that start with it, like "amaz" for "Amazon"
+	 * @return an Iterable over the matching transactions in the order they were made, each Transaction object is made when it is reached
+	 * @see DescriptionIndex#Find(String, boolean)
+	 */
+	public Iterable<Transaction> SearchTransactions(String query, boolean prefix) {
+		int[] matches;
+		RecordPostings();
+		synchronized (transactions) {
+			LoadSavedHistory();
+			IndexHistory();
+			matches = descriptionIndex.Find(query, prefix);
+		}
+		
+		//transactions in the history never change, so each match is read once it is reached
+		return () -> new Iterator<Transaction>() {
+			private int next;
+			
+			@Override
+			public boolean hasNext() {
+				return next < matches.length;
+			}
+			
+			@Override
+			public Transaction next() {
+				if (hasNext() == false) {
+					throw new NoSuchElementException();
+				}
+				return GetTransaction(matches[next++]);
+			}
+		};
+	}
+	
+	/**
+	 * Iterates over the transactions in a range of dates, reading each one from the history under its lock as it is reached.
+	 * It remembers the last transaction it reached, so if a back-dated transaction moves the date order, it finds its place again
+	 */
+	private final class RangeIterator implements Iterator<Transaction> {
+		private final int toDay;
+		private final String type;
+		private int position;
+		private int version = -1;
+		private int lastDay;
+		private int lastIndex = -1;
+		private Transaction next;
+		
+		RangeIterator(int fromDay, int toDay, String type) {
+			this.toDay = toDay;
+			this.type = type;
+			this.lastDay = fromDay;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			if (next == null) {
+				synchronized (transactions) {
+					if (version != dateIndex.GetVersion()) {
+						version = dateIndex.GetVersion();
+						position = dateIndex.FindAfter(lastDay, lastIndex);
+					}
+					while (next == null && position < dateIndex.Size() && dateIndex.GetPostingDay(position) <= toDay) {
+						lastDay = dateIndex.GetPostingDay(position);
+						lastIndex = dateIndex.GetIndex(position);
+						++position;
+						if (type == null || type.equals(transactions.GetType(lastIndex))) {
+							next = transactions.Get(lastIndex);
+						}
+					}
+				}
+			}
+			return next != null;
+		}
+		
+		@Override
+		public Transaction next() {
+			if (hasNext() == false) {
+				throw new NoSuchElementException();
+			}
+			Transaction transaction = next;
+			next = null;
+			return transaction;
+		}
+	}
+	
+	/**
+	 * Adds the transactions made since the last call to the balance, date, and description indexes.
+	 * A dated transaction changes the indexed balance by its own amount, plus any jump from a balance set directly
+	 * since the transaction before it. Transactions still processing are never counted, even in the jump
+	 * to the dated transaction after them. Called holding the history's lock with the history loaded
+	 * @see BalanceIndex#Add(int, long)
+	 * @see PostingDateIndex#Add(int, int)
+	 * @see DescriptionIndex#Add(int, String)
+	 */
+	private void IndexHistory() {
+		for (; numIndexedTransactions < transactions.Size(); ++numIndexedTransactions) {
+			int index = numIndexedTransactions;
+			descriptionIndex.Add(index, transactions.GetDescription(index));
+			int day = transactions.GetPostingDay(index);
+			if (day != PostingDate.PENDING) {
+				long amountCents = transactions.GetAmountCents(index);
+				//a balance set directly shows as a jump between the balance before this transaction and the one after the transaction before it
+				long balanceSetCents = index == 0 ? 0L : transactions.GetBalanceCents(index) - amountCents - transactions.GetBalanceCents(index - 1);
+				balanceIndex.Add(day, amountCents + balanceSetCents);
+				dateIndex.Add(index, day);
+			}
+		}
+	}
+	
+	/**
+	 * Adds the transactions added to the history since the last call to the monthly totals.
+	 * Called holding the history's lock with the history loaded
+	 * @see MonthlyAggregates#Add(int, int, long)
+	 */
+	private void AggregateHistory() {
+		for (; numAggregatedTransactions < transactions.Size(); ++numAggregatedTransactions) {
+			int index = numAggregatedTransactions;
+			int day = transactions.GetPostingDay(index);
+			if (day != PostingDate.PENDING) {
+				monthlyAggregates.Add(day, transactions.GetTypeId(index), transactions.GetAmountCents(index));
+			}
+		}
+	}
+	
+	/**
+	 * Gets a token that is replaced every time the balance changes, for telling if anything shown from the account is out of date.
+	 * Tokens are only compared by identity
+	 * @return an Object that represents the current version of the balance
+	 */
+	Object GetBalanceVersion() {
+		return latestPosting.get();
+	}
+	
+	/**
+	 * Gets a token that is replaced every time the name or number changes, for telling if anything showing them is out of date.
+	 * Tokens are only compared by identity, and one read before the name or number guarantees they are at least as new
+	 * @return an Object that represents the current version of the name and number
+	 */
+	Object GetLabelVersion() {
+		return labelVersion;
+	}
+	
+	/**
+	 * Gets the number of transactions made on the account
+	 * @return an int that represents the number of past transactions
+	 */
+	public int GetTransactionCount() {
+		RecordPostings();
+		synchronized (transactions) {
+			LoadSavedHistory();
+			return transactions.Size();
+		}
+	}
+	
+	/**
+	 * Gets a past transaction made on the account
+	 * @param index position of the transaction in the history, 0 is the oldest
+	 * @return a newly made transaction holding the transaction's information
+	 * @see TransactionStore#Get(int)
+	 */
+	public Transaction GetTransaction(int index) {
+		RecordPostings();
+		synchronized (transactions) {
+			LoadSavedHistory();
+			return transactions.Get(index);
+		}
+	}
+	
+	/**
+	 * Gets the lock held to make changes to several accounts at once.
+	 * Lock more than one account through AccountLocks so they are always locked in the same order
+	 * @return the account's lock
+	 */
+	ReentrantLock GetLock() {
+		return lock;
+	}
+	
+	/**
+	 * Gets the order the account is locked in among other accounts
+	 * @return a long that is different for every account and never changes
+	 */
+	long GetLockOrder() {
+		return lockOrder;
+	}
+	
+	/**
+	 * Fixes the account's number so it can no longer be changed, called by AccountIndex once it has stored the account under it
+	 * @see PersonalAccount#SetAccNumber(long)
+	 */
+	synchronized void FixAccNumber() {
+		registered = true;
+	}
+	
+	/**
+	 * Gets the journal the account's postings are written to
+	 * @return the account's journal, or null if it has none
+	 */
+	public Journal GetJournal() {
+		return this.journal;
 	}
 	
 	/**
 	 * Prints out overall account information for display in the driver class
 	 * Displays the account name, overall balance, and all past transactions made.
 	 * Past transactions will display its posting date, description, amount of the transaction, and its contribution to the overall balance of the acc
-	 * @see PersonalAccount#GetShortenedAccNum()
-	 * @see PersonalAccount#DisplayMoney(double)
-	 * @see Transaction#GetPostingDate()
-	 * @see Transaction#GetDescription()
-	 * @see Transaction#GetType()
-	 * @see Transaction#GetAmount()
-	 * @see Transaction#GetBalance()
+	 * @see PersonalAccount#WriteAccInfo(Appendable)
 	 */
 	public void PrintAccInfo() {
-		System.out.println(this.accName + " - " + GetShortenedAccNum());
-		System.out.print("Balance: " + DisplayMoney(this.balance));
-		System.out.println();
-		System.out.println();
+		try {
+			WriteAccInfo(System.out);
+		}
+		catch (IOException excpt) {
+			throw new UncheckedIOException(excpt);
+		}
+	}
+	
+	/**
+	 * Writes out overall account information: the account name, overall balance, and all past transactions made, oldest first.
+	 * The rows are written into a reused buffer a chunk at a time and each chunk is handed to the output in one call,
+	 * with the history's lock only held while a chunk is written into the buffer
+	 * @param out where to write the account information, like System.out or a Writer
+	 * @throws IOException if the output cannot be written
+	 * @see PersonalAccount#GetShortenedAccNum()
+	 * @see Money#AppendTo(StringBuilder, long)
+	 * @see PersonalAccount#AppendTransaction(StringBuilder, int)
+	 */
+	public void WriteAccInfo(Appendable out) throws IOException {
+		RecordPostings();
+		int numTransactions;
+		long balanceCents;
+		synchronized (transactions) {
+			LoadSavedHistory();
+			numTransactions = transactions.Size();
+			balanceCents = latestRecorded.balance;
+		}
 		
-		System.out.println("Transactions:");
-		for (Transaction transaction: transactions) {
-			System.out.println("\t" + transaction.GetPostingDate() + " : " + 
-					transaction.GetDescription() + " : " + 
-					transaction.GetType() + " : " + 
-					DisplayMoney(transaction.GetAmount()) + " : " + 
-					DisplayMoney(transaction.GetBalance()));
+		StringBuilder buffer = TakeBuffer();
+		buffer.append(this.accName).append(" - ").append(GetShortenedAccNum()).append(System.lineSeparator());
+		Money.AppendTo(buffer.append("Balance: "), balanceCents).append(System.lineSeparator()).append(System.lineSeparator());
+		buffer.append("Transactions:").append(System.lineSeparator());
+		out.append(buffer);
+		WriteTransactions(out, buffer, 0, numTransactions, false);
+		ReturnBuffer(buffer);
+	}
+	
+	/**
+	 * Writes one page of past transactions, newest first, in the same format as WriteAccInfo(Appendable).
+	 * Pages are found by cursor: start with NEWEST, then pass the returned cursor to get the next, older page.
+	 * A cursor stays on the same transactions when new ones are made, and a page only reads the transactions on it
+	 * @param out where to write the transactions
+	 * @param cursor NEWEST, or a cursor returned by the previous page
+	 * @param pageSize largest number of transactions to write
+	 * @return an int that represents the cursor of the next, older page, 0 once the oldest transaction has been written
+	 * @throws IOException if the output cannot be written
+	 * @throws IllegalArgumentException if the cursor is negative or the page size is not positive
+	 */
+	public int WriteHistory(Appendable out, int cursor, int pageSize) throws IOException {
+		if (cursor < 0 || pageSize <= 0) {
+			throw new IllegalArgumentException("Invalid history page: cursor " + cursor + ", page size " + pageSize);
+		}
+		
+		RecordPostings();
+		int end;
+		synchronized (transactions) {
+			LoadSavedHistory();
+			end = Math.min(cursor, transactions.Size());
 		}
+		int start = Math.max(0, end - pageSize);
+		
+		StringBuilder buffer = TakeBuffer();
+		WriteTransactions(out, buffer, start, end, true);
+		ReturnBuffer(buffer);
+		return start;
 	}
 	
 	/**
-	 * Adds a transaction to the account's list of previously made transactions.
-	 * @param newTransaction
+	 * Writes one page of past transactions, newest first, for the bank server's binary protocol:
+	 * the int cursor of the next, older page, the short number of transactions, then each transaction.
+	 * Pages are found by cursor the same way as WriteHistory(Appendable, int, int), and a page stops early once the buffer is full
+	 * @param buffer where to write the page, with room for at least the cursor and number of transactions
+	 * @param cursor NEWEST, or a cursor returned by the previous page
+	 * @param pageSize largest number of transactions to write
+	 * @return an int that represents the cursor of the next, older page, 0 once the oldest transaction has been written
+	 * @throws IllegalArgumentException if the cursor is negative or the page size is not positive
+	 * @see TransactionStore#PutTo(ByteBuffer, int)
 	 */
-	private void AddTransaction(Transaction newTransaction) {
-		transactions.add(newTransaction);
+	public int PutHistory(ByteBuffer buffer, int cursor, int pageSize) {
+		if (cursor < 0 || pageSize <= 0) {
+			throw new IllegalArgumentException("Invalid history page: cursor " + cursor + ", page size " + pageSize);
+		}
+		
+		RecordPostings();
+		int header = buffer.position();
+		buffer.putInt(0).putShort((short) 0);
+		int next;
+		int numWritten = 0;
+		synchronized (transactions) {
+			LoadSavedHistory();
+			next = Math.min(cursor, transactions.Size());
+			while (next > 0 && numWritten < Math.min(pageSize, Short.MAX_VALUE) && transactions.PutTo(buffer, next - 1)) {
+				--next;
+				++numWritten;
+			}
+		}
+		buffer.putInt(header, next).putShort(header + 4, (short) numWritten);
+		return next;
+	}
+	
+	/**
+	 * Writes the past transactions in a range, a chunk at a time.
+	 * Transactions already in the history never change, so each chunk can be read under its own hold of the lock
+	 * @param out where to write the transactions
+	 * @param buffer empty buffer to write each chunk into
+	 * @param start index of the first transaction in the range
+	 * @param end index just past the last transaction in the range
+	 * @param newestFirst true to write the range from end to start, false from start to end
+	 * @throws IOException if the output cannot be written
+	 */
+	private void WriteTransactions(Appendable out, StringBuilder buffer, int start, int end, boolean newestFirst) throws IOException {
+		for (int written = 0; written < end - start; ) {
+			int chunk = Math.min(ROWS_PER_CHUNK, end - start - written);
+			buffer.setLength(0);
+			synchronized (transactions) {
+				for (int i = 0; i < chunk; ++i) {
+					AppendTransaction(buffer, newestFirst ? end - 1 - written - i : start + written + i);
+				}
+			}
+			out.append(buffer);
+			written += chunk;
+		}
+		buffer.setLength(0);
+	}
+	
+	/**
+	 * Writes one past transaction as a line: its posting date, description, type, amount, and the balance after it.
+	 * Called holding the history's lock
+	 * @param buffer where to write the transaction
+	 * @param index index of the transaction in the history
+	 * @see PostingDate#AppendTo(StringBuilder, int)
+	 * @see TransactionStore#AppendDescription(StringBuilder, int)
+	 * @see Money#AppendTo(StringBuilder, long)
+	 */
+	private void AppendTransaction(StringBuilder buffer, int index) {
+		PostingDate.AppendTo(buffer.append('\t'), transactions.GetPostingDay(index)).append(" : ");
+		transactions.AppendDescription(buffer, index).append(" : ")
+				.append(transactions.GetType(index)).append(" : ");
+		Money.AppendTo(buffer, transactions.GetAmountCents(index)).append(" : ");
+		Money.AppendTo(buffer, transactions.GetBalanceCents(index)).append(System.lineSeparator());
+	}
+	
+	/**
+	 * Takes the calling thread's reused history buffer
+	 * @return an empty buffer
+	 */
+	private static StringBuilder TakeBuffer() {
+		StringBuilder buffer = HISTORY_BUFFER.get();
+		buffer.setLength(0);
+		return buffer;
+	}
+	
+	/**
+	 * Gives back a buffer from TakeBuffer(), dropping it if it grew too large to keep around
+	 * @param buffer the buffer
+	 */
+	private static void ReturnBuffer(StringBuilder buffer) {
+		buffer.setLength(0);
+		if (buffer.capacity() > MAX_KEPT_BUFFER) {
+			HISTORY_BUFFER.remove();
+		}
+	}
+	
+	/**
+	 * Changes the account's balance by an amount in cents without adding the transaction to the history yet.
+	 * Lets a batch make many changes to an account and add them all to the history at once
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param descriptionKind kind of the description
+	 * @param description description portion of the transaction for TransactionDescription.TEXT, or the other account's shortened name and number
+	 * @param confirmationNumber confirmation number of the description, unused for TransactionDescription.TEXT
+	 * @param type type portion of the transaction
+	 * @param amountCents amount in cents
+	 * @param requireFunds true to refuse the change unless the balance is greater than what is taken out
+	 * @return a boolean that represents whether the balance was changed
+	 * @see PersonalAccount#RecordPostings()
+	 */
+	boolean PostWithoutRecording(int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amountCents, boolean requireFunds) {
+		return Post(postingDay, descriptionKind, description, confirmationNumber, type, amountCents, requireFunds) != null;
+	}
+	
+	/**
+	 * Takes in an amount and adds it to the account's overall balance accordingly.
+	 * The new balance is made with compare-and-set, retrying if another thread changed the balance first
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param descriptionKind kind of the description
+	 * @param description description portion of the transaction for TransactionDescription.TEXT, or the other account's shortened name and number
+	 * @param confirmationNumber confirmation number of the description, unused for TransactionDescription.TEXT
+	 * @param type type portion of the transaction
+	 * @param amountCents amount in cents
+	 * @param requireFunds true to refuse the change unless the balance is greater than what is taken out
+	 * @return the posting that changed the balance, or null if requireFunds was true and the account has insufficient funds
+	 * @throws IllegalArgumentException if the description or the type is null, checked before the balance is changed
+	 */
+	private Posting Post(int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amountCents, boolean requireFunds) {
+		TransactionDescription.CheckKind(descriptionKind);
+		if (description == null || type == null) {
+			throw new IllegalArgumentException("A transaction needs a description and a type.");
+		}
+		while (true) {
+			Posting previous = latestPosting.get();
+			if (requireFunds && previous.balance <= -amountCents) {
+				return null;
+			}
+			Posting posting = new Posting(postingDay, descriptionKind, description, confirmationNumber, type, amountCents, Money.Add(previous.balance, amountCents), true, previous);
+			if (latestPosting.compareAndSet(previous, posting)) {
+				return posting;
+			}
+		}
+	}
+	
+	/**
+	 * Adds every posting that changed the balance but is not yet in the history to the history, oldest first,
+	 * and appends each one to the journal in the same order. The monthly totals are updated with them.
+	 * Whichever thread gets the history's lock first records the postings of every thread waiting on it
+	 * @return a long that represents the journal position to wait for until every posting made so far is durable,
+	 * including ones recorded by other threads, or 0 if there is nothing to wait for
+	 * @see PersonalAccount#AwaitDurable(long)
+	 */
+	long RecordPostings() {
+		return RecordPostings(null);
+	}
+	
+	/**
+	 * Adds every posting not yet in the history to the history like RecordPostings(), but with a journal adds them to a group
+	 * instead of appending them, for a change to several accounts that must be durable all together or not at all.
+	 * The caller appends the group while still holding the account's lock, then gives the account the group's position
+	 * @param group the group to add the postings to, or null to append them to the journal one by one
+	 * @return a long that represents the journal position to wait for, 0 for postings added to the group
+	 * @see PersonalAccount#SetJournalPosition(long)
+	 * @see Journal#AppendGroup(Journal.Group)
+	 */
+	long RecordPostings(Journal.Group group) {
+		//without a journal there is no record for another thread to split, so the lock is only needed with one
+		if (journal == null) {
+			return RecordPostingsLocked(group);
+		}
+		lock.lock();
+		try {
+			return RecordPostingsLocked(group);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Adds every posting not yet in the history to the history and the journal or the group.
+	 * Called holding the account's lock if it has a journal
+	 * @param group the group to add the postings to, or null to append them to the journal one by one
+	 * @return a long that represents the journal position to wait for
+	 */
+	private long RecordPostingsLocked(Journal.Group group) {
+		synchronized (transactions) {
+			Journal journal = this.journal;
+			Posting latest = latestPosting.get();
+			int count = 0;
+			for (Posting posting = latest; posting != latestRecorded; posting = posting.previous) {
+				if (count == unrecordedPostings.length) {
+					unrecordedPostings = Arrays.copyOf(unrecordedPostings, count * 2);
+				}
+				unrecordedPostings[count++] = posting;
+			}
+			if (count > 0) {
+				LoadSavedHistory();
+			}
+			
+			for (int i = count - 1; i >= 0; --i) {
+				Posting posting = unrecordedPostings[i];
+				if (posting.recorded) {
+					int index = transactions.Append(posting.postingDay, posting.descriptionKind, posting.description, posting.confirmationNumber, posting.type, posting.amount, posting.balance);
+					if (index == numAggregatedTransactions) {
+						//the monthly totals are kept from the posting itself instead of reading it back from the history
+						if (posting.postingDay != PostingDate.PENDING) {
+							monthlyAggregates.Add(posting.postingDay, transactions.GetTypeId(index), posting.amount);
+						}
+						numAggregatedTransactions = index + 1;
+					}
+					if (journal != null && group != null) {
+						group.AddTransaction(accNumber, posting.postingDay, posting.descriptionKind, posting.description, posting.confirmationNumber, posting.type, posting.amount, posting.balance);
+					}
+					else if (journal != null) {
+						posting.journalPosition = journal.AppendTransaction(accNumber, posting.postingDay, posting.descriptionKind, posting.description, posting.confirmationNumber, posting.type, posting.amount, posting.balance);
+					}
+				}
+				else if (journal != null && group != null) {
+					group.AddBalance(accNumber, posting.balance);
+				}
+				else if (journal != null) {
+					posting.journalPosition = journal.AppendBalance(accNumber, posting.balance);
+				}
+				unrecordedPostings[i] = null;
+			}
+			if (count > 0) {
+				AggregateHistory();
+			}
+			latest.previous = null;
+			latestRecorded = latest;
+			return latest.journalPosition;
+		}
+	}
+	
+	/**
+	 * Sets the journal position the account's history is durable up to, once the group its latest postings were added to is appended.
+	 * Called holding the account's lock, which was held since the postings were added to the group
+	 * @param journalPosition position returned by Journal.AppendGroup(Journal.Group)
+	 * @see PersonalAccount#RecordPostings(Journal.Group)
+	 */
+	void SetJournalPosition(long journalPosition) {
+		synchronized (transactions) {
+			latestRecorded.journalPosition = journalPosition;
+		}
+	}
+	
+	/**
+	 * Waits until the account's journal holds everything up to a position
+	 * @param journalPosition position returned by RecordPostings(), 0 returns right away
+	 * @see Journal#AwaitDurable(long)
+	 */
+	void AwaitDurable(long journalPosition) {
+		Journal journal = this.journal;
+		if (journal != null && journalPosition > 0) {
+			journal.AwaitDurable(journalPosition);
+		}
+	}
+	
+	/**
+	 * Gets the journal position the account's history and balance are durable up to
+	 * @return a long that represents the journal position of the latest posting in the history, 0 if it was not journaled
+	 */
+	long GetJournalPosition() {
+		synchronized (transactions) {
+			return latestRecorded.journalPosition;
+		}
+	}
+	
+	/**
+	 * Gives a newly made account the history saved for it in a snapshot, read only when the history is first used.
+	 * The account must have been made with the balance saved alongside the history
+	 * @param savedHistory the saved history, a store written by TransactionStore#WriteTo(DataOutput)
+	 * @param journalPosition journal position the saved history and balance are durable up to
+	 */
+	void RestoreSavedHistory(ByteBuffer savedHistory, long journalPosition) {
+		synchronized (transactions) {
+			this.savedHistory = savedHistory;
+			latestRecorded.journalPosition = journalPosition;
+		}
+	}
+	
+	/**
+	 * Saves the account for a snapshot: its name, number, balance and journal position, then the length of its history and the history.
+	 * The balance and history are saved together under the history's lock, so they always agree.
+	 * A saved history that was never read is copied as it is.
+	 * The account's lock is held throughout, so a transfer can not leave postings saved before their group's position is known
+	 * @param out where to write the account
+	 * @throws IOException if the account cannot be written
+	 * @see Snapshot
+	 */
+	void SaveTo(DataOutput out) throws IOException {
+		lock.lock();
+		try {
+			SaveToLocked(out);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Saves the account for a snapshot. Called holding the account's lock
+	 * @param out where to write the account
+	 * @throws IOException if the account cannot be written
+	 */
+	private void SaveToLocked(DataOutput out) throws IOException {
+		RecordPostingsLocked(null);
+		synchronized (transactions) {
+			TransactionStore.WriteString(out, accName);
+			out.writeLong(accNumber);
+			out.writeLong(latestRecorded.balance);
+			out.writeLong(latestRecorded.journalPosition);
+			
+			if (savedHistory != null) {
+				ByteBuffer history = savedHistory.duplicate();
+				out.writeLong(history.remaining());
+				byte[] chunk = new byte[Math.min(history.remaining(), 1 << 16)];
+				while (history.hasRemaining()) {
+					int length = Math.min(chunk.length, history.remaining());
+					history.get(chunk, 0, length);
+					out.write(chunk, 0, length);
+				}
+			}
+			else {
+				out.writeLong(transactions.EncodedSize());
+				transactions.WriteTo(out);
+			}
+		}
+	}
+	
+	/**
+	 * Reads the history saved in a snapshot into the history, if it was not read yet. Called holding the history's lock
+	 */
+	private void LoadSavedHistory() {
+		if (savedHistory != null) {
+			transactions.ReadFrom(savedHistory);
+			savedHistory = null;
+		}
 	}
 	
 	/**
-	 * Takes in an amount and adds it to the account's overall balance accordingly
-	 * @param amount
+	 * Sets the balance the account opens with, before any transactions
+	 * @param balanceCents opening balance in cents
 	 */
-	private void UpdateAccBalance(double amount) {
-		double newBalance = this.balance + amount;
-		SetBalance(newBalance);
+	private void SetOpeningBalance(long balanceCents) {
+		Posting opening = new Posting(PostingDate.PENDING, TransactionDescription.TEXT, null, 0L, null, 0L, balanceCents, false, null);
+		latestPosting.set(opening);
+		latestRecorded = opening;
 	}
 }
@@ -0,0 +1,147 @@
+/**
+ * Class holds the conversions between a transaction's posting date as text, like "01/18/2023" or "Processing",
+ * and the compact int it is stored as: the number of days since 01/01/1970, or PENDING while the transaction is processing
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+public final class PostingDate {
+	/**
+	 * Posting date of a transaction that is still processing
+	 */
+	public static final int PENDING = Integer.MIN_VALUE;
+	
+	/**
+	 * Text shown as the posting date of a transaction that is still processing
+	 */
+	public static final String PENDING_TEXT = "Processing";
+	
+	/**
+	 * PostingDate only holds static methods and is never made
+	 */
+	private PostingDate() {
+	}
+	
+	/**
+	 * Reads a posting date written as month/day/year, with or without leading zeros, or "Processing"
+	 * @param postingDate the posting date as text
+	 * @return an int that represents the day of the posting date, or PENDING
+	 * @throws IllegalArgumentException if the text is not a posting date
+	 */
+	public static int Parse(String postingDate) {
+		if (PENDING_TEXT.equals(postingDate)) {
+			return PENDING;
+		}
+		
+		int firstSlash = postingDate.indexOf('/');
+		int secondSlash = postingDate.indexOf('/', firstSlash + 1);
+		try {
+			if (firstSlash < 0 || secondSlash < 0) {
+				throw new NumberFormatException();
+			}
+			int month = Integer.parseInt(postingDate, 0, firstSlash, 10);
+			int day = Integer.parseInt(postingDate, firstSlash + 1, secondSlash, 10);
+			int year = Integer.parseInt(postingDate, secondSlash + 1, postingDate.length(), 10);
+			return (int) LocalDate.of(year, month, day).toEpochDay();
+		}
+		catch (NumberFormatException | DateTimeException excpt) {
+			throw new IllegalArgumentException("Invalid posting date: " + postingDate, excpt);
+		}
+	}
+	
+	/**
+	 * Gets the month a posting date is in
+	 * @param postingDay the day of the posting date, never PENDING
+	 * @return an int that represents the month as months since 01/1970
+	 * @see PostingDate#MonthOf(int, int)
+	 */
+	public static int MonthOf(int postingDay) {
+		//the civil date in whole 400 year eras of years starting in March, so every posting costs no LocalDate
+		long days = postingDay + 719_468L;
+		long era = Math.floorDiv(days, 146_097L);
+		long dayOfEra = days - era * 146_097L;
+		long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long monthFromMarch = (5 * dayOfYear + 2) / 153;
+		int month = (int) (monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9);
+		int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+		return MonthOf(year, month);
+	}
+	
+	/**
+	 * Gets a month of a year as months since 01/1970, the way months are counted by MonthOf(int)
+	 * @param year the year, like 2023
+	 * @param month the month of the year, 1 for January to 12 for December
+	 * @return an int that represents the month
+	 * @throws IllegalArgumentException if the month is not from 1 to 12
+	 */
+	public static int MonthOf(int year, int month) {
+		if (month < 1 || month > 12) {
+			throw new IllegalArgumentException("Invalid month: " + month);
+		}
+		return (year - 1970) * 12 + month - 1;
+	}
+	
+	/**
+	 * Writes a posting date as MM/dd/yyyy, or "Processing" for a pending posting date
+	 * @param postingDay the day of the posting date, or PENDING
+	 * @return a String that represents the posting date
+	 */
+	public static String Format(int postingDay) {
+		if (postingDay == PENDING) {
+			return PENDING_TEXT;
+		}
+		
+		LocalDate date = LocalDate.ofEpochDay(postingDay);
+		char[] text = new char[10];
+		WriteTwoDigits(text, 0, date.getMonthValue());
+		text[2] = '/';
+		WriteTwoDigits(text, 3, date.getDayOfMonth());
+		text[5] = '/';
+		WriteTwoDigits(text, 6, date.getYear() / 100);
+		WriteTwoDigits(text, 8, date.getYear() % 100);
+		return new String(text);
+	}
+	
+	/**
+	 * Writes a posting date as MM/dd/yyyy, or "Processing" for a pending posting date, without making a String
+	 * @param builder where to write the posting date
+	 * @param postingDay the day of the posting date, or PENDING
+	 * @return the builder
+	 */
+	public static StringBuilder AppendTo(StringBuilder builder, int postingDay) {
+		if (postingDay == PENDING) {
+			return builder.append(PENDING_TEXT);
+		}
+		
+		LocalDate date = LocalDate.ofEpochDay(postingDay);
+		AppendTwoDigits(builder, date.getMonthValue()).append('/');
+		AppendTwoDigits(builder, date.getDayOfMonth()).append('/');
+		AppendTwoDigits(builder, date.getYear() / 100);
+		return AppendTwoDigits(builder, date.getYear() % 100);
+	}
+	
+	/**
+	 * Writes a number from 0 to 99 as two digits
+	 * @param builder where to write the digits
+	 * @param value the number to write
+	 * @return the builder
+	 */
+	private static StringBuilder AppendTwoDigits(StringBuilder builder, int value) {
+		return builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+	}
+	
+	/**
+	 * Writes a number from 0 to 99 as two digits
+	 * @param text the characters to write into
+	 * @param offset where to write the first digit
+	 * @param value the number to write
+	 */
+	private static void WriteTwoDigits(char[] text, int offset, int value) {
+		text[offset] = (char) ('0' + value / 10);
+		text[offset + 1] = (char) ('0' + value % 10);
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ * Class orders a personal account's history by posting date, for finding the transactions in a range of dates.
+ * It holds the index of every transaction in the history that has a posting date, sorted by the date and then by index,
+ * next to a sorted array of the dates, so the start of a range is found with a binary search.
+ * Transactions that are still processing have no date and are left out.
+ * Transactions usually post on the latest day and are added at the end. A back-dated one is inserted in place,
+ * which moves the ones after it and changes the version, so a scan in progress knows to find its place again.
+ * Not safe for concurrent use, the owning personal account guards it
+ * @author Katie Ho
+ * @version 1.0
+ * @see PersonalAccount#GetTransactionsBetweenDays(int, int, String)
+ */
+
+import java.util.Arrays;
+
+public class PostingDateIndex {
+	/**
+	 * Capacity of the arrays of a new index
+	 */
+	private static final int INITIAL_CAPACITY = 8;
+	
+	/**
+	 * Posting date of every indexed transaction as days since 01/01/1970, in increasing order
+	 */
+	private int[] days = new int[INITIAL_CAPACITY];
+	
+	/**
+	 * Index in the history of the transaction at the same position, increasing within each day
+	 */
+	private int[] indexes = new int[INITIAL_CAPACITY];
+	
+	/**
+	 * Number of indexed transactions
+	 */
+	private int size;
+	
+	/**
+	 * Number of times a transaction was inserted before the end, moving the positions of the ones after it
+	 */
+	private int version;
+	
+	/**
+	 * Adds a transaction, which must come after every transaction already added in the history
+	 * @param index index of the transaction in the history
+	 * @param postingDay the day of the posting date, never PostingDate.PENDING
+	 */
+	public void Add(int index, int postingDay) {
+		if (size == days.length) {
+			days = Arrays.copyOf(days, size * 2);
+			indexes = Arrays.copyOf(indexes, size * 2);
+		}
+		
+		int position = size;
+		if (size > 0 && postingDay < days[size - 1]) {
+			position = FindAfter(postingDay, index);
+			System.arraycopy(days, position, days, position + 1, size - position);
+			System.arraycopy(indexes, position, indexes, position + 1, size - position);
+			++version;
+		}
+		days[position] = postingDay;
+		indexes[position] = index;
+		++size;
+	}
+	
+	/**
+	 * Finds the first position holding a transaction that comes after a date and history index in the order
+	 * @param postingDay the day of the posting date
+	 * @param index index in the history, -1 to find the first transaction on the date
+	 * @return an int that represents the position, Size() if there is none
+	 */
+	public int FindAfter(int postingDay, int index) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (days[middle] < postingDay || (days[middle] == postingDay && indexes[middle] <= index)) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Gets the posting date of the transaction at a position
+	 * @param position position in the date order
+	 * @return an int that represents the day of the posting date
+	 */
+	public int GetPostingDay(int position) {
+		return days[position];
+	}
+	
+	/**
+	 * Gets the history index of the transaction at a position
+	 * @param position position in the date order
+	 * @return an int that represents the index of the transaction in the history
+	 */
+	public int GetIndex(int position) {
+		return indexes[position];
+	}
+	
+	/**
+	 * Gets the number of indexed transactions
+	 * @return an int that represents the number of transactions
+	 */
+	public int Size() {
+		return size;
+	}
+	
+	/**
+	 * Gets the version of the positions, which changes whenever a transaction is inserted before the end
+	 * @return an int that represents the version
+	 */
+	public int GetVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,261 @@
+/**
+ * Class rebuilds the bank from its journal using every core, for journals too long to replay on one thread.
+ * One thread reads the journal: bank accounts, personal accounts, and reserved confirmation numbers are made right away,
+ * in journal order, and every transaction or balance record is copied undecoded into a list for its personal account.
+ * A group record, like a transfer, is split into its records first, each going to its own account's list.
+ * Whenever the copied records fill MAX_SEGMENTS blocks, and once the journal ends, a ForkJoinPool decodes and applies
+ * the lists, each account's records on one thread in the order they were written, with different accounts on different threads,
+ * and the blocks are let go before more is read. Replay so holds at most about MAX_SEGMENTS megabytes of the journal at once, however long it is.
+ * Accounts never touch each other's history and each chunk is applied before the next, so this ends the same as
+ * replaying on one thread. Work is split between threads by number of records, not number of accounts.
+ * Every transaction is checked to leave the running balance stored with it, and every account's balance after each chunk
+ * is checked against its last balance in the chunk
+ * @author Katie Ho
+ * @version 1.0
+ * @see JournalRecovery
+ * @see Journal#ReadRecords(Path, long, Journal.RecordReader)
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ReplayEngine {
+	/**
+	 * Size of each block the records are copied into, records longer than this get a block of their own
+	 */
+	private static final int SEGMENT_SIZE = 1 << 20;
+	
+	/**
+	 * Most blocks filled before the records in them are applied
+	 */
+	private static final int MAX_SEGMENTS = 16;
+	
+	/**
+	 * Fewest records a task applies before it is split in two
+	 */
+	private static final int RECORDS_PER_TASK = 4_096;
+	
+	/**
+	 * Every record of one personal account, in the order they were written
+	 */
+	private static final class AccountRecords {
+		private final PersonalAccount personalAccount;
+		private int size;
+		private int[] segments = new int[8];
+		private int[] offsets = new int[8];
+		private int[] lengths = new int[8];
+		private long[] endPositions = new long[8];
+		private long lastBalanceCents;
+		
+		AccountRecords(PersonalAccount personalAccount) {
+			this.personalAccount = personalAccount;
+		}
+		
+		void Add(int segment, int offset, int length, long endPosition, long balanceCents) {
+			if (size == segments.length) {
+				int capacity = size * 2;
+				segments = Arrays.copyOf(segments, capacity);
+				offsets = Arrays.copyOf(offsets, capacity);
+				lengths = Arrays.copyOf(lengths, capacity);
+				endPositions = Arrays.copyOf(endPositions, capacity);
+			}
+			segments[size] = segment;
+			offsets[size] = offset;
+			lengths[size] = length;
+			endPositions[size] = endPosition;
+			++size;
+			lastBalanceCents = balanceCents;
+		}
+	}
+	
+	/**
+	 * Applies the records of a range of accounts, splitting the range in two while it holds many records
+	 */
+	private final class ApplyTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final AccountRecords[] accounts;
+		private final long[] recordsBefore;
+		private final int from;
+		private final int to;
+		
+		ApplyTask(AccountRecords[] accounts, long[] recordsBefore, int from, int to) {
+			this.accounts = accounts;
+			this.recordsBefore = recordsBefore;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from > 1 && recordsBefore[to] - recordsBefore[from] > RECORDS_PER_TASK) {
+				//split where half the records are on each side
+				int middle = Arrays.binarySearch(recordsBefore, from, to, (recordsBefore[from] + recordsBefore[to]) / 2);
+				middle = Math.min(to - 1, Math.max(from + 1, middle < 0 ? -middle - 1 : middle));
+				invokeAll(new ApplyTask(accounts, recordsBefore, from, middle), new ApplyTask(accounts, recordsBefore, middle, to));
+				return;
+			}
+			for (int i = from; i < to; ++i) {
+				Apply(accounts[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Record of the bank accounts being rebuilt
+	 */
+	private final AccountRegistry bankAccounts;
+	
+	/**
+	 * Rebuilds the accounts and makes the records again on them
+	 */
+	private final JournalRecovery recovery;
+	
+	/**
+	 * Threads to apply the records on
+	 */
+	private final ForkJoinPool pool;
+	
+	/**
+	 * Records not yet applied of every personal account that has any
+	 */
+	private final IdentityHashMap<PersonalAccount, AccountRecords> recordsByAcc = new IdentityHashMap<>();
+	
+	/**
+	 * Blocks every record is copied into
+	 */
+	private final ArrayList<byte[]> segments = new ArrayList<>();
+	
+	/**
+	 * Block being copied into, and how much of it is used
+	 */
+	private byte[] segment;
+	private int segmentUsed;
+	
+	/**
+	 * Overload constructor rebuilding into a registry, keeping the accounts already in it
+	 * @param bankAccounts record of bank accounts to add the rebuilt bank accounts to
+	 * @param confirmationNumbers generator to carry on past the reserved confirmation numbers
+	 * @param pool threads to apply the records on
+	 */
+	private ReplayEngine(AccountRegistry bankAccounts, ConfirmationNumberGenerator confirmationNumbers, ForkJoinPool pool) {
+		this.bankAccounts = bankAccounts;
+		this.recovery = new JournalRecovery(bankAccounts, confirmationNumbers);
+		this.pool = pool;
+	}
+	
+	/**
+	 * Rebuilds the bank from every complete record in a journal file from a position on, in parallel across personal accounts.
+	 * Accounts already in the registry, like ones loaded from a snapshot, are kept, and records they already hold are skipped
+	 * @param path location of the journal file
+	 * @param fromPosition position of the first record to read, like the position a snapshot was taken at
+	 * @param bankAccounts record of bank accounts to add the rebuilt bank accounts to, not yet attached to a journal
+	 * @param confirmationNumbers generator to carry on past the reserved confirmation numbers
+	 * @param pool threads to apply the records on
+	 * @return a long that represents the number of records read
+	 * @throws IOException if the file cannot be read, or is shorter than the position
+	 * @throws IllegalStateException if a record is for an account that was never made, or a balance does not match the journal
+	 * @see Journal#Replay(Path, long, JournalListener)
+	 */
+	public static long Replay(Path path, long fromPosition, AccountRegistry bankAccounts, ConfirmationNumberGenerator confirmationNumbers, ForkJoinPool pool) throws IOException {
+		ReplayEngine engine = new ReplayEngine(bankAccounts, confirmationNumbers, pool);
+		long numRecords = Journal.ReadRecords(path, fromPosition, engine::Sort);
+		engine.ApplyAll();
+		return numRecords;
+	}
+	
+	/**
+	 * Makes an account right away, or copies a transaction or balance record into its account's list,
+	 * first applying every record copied so far if the blocks are full. Each record in a group is sorted on its own
+	 * @param body the record body, positioned at its kind
+	 * @param endPosition position in the file just past the record
+	 * @throws IOException if the record's kind is unknown
+	 * @throws IllegalStateException if the record is for an account that was never made, or a balance does not match the journal
+	 */
+	private void Sort(ByteBuffer body, long endPosition) throws IOException {
+		if (Journal.IsGroup(body)) {
+			Journal.ReadGroup(body, endPosition, this::Sort);
+			return;
+		}
+		if (Journal.IsAccountRecord(body) == false) {
+			Journal.Dispatch(body, endPosition, recovery);
+			return;
+		}
+		long accNumber = Journal.AccNumberOf(body);
+		PersonalAccount personalAccount = bankAccounts.FindPersonalAccount(accNumber);
+		if (personalAccount == null) {
+			throw new IllegalStateException("Journal has a transaction for unknown account " + accNumber + ".");
+		}
+		int length = body.remaining();
+		if (segment == null || segment.length - segmentUsed < length) {
+			if (segments.size() == MAX_SEGMENTS) {
+				ApplyAll();
+			}
+			segment = new byte[Math.max(SEGMENT_SIZE, length)];
+			segmentUsed = 0;
+			segments.add(segment);
+		}
+		AccountRecords records = recordsByAcc.get(personalAccount);
+		if (records == null) {
+			records = new AccountRecords(personalAccount);
+			recordsByAcc.put(personalAccount, records);
+		}
+		body.get(body.position(), segment, segmentUsed, length);
+		records.Add(segments.size() - 1, segmentUsed, length, endPosition, Journal.BalanceOf(body));
+		segmentUsed += length;
+	}
+	
+	/**
+	 * Applies every account's records copied so far on the pool, checking every account ends with its last balance in them,
+	 * then lets go of the records and their blocks
+	 * @throws IllegalStateException if a balance does not match the journal
+	 */
+	private void ApplyAll() {
+		AccountRecords[] accounts = recordsByAcc.values().toArray(new AccountRecords[0]);
+		long[] recordsBefore = new long[accounts.length + 1];
+		for (int i = 0; i < accounts.length; ++i) {
+			recordsBefore[i + 1] = recordsBefore[i] + accounts[i].size;
+		}
+		pool.invoke(new ApplyTask(accounts, recordsBefore, 0, accounts.length));
+		
+		recordsByAcc.clear();
+		segments.clear();
+		segment = null;
+		segmentUsed = 0;
+	}
+	
+	/**
+	 * Decodes and applies one account's records in the order they were written
+	 * @param records the account's records
+	 * @throws IllegalStateException if a transaction or the final balance does not match the journal
+	 * @see JournalRecovery#OnTransaction(long, int, byte, String, long, String, long, long, long)
+	 */
+	private void Apply(AccountRecords records) {
+		try {
+			ByteBuffer body = null;
+			int bodySegment = -1;
+			for (int i = 0; i < records.size; ++i) {
+				if (records.segments[i] != bodySegment) {
+					bodySegment = records.segments[i];
+					body = ByteBuffer.wrap(segments.get(bodySegment));
+				}
+				body.limit(records.offsets[i] + records.lengths[i]).position(records.offsets[i]);
+				Journal.Dispatch(body, records.endPositions[i], recovery);
+			}
+		}
+		catch (IOException excpt) {
+			throw new UncheckedIOException(excpt);
+		}
+		
+		long balanceCents = records.personalAccount.GetBalanceCents();
+		if (balanceCents != records.lastBalanceCents) {
+			throw new IllegalStateException("Journal balance " + records.lastBalanceCents + " of account " + records.personalAccount.GetAccNumber() + " does not match replayed balance " + balanceCents + ".");
+		}
+	}
+}
@@ -0,0 +1,252 @@
+/**
+ * Class saves and loads binary snapshots of every account at the bank, so startup does not replay the whole journal.
+ * A snapshot holds every bank account and personal account with its balance, and each personal account's history
+ * as a block of bytes right after it. Loading maps the file into memory a large window at a time and reads only the accounts,
+ * skipping over the histories, each history is read the first time its account's history is used.
+ * Positions in the file are longs, so a snapshot can be larger than one mapping can hold.
+ * A snapshot is taken while the bank is running: it notes the journal position it started at, and each personal
+ * account notes the journal position it holds every record up to, so replaying the journal from the snapshot's
+ * position and skipping what each account already holds gives the same bank as replaying the whole journal.
+ * Snapshots are written to a temporary file and renamed over the old one, so a crash never leaves half a snapshot
+ * @author Katie Ho
+ * @version 1.0
+ * @see JournalRecovery
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public final class Snapshot {
+	/**
+	 * First bytes of every snapshot file, "BKSN"
+	 */
+	private static final int MAGIC = 0x424B534E;
+	
+	/**
+	 * Version of the snapshot format
+	 */
+	private static final int VERSION = 4;
+	
+	/**
+	 * Position in the file of the number of bank accounts, filled in once they are all written
+	 */
+	private static final long BANK_ACCOUNT_COUNT_OFFSET = 24;
+	
+	/**
+	 * Size of the buffer the snapshot is written through
+	 */
+	private static final int BUFFER_SIZE = 1 << 20;
+	
+	/**
+	 * Most bytes of the file mapped at once while loading, unless one value read needs more
+	 */
+	private static final long MAP_SIZE = 1L << 30;
+	
+	/**
+	 * Reads a snapshot file through a window of it mapped into memory, mapping the next window from the current position
+	 * whenever a value does not fit in what is left of the window. Windows stay mapped while histories in them are in use
+	 */
+	private static final class MappedReader {
+		private final FileChannel channel;
+		private final long fileSize;
+		private MappedByteBuffer window;
+		private long windowStart;
+		
+		MappedReader(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.fileSize = channel.size();
+			this.window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, MAP_SIZE));
+		}
+		
+		/**
+		 * Makes sure the window holds the next bytes of the file
+		 * @param length number of bytes about to be read
+		 * @return the window, positioned at the next byte
+		 * @throws IOException if the file ends first, or cannot be mapped
+		 */
+		ByteBuffer Next(int length) throws IOException {
+			if (window.remaining() < length) {
+				long position = windowStart + window.position();
+				if (fileSize - position < length) {
+					throw new EOFException("Snapshot ends in the middle of a value at position " + position + ".");
+				}
+				window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(fileSize - position, Math.max(MAP_SIZE, length)));
+				windowStart = position;
+			}
+			return window;
+		}
+		
+		int GetInt() throws IOException {
+			return Next(Integer.BYTES).getInt();
+		}
+		
+		long GetLong() throws IOException {
+			return Next(Long.BYTES).getLong();
+		}
+		
+		String GetString() throws IOException {
+			ByteBuffer buffer = Next(Integer.BYTES);
+			return TransactionStore.ReadString(Next(Integer.BYTES + buffer.getInt(buffer.position())));
+		}
+		
+		/**
+		 * Takes the next bytes of the file as a buffer of their own
+		 * @param length number of bytes
+		 * @return a ByteBuffer that holds the bytes
+		 * @throws IOException if the file ends first, or cannot be mapped
+		 */
+		ByteBuffer Slice(int length) throws IOException {
+			ByteBuffer buffer = Next(length);
+			ByteBuffer slice = buffer.slice(buffer.position(), length);
+			buffer.position(buffer.position() + length);
+			return slice;
+		}
+	}
+	
+	/**
+	 * Snapshot only holds static methods and is never made
+	 */
+	private Snapshot() {
+	}
+	
+	/**
+	 * Writes a snapshot of every account in the registry, replacing any older snapshot at the path.
+	 * Accounts keep changing while the snapshot is written, every change it misses is in the journal after its position.
+	 * Returns once the snapshot, and every journal record it depends on, is durable
+	 * @param path location of the snapshot file
+	 * @param bankAccounts record of the bank accounts to save
+	 * @param journal journal the accounts are written to, or null if they have none
+	 * @param confirmationNumbers generator whose next sequence number is saved
+	 * @throws IOException if the snapshot cannot be written
+	 * @see PersonalAccount#SaveTo(java.io.DataOutput)
+	 */
+	public static void Write(Path path, AccountRegistry bankAccounts, Journal journal, ConfirmationNumberGenerator confirmationNumbers) throws IOException {
+		long journalPosition = journal == null ? 0L : journal.GetAppendedPosition();
+		long nextSequence = confirmationNumbers.GetNextSequence();
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(journalPosition);
+			out.writeLong(nextSequence);
+			out.writeInt(0);
+			
+			int numBankAccounts = 0;
+			for (BankAccount bankAccount : bankAccounts.GetBankAccounts()) {
+				WriteBankAccount(out, bankAccount);
+				++numBankAccounts;
+			}
+			out.flush();
+			channel.write(ByteBuffer.allocate(4).putInt(0, numBankAccounts), BANK_ACCOUNT_COUNT_OFFSET);
+			
+			//every account is saved up to some journal position, those records must survive for the positions to mean anything
+			if (journal != null) {
+				journal.AwaitDurable(journal.GetAppendedPosition());
+			}
+			channel.force(true);
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * Loads a snapshot into the registry. Only the accounts are read, each history stays in the mapped file
+	 * until its account's history is first used. The file is mapped a window at a time, so it may be larger than 2 GB.
+	 * Load before the journal is attached to any account, then replay the journal from the returned position.
+	 * A snapshot in an older format is not loaded, the journal holds everything in it
+	 * @param path location of the snapshot file, nothing is loaded if it does not exist or is in an older format
+	 * @param bankAccounts record of bank accounts to add the loaded bank accounts to
+	 * @param confirmationNumbers generator to carry on past the saved sequence number
+	 * @return a long that represents the journal position to replay from, 0 if no snapshot was loaded
+	 * @throws IOException if the snapshot cannot be read, is not a snapshot, or holds a username twice
+	 * @see Journal#Replay(Path, long, JournalListener)
+	 */
+	public static long Load(Path path, AccountRegistry bankAccounts, ConfirmationNumberGenerator confirmationNumbers) throws IOException {
+		if (Files.exists(path) == false) {
+			return 0L;
+		}
+		
+		//a mapping stays valid once the channel is closed
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedReader reader = new MappedReader(channel);
+			if (reader.GetInt() != MAGIC) {
+				throw new IOException(path + " is not a snapshot.");
+			}
+			int version = reader.GetInt();
+			if (version < VERSION) {
+				return 0L;
+			}
+			if (version != VERSION) {
+				throw new IOException("Snapshot " + path + " is version " + version + ", newer than this bank reads.");
+			}
+			long journalPosition = reader.GetLong();
+			confirmationNumbers.AdvanceTo(reader.GetLong());
+			int numBankAccounts = reader.GetInt();
+			for (int i = 0; i < numBankAccounts; ++i) {
+				ReadBankAccount(reader, bankAccounts);
+			}
+			return journalPosition;
+		}
+	}
+	
+	/**
+	 * Writes a bank account's login and personal information, then each of its personal accounts
+	 * @param out where to write the bank account
+	 * @param bankAccount the bank account
+	 * @throws IOException if the bank account cannot be written
+	 */
+	private static void WriteBankAccount(DataOutputStream out, BankAccount bankAccount) throws IOException {
+		TransactionStore.WriteString(out, bankAccount.GetUsername());
+		TransactionStore.WriteString(out, bankAccount.GetPassword());
+		out.writeInt(bankAccount.GetPinCode());
+		TransactionStore.WriteString(out, bankAccount.GetFirstName());
+		TransactionStore.WriteString(out, bankAccount.GetLastName());
+		
+		PersonalAccount[] personalAccounts = bankAccount.GetPersonalAccounts().toArray(new PersonalAccount[0]);
+		out.writeInt(personalAccounts.length);
+		for (PersonalAccount personalAccount : personalAccounts) {
+			personalAccount.SaveTo(out);
+		}
+	}
+	
+	/**
+	 * Reads a bank account written by WriteBankAccount(DataOutputStream, BankAccount) and adds it to the registry
+	 * @param reader the snapshot, positioned at the bank account, left positioned just past it
+	 * @param bankAccounts record of bank accounts to add the bank account to
+	 * @throws IOException if the snapshot cannot be read, or another bank account already has the username
+	 */
+	private static void ReadBankAccount(MappedReader reader, AccountRegistry bankAccounts) throws IOException {
+		String username = reader.GetString();
+		String password = reader.GetString();
+		int pinCode = reader.GetInt();
+		String firstName = reader.GetString();
+		String lastName = reader.GetString();
+		BankAccount bankAccount = new BankAccount(username, password, pinCode, firstName, lastName);
+		if (bankAccounts.Register(bankAccount) == false) {
+			throw new IOException("Snapshot has username " + username + " twice.");
+		}
+		
+		int numPersonalAccounts = reader.GetInt();
+		for (int i = 0; i < numPersonalAccounts; ++i) {
+			String accName = reader.GetString();
+			long accNumber = reader.GetLong();
+			long balanceCents = reader.GetLong();
+			long journalPosition = reader.GetLong();
+			int historySize = Math.toIntExact(reader.GetLong());
+			
+			PersonalAccount personalAccount = bankAccount.CreatePersonalAccountCents(accName, accNumber, balanceCents);
+			personalAccount.RestoreSavedHistory(reader.Slice(historySize), journalPosition);
+		}
+	}
+}
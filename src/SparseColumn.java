@@ -0,0 +1,113 @@
+/**
+ * Class represents a column of longs where most rows hold 0, so only the other rows are kept:
+ * the index of each one and its number, in two arrays in row order. A row is found with a binary search.
+ * Rows must be set in increasing order, as a history only grows at its end.
+ * A column can be saved as its rows and numbers, see WriteTo(DataOutput)
+ * Not safe for concurrent use, the owner guards it
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class SparseColumn {
+	/**
+	 * Number of rows a column makes room for the first time one is set
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+	
+	/**
+	 * Index of every row that does not hold 0, in increasing order, null until the first one
+	 */
+	private int[] indexes;
+	
+	/**
+	 * Number held by each row in indexes, null until the first one
+	 */
+	private long[] values;
+	
+	/**
+	 * Number of rows that do not hold 0
+	 */
+	private int size;
+	
+	/**
+	 * Sets the number of a row after every row set so far
+	 * @param index row to set, more than any row set before
+	 * @param value the number, 0 leaves the row out
+	 */
+	public void Set(int index, long value) {
+		if (value == 0) {
+			return;
+		}
+		if (indexes == null) {
+			indexes = new int[INITIAL_CAPACITY];
+			values = new long[INITIAL_CAPACITY];
+		}
+		else if (size == indexes.length) {
+			int capacity = size + (size >> 1);
+			indexes = Arrays.copyOf(indexes, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		indexes[size] = index;
+		values[size] = value;
+		++size;
+	}
+	
+	/**
+	 * Gets the number of a row
+	 * @param index row to get
+	 * @return a long that represents the number, 0 for a row that was never set
+	 */
+	public long Get(int index) {
+		//rows are usually read near the end, where they were just set
+		if (size == 0 || index > indexes[size - 1]) {
+			return 0;
+		}
+		int found = Arrays.binarySearch(indexes, 0, size, index);
+		return found >= 0 ? values[found] : 0;
+	}
+	
+	/**
+	 * Gets the number of bytes WriteTo(DataOutput) writes for the column
+	 * @return a long that represents the size of the saved column in bytes
+	 */
+	public long EncodedSize() {
+		return 4L + size * (4L + 8L);
+	}
+	
+	/**
+	 * Saves the column: the number of rows that do not hold 0, the index of each, then the number of each
+	 * @param out where to write the column
+	 * @throws IOException if the column cannot be written
+	 * @see SparseColumn#ReadFrom(ByteBuffer, int)
+	 */
+	public void WriteTo(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for (int i = 0; i < size; ++i) {
+			out.writeInt(indexes[i]);
+		}
+		for (int i = 0; i < size; ++i) {
+			out.writeLong(values[i]);
+		}
+	}
+	
+	/**
+	 * Sets the rows of a saved column after every row set so far
+	 * @param in the saved column, positioned at its start, left positioned just past it
+	 * @param first row the saved column's row 0 becomes
+	 * @see SparseColumn#WriteTo(DataOutput)
+	 */
+	public void ReadFrom(ByteBuffer in, int first) {
+		int count = in.getInt();
+		int indexesStart = in.position();
+		int valuesStart = indexesStart + count * 4;
+		for (int i = 0; i < count; ++i) {
+			Set(first + in.getInt(indexesStart + i * 4), in.getLong(valuesStart + i * 8));
+		}
+		in.position(valuesStart + count * 8);
+	}
+}
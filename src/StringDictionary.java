@@ -0,0 +1,82 @@
+/**
+ * Class represents a dictionary that gives every distinct String a small int id.
+ * Lets columns of repeated Strings, like transaction types and descriptions, be stored as ints.
+ * Ids start at 0 and are never reused. Safe for concurrent lookups and adds
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class StringDictionary {
+	/**
+	 * The id of every String in the dictionary
+	 */
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+	
+	/**
+	 * Every String in the dictionary indexed by its id
+	 */
+	private volatile String[] values = new String[16];
+	
+	/**
+	 * Number of Strings in the dictionary, only changed while holding the dictionary's lock
+	 */
+	private int size;
+	
+	/**
+	 * Gets the id of a String, adding the String to the dictionary if it is new
+	 * @param value the String to look up
+	 * @return an int that represents the id of the String
+	 * @throws IllegalArgumentException if the String is null
+	 */
+	public int IdOf(String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Dictionary can not hold a null String.");
+		}
+		Integer id = ids.get(value);
+		if (id != null) {
+			return id;
+		}
+		return Add(value);
+	}
+	
+	/**
+	 * Gets the String that an id was given to
+	 * @param id id from IdOf(String)
+	 * @return the String with that id
+	 */
+	public String ValueOf(int id) {
+		return values[id];
+	}
+	
+	/**
+	 * Gets the number of distinct Strings in the dictionary
+	 * @return an int that represents the number of Strings
+	 */
+	public synchronized int Size() {
+		return size;
+	}
+	
+	/**
+	 * Adds a String to the dictionary unless another thread added it first
+	 * @param value the String to add
+	 * @return an int that represents the id of the String
+	 */
+	private synchronized int Add(String value) {
+		Integer id = ids.get(value);
+		if (id != null) {
+			return id;
+		}
+		
+		String[] current = values;
+		if (size == current.length) {
+			current = Arrays.copyOf(current, size * 2);
+		}
+		current[size] = value;
+		values = current;
+		ids.put(value, size);
+		return size++;
+	}
+}
@@ -8,39 +8,51 @@ public class Transaction {
 	public PersonalAccount personalAccount;
 	
 	/**
-	 * Date that the transaction was made
+	 * Date that the transaction was made as days since 01/01/1970, or PostingDate.PENDING while processing.
+	 * Only turned into text when it is displayed
 	 */
-	private String postingDate;
+	private int postingDate;
 	
 	/**
-	 * Description of the transaction
+	 * Description of the transaction, or for a description the bank writes, the other account's shortened name and number
 	 */
 	private String description;
 	
+	/**
+	 * Kind of the description, only turned into text when it is displayed
+	 * @see TransactionDescription
+	 */
+	private byte descriptionKind;
+	
+	/**
+	 * Confirmation number of a description the bank writes, 0 for TransactionDescription.TEXT
+	 */
+	private long confirmationNumber;
+	
 	/**
 	 * How the payment/transaction was made
 	 */
 	private String type;
 	
 	/**
-	 * Cost of the transaction
+	 * Cost of the transaction in cents
 	 */
-	private double amount;
+	private long amount;
 	
 	/**
-	 * The overall balance of the account after the transaction was made
+	 * The overall balance of the account after the transaction was made in cents
 	 */
-	private double balance;
+	private long balance;
 	
 	/**
 	 * Default constructor initializing all fields to 0, N/A, or Processing
 	 */
 	public Transaction() {
-		this.postingDate = "Processing";
+		this.postingDate = PostingDate.PENDING;
 		this.description = "N/A";
 		this.type = "N/A";
-		this.amount = 0.00;
-		this.balance = 0.00;
+		this.amount = 0L;
+		this.balance = 0L;
 	}
 	
 	/**
@@ -52,27 +64,95 @@ public class Transaction {
 	 * @param balance balance portion of the personal account
 	 */
 	public Transaction(String postingDate, String description, String type, double amount, double balance) {
-		this.postingDate = postingDate;
+		this(postingDate, description, type, Money.FromDollars(amount), Money.FromDollars(balance));
+	}
+	
+	/**
+	 * Overload constructor initializing all fields to its values in the parameters with money in cents
+	 * @param postingDate date portion of the transaction
+	 * @param description description portion of the transaction
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @param balanceCents balance portion of the personal account in cents
+	 * @see PostingDate#Parse(String)
+	 */
+	public Transaction(String postingDate, String description, String type, long amountCents, long balanceCents) {
+		this(PostingDate.Parse(postingDate), description, type, amountCents, balanceCents);
+	}
+	
+	/**
+	 * Overload constructor initializing all fields to its values in the parameters with the date as a day number and money in cents
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param description description portion of the transaction
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @param balanceCents balance portion of the personal account in cents
+	 */
+	public Transaction(int postingDay, String description, String type, long amountCents, long balanceCents) {
+		this(postingDay, TransactionDescription.TEXT, description, 0L, type, amountCents, balanceCents);
+	}
+	
+	/**
+	 * Overload constructor initializing all fields to its values in the parameters with a structured description
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param descriptionKind kind of the description
+	 * @param description description portion of the transaction for TransactionDescription.TEXT, or the other account's shortened name and number
+	 * @param confirmationNumber confirmation number of the description, unused for TransactionDescription.TEXT
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @param balanceCents balance portion of the personal account in cents
+	 * @see TransactionDescription
+	 */
+	public Transaction(int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amountCents, long balanceCents) {
+		this.postingDate = postingDay;
+		this.descriptionKind = TransactionDescription.CheckKind(descriptionKind);
 		this.description = description;
+		this.confirmationNumber = confirmationNumber;
 		this.type = type;
-		this.amount = amount;
-		this.balance = balance;
+		this.amount = amountCents;
+		this.balance = balanceCents;
 	}
 	
 	/**
 	 * Gets the date of when the transaction was made
 	 * @return a String that represents the posting date
+	 * @see PostingDate#Format(int)
 	 */
 	public String GetPostingDate() {
+		return PostingDate.Format(this.postingDate);
+	}
+	
+	/**
+	 * Gets the date of when the transaction was made as a day number
+	 * @return an int that represents the days since 01/01/1970, or PostingDate.PENDING
+	 */
+	public int GetPostingDay() {
 		return this.postingDate;
 	}
 	
 	/**
 	 * Gets the description of the transaction
 	 * @return a String that represents the description of the transaction
+	 * @see TransactionDescription#Format(byte, String, long)
 	 */
 	public String GetDescription() {
-		return this.description;
+		return TransactionDescription.Format(this.descriptionKind, this.description, this.confirmationNumber);
+	}
+	
+	/**
+	 * Gets the kind of the transaction's description
+	 * @return a byte that represents the kind, TransactionDescription.TEXT for a description given as text
+	 */
+	public byte GetDescriptionKind() {
+		return this.descriptionKind;
+	}
+	
+	/**
+	 * Gets the confirmation number of a description the bank writes
+	 * @return a long that represents the confirmation number, 0 for a description given as text
+	 */
+	public long GetConfirmationNumber() {
+		return this.confirmationNumber;
 	}
 	
 	/**
@@ -88,6 +168,14 @@ public class Transaction {
 	 * @return a double representing the amount
 	 */
 	public double GetAmount() {
+		return Money.ToDollars(this.amount);
+	}
+	
+	/**
+	 * Gets the amount of the transaction in cents
+	 * @return a long representing the amount in cents
+	 */
+	public long GetAmountCents() {
 		return this.amount;
 	}
 	
@@ -96,15 +184,23 @@ public class Transaction {
 	 * @return a double that represents that overall balance of the account
 	 */
 	public double GetBalance() {
+		return Money.ToDollars(this.balance);
+	}
+	
+	/**
+	 * Gets the overall balance of the account after the transaction was made in cents
+	 * @return a long that represents that overall balance of the account in cents
+	 */
+	public long GetBalanceCents() {
 		return this.balance;
 	}
-
+	
 	/**
 	 * Sets the date that the transaction was made
 	 * @param postingDate date portion of the transaction
 	 */
 	private void SetPostingDate(String postingDate) {
-		this.postingDate = postingDate;
+		this.postingDate = PostingDate.Parse(postingDate);
 	}
 	
 	/**
@@ -113,6 +209,8 @@ public class Transaction {
 	 */
 	private void SetDescription(String description) {
 		this.description = description;
+		this.descriptionKind = TransactionDescription.TEXT;
+		this.confirmationNumber = 0L;
 	}
 	
 	/**
@@ -128,7 +226,7 @@ public class Transaction {
 	 * @param amount amount portion of the transaction
 	 */
 	private void SetAmount(double amount) {
-		this.amount = amount;
+		this.amount = Money.FromDollars(amount);
 	}
 	
 	/**
@@ -136,6 +234,6 @@ public class Transaction {
 	 * @param balance balance portion of the personalAccount
 	 */
 	private void SetBalance(double balance) {
-		this.balance = Math.round(balance*100.00)/100.00;
+		this.balance = Money.FromDollars(balance);
 	}
 }
@@ -0,0 +1,90 @@
+/**
+ * Class represents the clock that gives transactions their posting date.
+ * The current day is worked out once and kept until the clock passes midnight,
+ * so getting the posting date of a transaction does not make any objects.
+ * The clock it reads can be swapped for a fixed one so tests and replays post on a known day
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+public class TransactionClock {
+	/**
+	 * Transaction clock reading the system clock in the system time zone, shared by default
+	 */
+	public static final TransactionClock SYSTEM = new TransactionClock(Clock.systemDefaultZone());
+	
+	/**
+	 * The clock that the time is read from
+	 */
+	private final Clock clock;
+	
+	/**
+	 * The day the clock was last read on
+	 */
+	private volatile CachedDay cachedDay;
+	
+	/**
+	 * A day with the time it starts and ends, so checking if the clock is still on it does not need a calendar
+	 */
+	private static final class CachedDay {
+		private final int postingDay;
+		private final long startMillis;
+		private final long endMillis;
+		
+		CachedDay(int postingDay, long startMillis, long endMillis) {
+			this.postingDay = postingDay;
+			this.startMillis = startMillis;
+			this.endMillis = endMillis;
+		}
+	}
+	
+	/**
+	 * Overload constructor making a transaction clock that reads the given clock
+	 * @param clock the clock to read the time and time zone from
+	 */
+	public TransactionClock(Clock clock) {
+		this.clock = clock;
+		this.cachedDay = ReadDay(clock.millis());
+	}
+	
+	/**
+	 * Gets the posting date of a transaction made now
+	 * @return an int that represents the number of days since 01/01/1970
+	 * @see PostingDate#Format(int)
+	 */
+	public int Today() {
+		return CurrentDay().postingDay;
+	}
+	
+	/**
+	 * Gets the day the clock is on, reading the calendar again only when the last day it read has ended
+	 * @return the current day
+	 */
+	private CachedDay CurrentDay() {
+		long now = clock.millis();
+		CachedDay day = cachedDay;
+		if (now < day.startMillis || now >= day.endMillis) {
+			day = ReadDay(now);
+			cachedDay = day;
+		}
+		return day;
+	}
+	
+	/**
+	 * Works out which day a time falls on in the clock's time zone and when that day starts and ends
+	 * @param millis the time in milliseconds since 01/01/1970
+	 * @return the day the time falls on
+	 */
+	private CachedDay ReadDay(long millis) {
+		ZoneId zone = clock.getZone();
+		LocalDate date = LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone);
+		long startMillis = date.atStartOfDay(zone).toInstant().toEpochMilli();
+		long endMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+		return new CachedDay((int) date.toEpochDay(), startMillis, endMillis);
+	}
+}
@@ -0,0 +1,97 @@
+/**
+ * Class holds the kinds of transaction descriptions and turns them into text.
+ * A description the bank writes itself, like the one on each side of a transfer, is stored as its kind,
+ * the shortened name and number of the other account, and the confirmation number, and is only made into text when displayed.
+ * A description given by the caller, like a merchant name, is stored as its text
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+public final class TransactionDescription {
+	/**
+	 * A description given as text
+	 */
+	public static final byte TEXT = 0;
+	
+	/**
+	 * The withdrawing side of a transfer, naming the account the money was sent to
+	 */
+	public static final byte TRANSFER_TO = 1;
+	
+	/**
+	 * The receiving side of a transfer, naming the account the money was sent from
+	 */
+	public static final byte TRANSFER_FROM = 2;
+	
+	/**
+	 * A deposit, naming the account the money was put into
+	 */
+	public static final byte DEPOSIT = 3;
+	
+	/**
+	 * A withdrawal, naming the account the money was taken out of
+	 */
+	public static final byte WITHDRAWAL = 4;
+	
+	/**
+	 * Text in front of the account of each kind of description the bank writes, indexed by kind
+	 */
+	private static final String[] PREFIXES = {"", "Banking transfer to ", "Banking banking transfer from ", "Banking deposit to ", "Banking withdrawal from "};
+	
+	/**
+	 * Text between the account and the confirmation number
+	 */
+	private static final String CONFIRMATION = " confirmation #";
+	
+	/**
+	 * TransactionDescription only holds static methods and is never made
+	 */
+	private TransactionDescription() {
+	}
+	
+	/**
+	 * Writes a description as text, like "Banking transfer to Adv - 9957 confirmation #4118942014"
+	 * @param builder where to write the description
+	 * @param kind kind of the description
+	 * @param text the description for TEXT, or the other account's shortened name and number
+	 * @param confirmationNumber the confirmation number, unused for TEXT
+	 * @return the builder
+	 * @see ConfirmationNumberGenerator#AppendTo(StringBuilder, long)
+	 */
+	public static StringBuilder AppendTo(StringBuilder builder, byte kind, String text, long confirmationNumber) {
+		if (kind == TEXT) {
+			return builder.append(text);
+		}
+		builder.append(PREFIXES[CheckKind(kind)]).append(text).append(CONFIRMATION);
+		return ConfirmationNumberGenerator.AppendTo(builder, confirmationNumber);
+	}
+	
+	/**
+	 * Makes the text of a description
+	 * @param kind kind of the description
+	 * @param text the description for TEXT, or the other account's shortened name and number
+	 * @param confirmationNumber the confirmation number, unused for TEXT
+	 * @return a String that represents the description, the text itself for TEXT
+	 * @see TransactionDescription#AppendTo(StringBuilder, byte, String, long)
+	 */
+	public static String Format(byte kind, String text, long confirmationNumber) {
+		if (kind == TEXT) {
+			return text;
+		}
+		int length = PREFIXES[CheckKind(kind)].length() + text.length() + CONFIRMATION.length() + ConfirmationNumberGenerator.DIGITS;
+		return AppendTo(new StringBuilder(length), kind, text, confirmationNumber).toString();
+	}
+	
+	/**
+	 * Checks that a kind is one of the kinds of description
+	 * @param kind the kind to check
+	 * @return the kind
+	 * @throws IllegalArgumentException if it is not a kind of description
+	 */
+	public static byte CheckKind(byte kind) {
+		if (kind < TEXT || kind >= PREFIXES.length) {
+			throw new IllegalArgumentException("Unknown description kind " + kind + ".");
+		}
+		return kind;
+	}
+}
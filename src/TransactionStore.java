@@ -0,0 +1,573 @@
+/**
+ * Class represents the history of transactions of one personal account stored column by column.
+ * Each field of a transaction is kept in its own growable PackedColumn, as narrow as its numbers allow:
+ * the posting date as a day number, and the type and description as ids into String dictionaries.
+ * The amount is not stored, it is the change in balance from the transaction before, less any change made in between
+ * without a transaction, like the opening balance, which is kept in a SparseColumn as it is rare.
+ * A description the bank writes is kept as its kind, the other account's shortened name and number in the dictionary,
+ * and its confirmation number, and made into text when read. Only these descriptions have a confirmation number,
+ * so confirmation numbers are kept in a SparseColumn too.
+ * A description is only given an id once it repeats: the first time it is seen its UTF-8 bytes are stored inline,
+ * so one-off text like a unique reference costs its bytes and no String or dictionary entry.
+ * A Transaction object is only made when a caller asks for one. A transaction must have a description and a type, neither may be null.
+ * A store can be saved as one block of bytes and read back column by column, see WriteTo(DataOutput)
+ * Not safe for concurrent use, the owning personal account guards it
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class TransactionStore {
+	/**
+	 * Dictionary of transaction types shared by every store, there are only a few of them
+	 */
+	private static final StringDictionary TYPES = new StringDictionary();
+	
+	/**
+	 * Number of low bits of each stored description that hold its kind
+	 */
+	private static final int KIND_BITS = 3;
+	
+	/**
+	 * Number of recently inlined descriptions remembered, a power of two
+	 */
+	private static final int RECENT_INLINE = 64;
+	
+	/**
+	 * Dictionary of the descriptions used more than once in this store
+	 */
+	private final LocalStringDictionary descriptions = new LocalStringDictionary();
+	
+	/**
+	 * UTF-8 bytes of every description stored inline, each after its length as 4 bytes, null until the first one
+	 */
+	private byte[] inlineText;
+	
+	/**
+	 * Number of bytes of inlineText in use
+	 */
+	private int inlineTextSize;
+	
+	/**
+	 * Position in inlineText plus 1 of a recently inlined description by its hash, 0 for none, null until the first one.
+	 * A description seen again while it is still remembered here is moved into the dictionary
+	 */
+	private int[] recentInline;
+	
+	/**
+	 * Balance of the account after every transaction in cents
+	 */
+	private final PackedColumn balances = new PackedColumn();
+	
+	/**
+	 * Change to the balance made just before each transaction other than by a transaction, 0 for most of them.
+	 * The first transaction's is the balance before it
+	 */
+	private final SparseColumn balanceChanges = new SparseColumn();
+	
+	/**
+	 * Posting date of every transaction, 0 for PostingDate.PENDING, the day number plus 1 for a day from 01/01/1970 on,
+	 * and the day number itself for a day before it
+	 */
+	private final PackedColumn postingDays = new PackedColumn();
+	
+	/**
+	 * Type id of every transaction
+	 */
+	private final PackedColumn types = new PackedColumn();
+	
+	/**
+	 * Description of every transaction: twice the id of the description in the dictionary,
+	 * or twice its position in inlineText plus 1 for a description stored inline, shifted up by KIND_BITS with the kind below it.
+	 * For a description the bank writes, the id is that of the other account's shortened name and number
+	 * @see TransactionDescription
+	 */
+	private final PackedColumn descriptionIds = new PackedColumn();
+	
+	/**
+	 * Confirmation number of the description of every transaction, 0 for TransactionDescription.TEXT
+	 */
+	private final SparseColumn confirmationNumbers = new SparseColumn();
+	
+	/**
+	 * Number of transactions in the store
+	 */
+	private int size;
+	
+	/**
+	 * Type and description of the last transaction added and their ids.
+	 * Callers usually pass the same String objects again, so a match by reference skips the dictionary
+	 */
+	private String lastType;
+	private int lastTypeId;
+	private String lastDescription;
+	private long lastDescriptionId;
+	
+	/**
+	 * Balance after the last transaction added, 0 before the first
+	 */
+	private long lastBalance;
+	
+	/**
+	 * Adds a transaction to the end of the store
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param description description portion of the transaction
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @param balanceCents balance of the account after the transaction in cents
+	 * @return an int that represents the index of the new transaction
+	 * @see TransactionStore#Append(int, byte, String, long, String, long, long)
+	 */
+	public int Append(int postingDay, String description, String type, long amountCents, long balanceCents) {
+		return Append(postingDay, TransactionDescription.TEXT, description, 0L, type, amountCents, balanceCents);
+	}
+	
+	/**
+	 * Adds a transaction with a structured description to the end of the store
+	 * @param postingDay date portion of the transaction as days since 01/01/1970, or PostingDate.PENDING
+	 * @param descriptionKind kind of the description
+	 * @param description description portion of the transaction for TransactionDescription.TEXT, or the other account's shortened name and number
+	 * @param confirmationNumber confirmation number of the description, unused for TransactionDescription.TEXT
+	 * @param type type portion of the transaction
+	 * @param amountCents amount/cost portion of the transaction in cents
+	 * @param balanceCents balance of the account after the transaction in cents
+	 * @return an int that represents the index of the new transaction
+	 * @throws IllegalArgumentException if the description or the type is null
+	 */
+	public int Append(int postingDay, byte descriptionKind, String description, long confirmationNumber, String type, long amountCents, long balanceCents) {
+		if (size == balances.Capacity()) {
+			Grow(size + (size >> 1));
+		}
+		
+		if (type != lastType) {
+			lastTypeId = TYPES.IdOf(type);
+			lastType = type;
+		}
+		if (description != lastDescription) {
+			lastDescriptionId = DescriptionIdOf(description);
+			lastDescription = description;
+		}
+		balanceChanges.Set(size, balanceCents - amountCents - lastBalance);
+		balances.Set(size, balanceCents);
+		lastBalance = balanceCents;
+		postingDays.Set(size, EncodeDay(postingDay));
+		types.Set(size, lastTypeId);
+		descriptionIds.Set(size, lastDescriptionId << KIND_BITS | TransactionDescription.CheckKind(descriptionKind));
+		confirmationNumbers.Set(size, confirmationNumber);
+		return size++;
+	}
+	
+	/**
+	 * Gets the number of transactions in the store
+	 * @return an int that represents the number of transactions
+	 */
+	public int Size() {
+		return size;
+	}
+	
+	/**
+	 * Makes a Transaction object holding the transaction at an index
+	 * @param index index of the transaction, 0 is the oldest
+	 * @return a newly made transaction
+	 */
+	public Transaction Get(int index) {
+		CheckIndex(index);
+		return new Transaction(GetPostingDay(index), KindOf(index), DescriptionOf(index), confirmationNumbers.Get(index), GetType(index), GetAmountCents(index), GetBalanceCents(index));
+	}
+	
+	/**
+	 * Gets the posting date of the transaction at an index
+	 * @param index index of the transaction
+	 * @return a String that represents the posting date
+	 * @see PostingDate#Format(int)
+	 */
+	public String GetPostingDate(int index) {
+		return PostingDate.Format(GetPostingDay(index));
+	}
+	
+	/**
+	 * Gets the posting date of the transaction at an index as a day number
+	 * @param index index of the transaction
+	 * @return an int that represents the days since 01/01/1970, or PostingDate.PENDING
+	 */
+	public int GetPostingDay(int index) {
+		long day = postingDays.Get(CheckIndex(index));
+		if (day == 0) {
+			return PostingDate.PENDING;
+		}
+		return (int) (day > 0 ? day - 1 : day);
+	}
+	
+	/**
+	 * Gets the description of the transaction at an index
+	 * @param index index of the transaction
+	 * @return a String that represents the description
+	 * @see TransactionDescription#Format(byte, String, long)
+	 */
+	public String GetDescription(int index) {
+		CheckIndex(index);
+		return TransactionDescription.Format(KindOf(index), DescriptionOf(index), confirmationNumbers.Get(index));
+	}
+	
+	/**
+	 * Writes the description of the transaction at an index, without making it into a String first
+	 * @param builder where to write the description
+	 * @param index index of the transaction
+	 * @return the builder
+	 * @see TransactionDescription#AppendTo(StringBuilder, byte, String, long)
+	 */
+	public StringBuilder AppendDescription(StringBuilder builder, int index) {
+		CheckIndex(index);
+		return TransactionDescription.AppendTo(builder, KindOf(index), DescriptionOf(index), confirmationNumbers.Get(index));
+	}
+	
+	/**
+	 * Gets the type of the transaction at an index
+	 * @param index index of the transaction
+	 * @return a String that represents the type
+	 */
+	public String GetType(int index) {
+		return TYPES.ValueOf(GetTypeId(index));
+	}
+	
+	/**
+	 * Gets the id of the type of the transaction at an index, shared by every store
+	 * @param index index of the transaction
+	 * @return an int that represents the type's id
+	 * @see TransactionStore#TypeOf(int)
+	 */
+	public int GetTypeId(int index) {
+		return (int) types.Get(CheckIndex(index));
+	}
+	
+	/**
+	 * Gets the type that has an id
+	 * @param typeId id from GetTypeId(int)
+	 * @return a String that represents the type
+	 */
+	public static String TypeOf(int typeId) {
+		return TYPES.ValueOf(typeId);
+	}
+	
+	/**
+	 * Gets the amount of the transaction at an index
+	 * @param index index of the transaction
+	 * @return a long that represents the amount in cents
+	 */
+	public long GetAmountCents(int index) {
+		long balanceBefore = CheckIndex(index) == 0 ? 0 : balances.Get(index - 1);
+		return balances.Get(index) - balanceBefore - balanceChanges.Get(index);
+	}
+	
+	/**
+	 * Gets the balance of the account after the transaction at an index
+	 * @param index index of the transaction
+	 * @return a long that represents the balance in cents
+	 */
+	public long GetBalanceCents(int index) {
+		return balances.Get(CheckIndex(index));
+	}
+	
+	/**
+	 * Writes the transaction at an index for the bank server's binary protocol, if the buffer has room for it:
+	 * int posting day, byte description kind, the description's String, long confirmation number, the type's String,
+	 * long amount in cents, long balance in cents. The description is written as stored, not made into text
+	 * @param buffer where to write the transaction
+	 * @param index index of the transaction
+	 * @return a boolean that represents whether the transaction was written, false leaves the buffer unchanged
+	 * @see BankProtocol#PutString(ByteBuffer, String)
+	 */
+	public boolean PutTo(ByteBuffer buffer, int index) {
+		CheckIndex(index);
+		String description = DescriptionOf(index);
+		String type = GetType(index);
+		if (buffer.remaining() < 29 + BankProtocol.SizeOf(description) + BankProtocol.SizeOf(type)) {
+			return false;
+		}
+		buffer.putInt(GetPostingDay(index)).put(KindOf(index));
+		BankProtocol.PutString(buffer, description).putLong(confirmationNumbers.Get(index));
+		BankProtocol.PutString(buffer, type).putLong(GetAmountCents(index)).putLong(GetBalanceCents(index));
+		return true;
+	}
+	
+	/**
+	 * Gets the number of bytes WriteTo(DataOutput) writes for the store
+	 * @return a long that represents the size of the saved store in bytes
+	 */
+	public long EncodedSize() {
+		int numTypes = TYPES.Size();
+		int numDescriptions = descriptions.Size();
+		long bytes = 16L + inlineTextSize + balances.EncodedSize(size) + balanceChanges.EncodedSize() + postingDays.EncodedSize(size)
+				+ types.EncodedSize(size) + descriptionIds.EncodedSize(size) + confirmationNumbers.EncodedSize();
+		for (int i = 0; i < numTypes; ++i) {
+			bytes += 4 + Utf8Length(TYPES.ValueOf(i));
+		}
+		for (int i = 0; i < numDescriptions; ++i) {
+			bytes += 4 + Utf8Length(descriptions.ValueOf(i));
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Saves the store: its size, the type and description dictionaries, the inline descriptions, then each column in turn
+	 * @param out where to write the store
+	 * @throws IOException if the store cannot be written
+	 * @see TransactionStore#ReadFrom(ByteBuffer)
+	 */
+	public void WriteTo(DataOutput out) throws IOException {
+		int numTypes = TYPES.Size();
+		int numDescriptions = descriptions.Size();
+		out.writeInt(size);
+		out.writeInt(numTypes);
+		for (int i = 0; i < numTypes; ++i) {
+			WriteString(out, TYPES.ValueOf(i));
+		}
+		out.writeInt(numDescriptions);
+		for (int i = 0; i < numDescriptions; ++i) {
+			WriteString(out, descriptions.ValueOf(i));
+		}
+		out.writeInt(inlineTextSize);
+		if (inlineTextSize > 0) {
+			out.write(inlineText, 0, inlineTextSize);
+		}
+		
+		balances.WriteTo(out, size);
+		balanceChanges.WriteTo(out);
+		postingDays.WriteTo(out, size);
+		types.WriteTo(out, size);
+		descriptionIds.WriteTo(out, size);
+		confirmationNumbers.WriteTo(out);
+	}
+	
+	/**
+	 * Reads every transaction of a saved store into this store, which must be empty.
+	 * The columns are copied in bulk, only the dictionaries are read String by String
+	 * @param in the saved store, positioned at its start, left positioned just past it
+	 * @throws IllegalStateException if the store already has transactions
+	 * @see TransactionStore#WriteTo(DataOutput)
+	 */
+	public void ReadFrom(ByteBuffer in) {
+		if (size > 0 || inlineTextSize > 0 || descriptions.Size() > 0) {
+			throw new IllegalStateException("A saved history can only be read into an empty one.");
+		}
+		int count = in.getInt();
+		int[] typeIds = new int[in.getInt()];
+		boolean sameTypeIds = true;
+		for (int i = 0; i < typeIds.length; ++i) {
+			typeIds[i] = TYPES.IdOf(ReadString(in));
+			sameTypeIds &= typeIds[i] == i;
+		}
+		//the dictionary is empty, so each saved description gets back the id it was saved with
+		int numDescriptions = in.getInt();
+		for (int i = 0; i < numDescriptions; ++i) {
+			descriptions.Add(ReadString(in));
+		}
+		int savedInlineSize = in.getInt();
+		EnsureInlineCapacity(savedInlineSize);
+		in.get(inlineText, 0, savedInlineSize);
+		inlineTextSize = savedInlineSize;
+		
+		if (balances.Capacity() < count) {
+			Grow(count);
+		}
+		balances.ReadFrom(in, 0, count);
+		balanceChanges.ReadFrom(in, 0);
+		postingDays.ReadFrom(in, 0, count);
+		types.ReadFrom(in, 0, count);
+		descriptionIds.ReadFrom(in, 0, count);
+		confirmationNumbers.ReadFrom(in, 0);
+		
+		//type ids in the saved store are remapped to this run's dictionary, shared with every other store, unless they are the same
+		for (int i = 0; sameTypeIds == false && i < count; ++i) {
+			types.Set(i, typeIds[(int) types.Get(i)]);
+		}
+		size = count;
+		lastBalance = count == 0 ? 0 : balances.Get(count - 1);
+	}
+	
+	/**
+	 * Gets the id of a description, storing it inline unless it is in the dictionary or was inlined recently
+	 * @param description the description
+	 * @return a long that represents twice its id, or twice its position in inlineText plus 1
+	 * @throws IllegalArgumentException if the description is null
+	 */
+	private long DescriptionIdOf(String description) {
+		int id = descriptions.Find(description);
+		if (id >= 0) {
+			return (long) id << 1;
+		}
+		
+		byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+		if (recentInline == null) {
+			recentInline = new int[RECENT_INLINE];
+		}
+		int hash = description.hashCode();
+		int slot = (hash ^ (hash >>> 16)) & (RECENT_INLINE - 1);
+		int recent = recentInline[slot];
+		if (recent != 0 && InlineEquals(recent - 1, bytes)) {
+			//seen twice, so it is likely to come up again
+			recentInline[slot] = 0;
+			return (long) descriptions.Add(description) << 1;
+		}
+		
+		EnsureInlineCapacity(4 + bytes.length);
+		int position = inlineTextSize;
+		ByteBuffer.wrap(inlineText, position, 4).putInt(bytes.length);
+		System.arraycopy(bytes, 0, inlineText, position + 4, bytes.length);
+		inlineTextSize += 4 + bytes.length;
+		recentInline[slot] = position + 1;
+		return (long) position << 1 | 1;
+	}
+	
+	/**
+	 * Gets the description of the transaction at an index as stored, before it is made into text
+	 * @param index index of the transaction, already checked
+	 * @return a String that represents the description for TransactionDescription.TEXT, or the other account's shortened name and number
+	 */
+	private String DescriptionOf(int index) {
+		long id = descriptionIds.Get(index) >>> KIND_BITS;
+		if ((id & 1) == 0) {
+			return descriptions.ValueOf((int) (id >> 1));
+		}
+		int position = (int) (id >> 1);
+		return new String(inlineText, position + 4, InlineLength(position), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Gets the kind of the description of the transaction at an index
+	 * @param index index of the transaction, already checked
+	 * @return a byte that represents the kind
+	 * @see TransactionDescription
+	 */
+	private byte KindOf(int index) {
+		return (byte) (descriptionIds.Get(index) & ((1 << KIND_BITS) - 1));
+	}
+	
+	/**
+	 * Stores a posting date in postingDays, which keeps day numbers from 01/01/1970 on positive so they fit in 2 bytes
+	 * @param postingDay days since 01/01/1970, or PostingDate.PENDING
+	 * @return a long that represents the stored date
+	 * @see TransactionStore#GetPostingDay(int)
+	 */
+	private static long EncodeDay(int postingDay) {
+		if (postingDay == PostingDate.PENDING) {
+			return 0;
+		}
+		return postingDay >= 0 ? postingDay + 1L : postingDay;
+	}
+	
+	/**
+	 * Checks if the description inlined at a position has the same bytes
+	 * @param position position of the description in inlineText
+	 * @param bytes the UTF-8 bytes to compare
+	 * @return a boolean that represents whether they are the same
+	 */
+	private boolean InlineEquals(int position, byte[] bytes) {
+		return InlineLength(position) == bytes.length && Arrays.equals(inlineText, position + 4, position + 4 + bytes.length, bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Gets the length of the description inlined at a position
+	 * @param position position of the description in inlineText
+	 * @return an int that represents its length in bytes
+	 */
+	private int InlineLength(int position) {
+		return ByteBuffer.wrap(inlineText, position, 4).getInt();
+	}
+	
+	/**
+	 * Makes inlineText large enough for more bytes, half again as large as it needs to be
+	 * @param moreBytes number of bytes about to be added
+	 */
+	private void EnsureInlineCapacity(int moreBytes) {
+		int needed = inlineTextSize + moreBytes;
+		if (inlineText == null) {
+			inlineText = new byte[Math.max(64, needed)];
+		}
+		else if (needed > inlineText.length) {
+			inlineText = Arrays.copyOf(inlineText, Math.max(needed, inlineText.length + (inlineText.length >> 1)));
+		}
+	}
+	
+	/**
+	 * Makes room in every column for more transactions
+	 * @param capacity number of transactions to make room for
+	 */
+	private void Grow(int capacity) {
+		balances.Grow(capacity);
+		postingDays.Grow(capacity);
+		types.Grow(capacity);
+		descriptionIds.Grow(capacity);
+	}
+	
+	/**
+	 * Checks that an index points at a transaction in the store
+	 * @param index index to check
+	 * @return the index
+	 * @throws IndexOutOfBoundsException if there is no transaction at the index
+	 */
+	private int CheckIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Transaction " + index + " out of bounds for history of " + size);
+		}
+		return index;
+	}
+	
+	/**
+	 * Writes a String as its UTF-8 length and bytes
+	 * @param out where to write the String
+	 * @param value the String to write
+	 * @throws IOException if the String cannot be written
+	 */
+	static void WriteString(DataOutput out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	/**
+	 * Reads a String written by WriteString(DataOutput, String)
+	 * @param in the bytes, positioned at the String, left positioned just past it
+	 * @return the String read
+	 */
+	static String ReadString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Counts the bytes of a String in UTF-8 without encoding it
+	 * @param value the String
+	 * @return an int that represents the number of bytes
+	 */
+	static int Utf8Length(String value) {
+		int bytes = 0;
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				bytes += 1;
+			}
+			else if (c < 0x800) {
+				bytes += 2;
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+				bytes += 4;
+				++i;
+			}
+			else if (Character.isSurrogate(c)) {
+				//an unpaired surrogate is encoded as '?'
+				bytes += 1;
+			}
+			else {
+				bytes += 3;
+			}
+		}
+		return bytes;
+	}
+}
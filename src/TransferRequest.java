@@ -0,0 +1,58 @@
+/**
+ * Class represents a single transfer of money between two personal accounts, to be made as part of a batch
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+public class TransferRequest {
+	/**
+	 * Personal account that the money is being withdrawn from
+	 */
+	private PersonalAccount accWithdrawnFrom;
+	
+	/**
+	 * Personal account that the money is being sent to
+	 */
+	private PersonalAccount accSentTo;
+	
+	/**
+	 * Amount of money in cents to transfer
+	 */
+	private long amountCents;
+	
+	/**
+	 * Overload constructor initializing all fields to its values in the parameters
+	 * @param accWithdrawnFrom personal account that the money is being withdrawn from
+	 * @param accSentTo personal account that the money is being sent to
+	 * @param amountCents amount of money in cents to transfer
+	 */
+	public TransferRequest(PersonalAccount accWithdrawnFrom, PersonalAccount accSentTo, long amountCents) {
+		this.accWithdrawnFrom = accWithdrawnFrom;
+		this.accSentTo = accSentTo;
+		this.amountCents = amountCents;
+	}
+	
+	/**
+	 * Gets the personal account that the money is being withdrawn from
+	 * @return the withdrawing personal account
+	 */
+	public PersonalAccount GetAccWithdrawnFrom() {
+		return this.accWithdrawnFrom;
+	}
+	
+	/**
+	 * Gets the personal account that the money is being sent to
+	 * @return the receiving personal account
+	 */
+	public PersonalAccount GetAccSentTo() {
+		return this.accSentTo;
+	}
+	
+	/**
+	 * Gets the amount of money to transfer
+	 * @return a long that represents the amount in cents
+	 */
+	public long GetAmountCents() {
+		return this.amountCents;
+	}
+}
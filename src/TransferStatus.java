@@ -0,0 +1,48 @@
+/**
+ * Enum represents the outcome of a single transfer, made on its own or as part of a batch
+ * @author Katie Ho
+ * @version 1.0
+ */
+
+public enum TransferStatus {
+	/**
+	 * The money was taken out of one account and put into the other
+	 */
+	COMPLETED("Transfer completed."),
+	
+	/**
+	 * The amount was zero or negative, nothing was transferred
+	 */
+	NON_POSITIVE_AMOUNT("Amount entered must be positive."),
+	
+	/**
+	 * Both sides of the transfer were the same account, nothing was transferred
+	 */
+	SAME_ACCOUNT("Can not choose the same account."),
+	
+	/**
+	 * The withdrawing account's balance was not greater than the amount, nothing was transferred
+	 */
+	INSUFFICIENT_FUNDS("Bank account has insufficient funds.");
+	
+	/**
+	 * Message describing the outcome for display
+	 */
+	private final String message;
+	
+	/**
+	 * Constructor giving the outcome its message
+	 * @param message message describing the outcome
+	 */
+	TransferStatus(String message) {
+		this.message = message;
+	}
+	
+	/**
+	 * Gets the message describing the outcome
+	 * @return a String that represents the outcome for display
+	 */
+	public String GetMessage() {
+		return this.message;
+	}
+}